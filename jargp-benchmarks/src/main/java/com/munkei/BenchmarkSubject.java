@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * The subject used by the benchmarks, with a mix of option types.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class BenchmarkSubject {
+
+  @CommandLineOption(names = { "string", "s" },
+                     description = "A string",
+                     placeholder = "STRING")
+  public String string;
+
+  @CommandLineOption(names = { "count", "c" },
+                     description = "An int")
+  public int count;
+
+  @CommandLineOption(names = { "size" },
+                     description = "A long")
+  public long size;
+
+  @CommandLineOption(names = { "ratio" },
+                     description = "A double",
+                     defaultValue = "1.0")
+  public double ratio;
+
+  @CommandLineOption(names = { "file", "f" },
+                     description = "A file")
+  public File file;
+
+  @CommandLineOption(names = { "verbose", "v" },
+                     description = "A flag",
+                     opposite = true)
+  public boolean verbose;
+
+  @CommandLineOption(names = { "x" })
+  public boolean x;
+
+  @CommandLineOption(names = { "y" })
+  public boolean y;
+
+  @CommandLineOption(names = { "z" })
+  public boolean z;
+
+  @CommandLineOption(names = { "name", "n" },
+                     description = "Names, may be given several times")
+  public List<String> names;
+
+  @CommandLineOption(names = { "number" },
+                     description = "Numbers, may be given several times")
+  public List<Integer> numbers;
+
+}
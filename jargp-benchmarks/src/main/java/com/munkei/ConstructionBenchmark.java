@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures <code>new JArgP(subject)</code>. The schema is cached per class, so
+ * this is the cost of every construction but the first.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class ConstructionBenchmark {
+
+  private final BenchmarkSubject subject = new BenchmarkSubject();
+
+  @Benchmark
+  public JArgP construct() {
+    return new JArgP(subject);
+  }
+
+}
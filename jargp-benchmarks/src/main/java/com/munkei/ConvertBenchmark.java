@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Option#convert(java.lang.String, java.lang.Class)} per
+ * target type.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class ConvertBenchmark {
+
+  /**
+   * The target types, with a value to convert.
+   */
+  public enum Type {
+
+    STRING(String.class, "value"),
+    INTEGER(Integer.class, "-123456"),
+    LONG(Long.class, "9876543210"),
+    DOUBLE(Double.class, "3.14159"),
+    BOOLEAN(Boolean.class, "true"),
+    BIG_DECIMAL(BigDecimal.class, "12345.6789"),
+    FILE(File.class, "/tmp/file.txt"),
+    DURATION(Duration.class, "PT1M30S"),
+    // Resolved through valueOf(String)
+    ENUM(TimeUnit.class, "SECONDS");
+
+    private final Class<?> type;
+
+    private final String value;
+
+    private Type(Class<?> type, String value) {
+      this.type = type;
+      this.value = value;
+    }
+
+  }
+
+  @Param
+  public Type type;
+
+  private Class<?> to;
+
+  private String value;
+
+  @Setup
+  public void setUp() {
+    to = type.type;
+    value = type.value;
+  }
+
+  @Benchmark
+  public Object convert()
+    throws Exception {
+    return Option.convert(value, to);
+  }
+
+}
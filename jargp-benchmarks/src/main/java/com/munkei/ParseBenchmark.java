@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link JArgP#parse(java.lang.String[])} over argument lists of
+ * different sizes and shapes.
+ * <p>
+ * Each invocation parses into a new subject (so that collections don't keep
+ * growing), which includes the (cheap) construction of the {@link JArgP}.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+  /**
+   * The shapes of argument lists.
+   */
+  public enum Shape {
+
+    /**
+     * Long options with values, e.g. <code>--string foo --count 1</code>.
+     */
+    LONG,
+    /**
+     * Clustered short options, e.g. <code>-xyz -vxz</code>.
+     */
+    SHORT,
+    /**
+     * Repeated collection options, e.g. <code>--name a --number 1</code>.
+     */
+    COLLECTION,
+    /**
+     * A mix of the above, plus positional arguments.
+     */
+    MIXED;
+
+  }
+
+  @Param({ "10", "1000", "100000" })
+  public int tokens;
+
+  @Param
+  public Shape shape;
+
+  private String[] args;
+
+  @Setup
+  public void setUp() {
+    args = arguments(shape, tokens);
+  }
+
+  @Benchmark
+  public List<String> parse()
+    throws Exception {
+    return new JArgP(new BenchmarkSubject()).parse(args);
+  }
+
+  /**
+   * Builds an argument list.
+   *
+   * @param shape The kind of arguments.
+   *
+   * @param tokens The number of tokens.
+   *
+   * @return The arguments.
+   */
+  static String[] arguments(Shape shape, int tokens) {
+    String[] args = new String[tokens];
+    int i = 0;
+    while (i < tokens) {
+      String[] group = group(shape, i);
+      for (int j = 0; j < group.length && i < tokens; ++j) {
+        args[i++] = group[j];
+      }
+    }
+
+    // Don't end with an option that's missing its value
+    if (tokens > 0 && args[tokens - 1].startsWith("--")) {
+      args[tokens - 1] = "-x";
+    }
+
+    return args;
+  }
+
+  private static String[] group(Shape shape, int i) {
+    switch (shape) {
+      case LONG:
+        switch (i % 3) {
+          case 0:
+            return new String[]{ "--string", "value" + i };
+          case 1:
+            return new String[]{ "--count", Integer.toString(i) };
+          default:
+            return new String[]{ "--verbose" };
+        }
+
+      case SHORT:
+        return new String[]{ ((i % 2) == 0) ? "-xyz" : "-vzx" };
+
+      case COLLECTION:
+        return ((i % 2) == 0)
+               ? new String[]{ "--name", "name" + i }
+               : new String[]{ "--number", Integer.toString(i) };
+
+      case MIXED:
+        switch (i % 5) {
+          case 0:
+            return new String[]{ "--size", Long.toString(i * 1000L) };
+          case 1:
+            return new String[]{ "-xy" };
+          case 2:
+            return new String[]{ "--name", "name" + i };
+          case 3:
+            return new String[]{ "--no-verbose" };
+          default:
+            return new String[]{ "positional" + i };
+        }
+
+      default:
+        throw new AssertionError(shape);
+    }
+  }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei.jfr;
+
+import com.munkei.Option;
+import com.munkei.ParseListener;
+import java.lang.reflect.Field;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A {@link ParseListener} that emits JDK Flight Recorder events, so parsing
+ * shows up in recordings (e.g. with <code>-XX:StartFlightRecording</code>)
+ * next to everything else the application does.
+ * <p>
+ * The events are <code>com.munkei.Parse</code> (one per parse),
+ * <code>com.munkei.Conversion</code> (one per option that is set),
+ * <code>com.munkei.ConversionFailure</code> and
+ * <code>com.munkei.DefaultApplied</code>. Conversions and defaults are
+ * disabled by default, since there may be many of them; enable them in the
+ * recording's settings. Events that aren't enabled cost next to nothing.
+ * <p>
+ * This class needs the <code>jdk.jfr</code> API (Java 11, or Java 8 from
+ * update 262), which is why it's in an artifact of its own,
+ * <code>jargp-jfr</code>, rather than in <code>jargp</code>.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class JfrParseListener
+  implements ParseListener {
+
+  @Override
+  public void parseFinished(Class<?> type, long nanos, boolean success) {
+    ParseEvent event = new ParseEvent();
+    if (event.shouldCommit()) {
+      event.type = type;
+      event.time = nanos;
+      event.success = success;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void valueConverted(Option option, String name, long nanos) {
+    ConversionEvent event = new ConversionEvent();
+    if (event.shouldCommit()) {
+      Field field = option.getField();
+      if (field != null) {
+        event.type = field.getDeclaringClass();
+        event.field = field.getName();
+      }
+      event.option = option.getPrimaryName();
+      event.name = name;
+      event.time = nanos;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void conversionFailed(Option option,
+                               String name,
+                               String value,
+                               Exception cause) {
+    ConversionFailureEvent event = new ConversionFailureEvent();
+    if (event.shouldCommit()) {
+      Field field = option.getField();
+      if (field != null) {
+        event.type = field.getDeclaringClass();
+        event.field = field.getName();
+      }
+      event.option = option.getPrimaryName();
+      event.name = name;
+      event.value = value;
+      event.message = cause.getMessage();
+      event.commit();
+    }
+  }
+
+  @Override
+  public void defaultApplied(Option option) {
+    DefaultAppliedEvent event = new DefaultAppliedEvent();
+    if (event.shouldCommit()) {
+      Field field = option.getField();
+      if (field != null) {
+        event.type = field.getDeclaringClass();
+        event.field = field.getName();
+      }
+      event.option = option.getPrimaryName();
+      event.commit();
+    }
+  }
+
+  @Name("com.munkei.Parse")
+  @Label("Parse")
+  @Description("Command line arguments were parsed")
+  @Category("JArgP")
+  @StackTrace(false)
+  static final class ParseEvent
+    extends Event {
+
+    @Label("Subject Class")
+    Class<?> type;
+
+    @Label("Parse Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long time;
+
+    @Label("Success")
+    boolean success;
+
+  }
+
+  @Name("com.munkei.Conversion")
+  @Label("Conversion")
+  @Description("An option's value was converted and set")
+  @Category("JArgP")
+  @Enabled(false)
+  @StackTrace(false)
+  static final class ConversionEvent
+    extends Event {
+
+    @Label("Subject Class")
+    Class<?> type;
+
+    @Label("Field")
+    String field;
+
+    @Label("Option")
+    String option;
+
+    @Label("Given As")
+    String name;
+
+    @Label("Conversion Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long time;
+
+  }
+
+  @Name("com.munkei.ConversionFailure")
+  @Label("Conversion Failure")
+  @Description("An option's value was invalid")
+  @Category("JArgP")
+  @StackTrace(false)
+  static final class ConversionFailureEvent
+    extends Event {
+
+    @Label("Subject Class")
+    Class<?> type;
+
+    @Label("Field")
+    String field;
+
+    @Label("Option")
+    String option;
+
+    @Label("Given As")
+    String name;
+
+    @Label("Value")
+    String value;
+
+    @Label("Message")
+    String message;
+
+  }
+
+  @Name("com.munkei.DefaultApplied")
+  @Label("Default Applied")
+  @Description("An option that wasn't given was set to its default value")
+  @Category("JArgP")
+  @Enabled(false)
+  @StackTrace(false)
+  static final class DefaultAppliedEvent
+    extends Event {
+
+    @Label("Subject Class")
+    Class<?> type;
+
+    @Label("Field")
+    String field;
+
+    @Label("Option")
+    String option;
+
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei.jfr;
+
+import com.munkei.CommandLineOption;
+import com.munkei.Parser;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class JfrParseListenerTest {
+
+  @Test
+  public void testFlightRecorder()
+    throws Exception {
+    Path file = Files.createTempFile("jargp", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("com.munkei.Parse");
+      recording.enable("com.munkei.ConversionFailure");
+      recording.start();
+
+      Parser<TestSubject> parser = new Parser<>(TestSubject.class)
+        .withListener(new JfrParseListener());
+      parser.parse(new String[]{ "--name", "n" }, TestSubject::new);
+      parser.tryParse(new String[]{ "-n", "x" }, TestSubject::new);
+
+      recording.stop();
+      recording.dump(file);
+    }
+
+    List<String> names = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      if (event.getEventType().getName().startsWith("com.munkei.")) {
+        names.add(event.getEventType().getName());
+      }
+    }
+    Files.delete(file);
+
+    assertEquals(3, names.size());
+    assertEquals(2, names.stream().filter("com.munkei.Parse"::equals).count());
+    assertTrue(names.contains("com.munkei.ConversionFailure"));
+  }
+
+  public static class TestSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "name" })
+    public String name;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "number", "n" })
+    public int number;
+
+  }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei.processor;
+
+import com.munkei.CommandLineOption;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * An annotation processor that generates a parser for each class with
+ * {@link CommandLineOption} fields.
+ * <p>
+ * For a class <code>com.example.App</code> the parser is
+ * <code>com.example.JArgP_App</code> (for nested classes the names of the
+ * enclosing classes are included, e.g. <code>JArgP_Outer_Inner</code>). It
+ * has static methods <code>parse(App subject, String[] args)</code> and
+ * <code>printUsage(PrintStream)</code>, and the usage text as the constant
+ * <code>USAGE</code>. The generated code uses no reflection; names are
+ * dispatched with <code>switch</code> statements and values are converted
+ * with plain method calls.
+ * <p>
+ * Since values are converted at compile time, converters registered at
+ * runtime (see {@link com.munkei.ValueConverters}) are not used; types that
+ * have neither a built-in conversion, a static <code>valueOf(String)</code>
+ * method nor a <code>String</code> constructor need a
+ * {@link CommandLineOption#converter()}. Only public fields and setters are
+ * used, like by {@link com.munkei.JArgP}, so a class parses the same either
+ * way; other fields are ignored (with a warning). So are
+ * {@link CommandLineOption#pattern()}s and
+ * {@link CommandLineOption#shortPattern()}s. Array fields are not supported;
+ * no parser is generated for a class that has any (with a warning), so it's
+ * parsed by {@link com.munkei.JArgP}. Use collections instead.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class CommandLineOptionProcessor
+  extends AbstractProcessor {
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(CommandLineOption.class.getName());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations,
+                         RoundEnvironment roundEnvironment) {
+    Set<TypeElement> types = new LinkedHashSet<>();
+    for (Element element : roundEnvironment
+      .getElementsAnnotatedWith(CommandLineOption.class)) {
+      if (element.getKind() == ElementKind.FIELD) {
+        types.add((TypeElement) element.getEnclosingElement());
+      }
+    }
+
+    for (TypeElement type : types) {
+      generate(type);
+    }
+
+    return false;
+  }
+
+  private void generate(TypeElement type) {
+    List<OptionModel> options = new ArrayList<>();
+    boolean valid = true;
+    boolean supported = true;
+
+    for (VariableElement field : fields(type)) {
+      if (!field.getModifiers().contains(Modifier.PUBLIC)) {
+        processingEnv.getMessager().printMessage(
+          Diagnostic.Kind.WARNING,
+          "Non-public @CommandLineOption fields are ignored",
+          field);
+        continue;
+      }
+
+      CommandLineOption annotation = field.getAnnotation(
+        CommandLineOption.class);
+      if (!annotation.pattern().isEmpty()
+        || !annotation.shortPattern().isEmpty()) {
+        processingEnv.getMessager().printMessage(
+          Diagnostic.Kind.WARNING,
+          "Patterns are not matched by generated parsers",
+          field);
+      }
+
+      OptionModel option = new OptionModel(processingEnv, type, field);
+      if (option.getError() != null) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                                                 option.getError(),
+                                                 field);
+        valid = false;
+      } else if (option.getUnsupported() != null) {
+        processingEnv.getMessager().printMessage(
+          Diagnostic.Kind.WARNING,
+          option.getUnsupported() + "; no parser is generated for "
+          + type.getSimpleName(),
+          field);
+        supported = false;
+      }
+      options.add(option);
+    }
+
+    if (!valid || !supported) {
+      return;
+    }
+
+    String packageName = processingEnv.getElementUtils().getPackageOf(type)
+      .getQualifiedName().toString();
+    String parserName = "JArgP_" + simpleNames(type);
+
+    try {
+      JavaFileObject file = processingEnv.getFiler().createSourceFile(
+        ((packageName.isEmpty()) ? "" : packageName + ".") + parserName,
+        type);
+      try (Writer writer = file.openWriter()) {
+        new ParserWriter(packageName,
+                         type.getQualifiedName().toString(),
+                         parserName,
+                         options).write(writer);
+      }
+    } catch (IOException ex) {
+      processingEnv.getMessager().printMessage(
+        Diagnostic.Kind.ERROR,
+        "Could not write parser " + parserName + ": " + ex.getMessage(),
+        type);
+    }
+  }
+
+  /**
+   * @return The annotated fields of the type and its superclasses.
+   */
+  private static List<VariableElement> fields(TypeElement type) {
+    List<VariableElement> fields = new ArrayList<>();
+
+    TypeElement current = type;
+    while (current != null) {
+      for (VariableElement field : ElementFilter.fieldsIn(
+        current.getEnclosedElements())) {
+        if (field.getAnnotation(CommandLineOption.class) != null
+          && !field.getModifiers().contains(Modifier.STATIC)) {
+          fields.add(field);
+        }
+      }
+
+      TypeMirror superclass = current.getSuperclass();
+      current = ((superclass.getKind() == TypeKind.DECLARED)
+                 ? (TypeElement) ((DeclaredType) superclass).asElement()
+                 : null);
+    }
+
+    return fields;
+  }
+
+  /**
+   * @return The simple names of the type and its enclosing types, separated
+   * by underscores.
+   */
+  private static String simpleNames(TypeElement type) {
+    String name = type.getSimpleName().toString();
+    Element enclosing = type.getEnclosingElement();
+    while (enclosing instanceof TypeElement) {
+      name = enclosing.getSimpleName() + "_" + name;
+      enclosing = enclosing.getEnclosingElement();
+    }
+    return name;
+  }
+
+}
@@ -0,0 +1,490 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei.processor;
+
+import com.munkei.CommandLineOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * What the processor knows about a single {@link CommandLineOption} field:
+ * its names and how values are converted and written, as Java source
+ * fragments.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class OptionModel {
+
+  /**
+   * Implementations used for collection fields whose type is an interface or
+   * an abstract class, like in the runtime parser.
+   */
+  private static final String[] COLLECTION_IMPLEMENTATIONS = new String[]{
+    "java.util.ArrayList",
+    "java.util.LinkedHashSet",
+    "java.util.TreeSet",
+    "java.util.ArrayDeque"
+  };
+
+  private final VariableElement field;
+
+  private final CommandLineOption annotation;
+
+  private final List<String> names;
+
+  private final List<String> negations;
+
+  private final boolean bool;
+
+  private final boolean primitiveBoolean;
+
+  /**
+   * The type of values: the field's type or, for collections, the element
+   * type.
+   */
+  private TypeMirror valueType;
+
+  /**
+   * For collections: the class to instantiate, or <code>null</code>.
+   */
+  private String collectionClass;
+
+  private ExecutableElement setter;
+
+  private boolean setterTakesName;
+
+  private boolean rawValue;
+
+  /**
+   * The class of the converter specified by the annotation, or
+   * <code>null</code>.
+   */
+  private String converterClass;
+
+  /**
+   * An expression (of the variable <code>value</code>) that converts a value,
+   * or <code>null</code> if the option doesn't take a value.
+   */
+  private String conversion;
+
+  private String error;
+
+  private String unsupported;
+
+  OptionModel(ProcessingEnvironment environment,
+              TypeElement type,
+              VariableElement field) {
+    Types types = environment.getTypeUtils();
+    Elements elements = environment.getElementUtils();
+
+    this.field = field;
+    this.annotation = field.getAnnotation(CommandLineOption.class);
+
+    TypeMirror fieldType = field.asType();
+    TypeMirror booleanType = elements.getTypeElement("java.lang.Boolean")
+      .asType();
+    this.primitiveBoolean = (fieldType.getKind() == TypeKind.BOOLEAN);
+    this.bool = (primitiveBoolean || types.isSameType(fieldType, booleanType));
+
+    List<String> plain = new ArrayList<>(Arrays.asList(annotation.names()));
+    if (plain.isEmpty()
+      && annotation.pattern().isEmpty()
+      && annotation.shortPattern().isEmpty()) {
+      plain.add(field.getSimpleName().toString());
+    }
+    List<String> no = new ArrayList<>();
+    if (bool && annotation.opposite()) {
+      for (String name : plain) {
+        no.add("no-" + name);
+      }
+    }
+    List<String> all = new ArrayList<>(plain);
+    all.addAll(no);
+    this.names = Collections.unmodifiableList(all);
+    this.negations = Collections.unmodifiableList(no);
+
+    if (fieldType.getKind() == TypeKind.ARRAY) {
+      unsupported = "Array fields are not supported by generated parsers; use "
+        + "a collection";
+      return;
+    }
+
+    TypeMirror collectionType = types.erasure(
+      elements.getTypeElement("java.util.Collection").asType());
+    if (fieldType.getKind() == TypeKind.DECLARED
+      && types.isAssignable(types.erasure(fieldType), collectionType)) {
+      List<? extends TypeMirror> arguments = ((DeclaredType) fieldType)
+        .getTypeArguments();
+      if (arguments.isEmpty()) {
+        error = "Collection field must have a type argument";
+        return;
+      }
+      valueType = arguments.get(0);
+      collectionClass = collectionClass(types, elements, fieldType);
+    } else {
+      valueType = fieldType;
+      if (!annotation.separator().isEmpty()) {
+        // Like the runtime parser
+        error = "Field has a separator, but is not a collection";
+        return;
+      }
+    }
+
+    if (!annotation.setter().isEmpty()) {
+      findSetter(types, elements, type);
+      if (setter == null) {
+        error = "Could not find setter '" + annotation.setter()
+          + "(java.lang.String, " + valueType + ")'";
+        return;
+      }
+    }
+
+    converterClass = converterClass(field);
+
+    String defaultValue = annotation.defaultValue();
+    if (bool && !defaultValue.isEmpty()
+      && !defaultValue.equalsIgnoreCase("true")
+      && !defaultValue.equalsIgnoreCase("false")) {
+      error = "Invalid default value '" + defaultValue
+        + "', expected true or false";
+      return;
+    }
+
+    if (!bool) {
+      conversion = ((rawValue)
+                    ? "value"
+                    : conversion(types, elements));
+      if (conversion == null) {
+        error = "Can't convert from String to '" + valueType
+          + "'; specify a converter";
+      }
+    }
+  }
+
+  VariableElement getField() {
+    return field;
+  }
+
+  CommandLineOption getAnnotation() {
+    return annotation;
+  }
+
+  List<String> getNames() {
+    return names;
+  }
+
+  boolean isNegation(String name) {
+    return negations.contains(name);
+  }
+
+  boolean takesValue() {
+    return !bool;
+  }
+
+  String getConverterClass() {
+    return converterClass;
+  }
+
+  /**
+   * @return A description of why no parser can be generated for the field, or
+   * <code>null</code>.
+   */
+  String getError() {
+    return error;
+  }
+
+  /**
+   * @return A description of why generated parsers don't support the field
+   * (although {@link com.munkei.JArgP} does), or <code>null</code>.
+   */
+  String getUnsupported() {
+    return unsupported;
+  }
+
+  /**
+   * @return A Java expression that converts the variable <code>value</code>.
+   */
+  String getConversion() {
+    return conversion;
+  }
+
+  /**
+   * @return Whether the conversion uses the option name, in the variable
+   * <code>name</code> (only characters do, for their messages).
+   */
+  boolean conversionTakesName() {
+    return conversion != null && conversion.contains("character(name, ");
+  }
+
+  /**
+   * @return The separator that values are split at, or <code>null</code>.
+   */
+  String getSeparator() {
+    return ((annotation.separator().isEmpty())
+            ? null
+            : annotation.separator());
+  }
+
+  /**
+   * @return The source type of converted values.
+   */
+  String getValueType() {
+    return valueType.toString();
+  }
+
+  /**
+   * @param negation Whether one of the <code>--no-[...]</code> aliases was
+   * used (switches only).
+   *
+   * @return Java statements that write the variable <code>converted</code>
+   * (or, for switches, <code>true</code>/<code>false</code>) to the variable
+   * <code>subject</code>, given the option name in the variable
+   * <code>name</code>.
+   */
+  String getWriteStatements(boolean negation) {
+    String value = ((bool)
+                    ? ((primitiveBoolean)
+                       ? Boolean.toString(!negation)
+                       : ((negation)
+                          ? "java.lang.Boolean.FALSE"
+                          : "java.lang.Boolean.TRUE"))
+                    : "converted");
+    String fieldName = field.getSimpleName().toString();
+
+    if (setter != null) {
+      return "subject." + setter.getSimpleName() + "("
+        + ((setterTakesName) ? "name, " : "") + value + ");";
+    }
+
+    if (collectionClass != null) {
+      return "if (subject." + fieldName + " == null) {\n"
+        + "  subject." + fieldName + " = new " + collectionClass + "<>();\n"
+        + "}\n"
+        + "subject." + fieldName + ".add(" + value + ");";
+    }
+
+    return "subject." + fieldName + " = " + value + ";";
+  }
+
+  /**
+   * @return Whether values are written through a setter.
+   */
+  boolean hasSetter() {
+    return setter != null;
+  }
+
+  /**
+   * @return Whether the write statements use the option name, in the
+   * variable <code>name</code>, i.e. whether the setter takes it.
+   */
+  boolean writeTakesName() {
+    return setter != null && setterTakesName;
+  }
+
+  private String collectionClass(Types types,
+                                 Elements elements,
+                                 TypeMirror fieldType) {
+    TypeElement element = (TypeElement) types.asElement(fieldType);
+    if (element.getKind() != ElementKind.INTERFACE
+      && !element.getModifiers().contains(Modifier.ABSTRACT)) {
+      return element.getQualifiedName().toString();
+    }
+
+    for (String candidate : COLLECTION_IMPLEMENTATIONS) {
+      TypeMirror implementation = types.erasure(
+        elements.getTypeElement(candidate).asType());
+      if (types.isAssignable(implementation, types.erasure(fieldType))) {
+        return candidate;
+      }
+    }
+
+    error = "No implementation for collection type '" + fieldType + "'";
+    return null;
+  }
+
+  /**
+   * Finds the setter like the runtime parser does: the value parameter may be
+   * of the value type or a {@link String}, with or without a leading name
+   * parameter.
+   */
+  private void findSetter(Types types, Elements elements, TypeElement type) {
+    TypeMirror string = elements.getTypeElement("java.lang.String").asType();
+    TypeMirror[][] signatures = new TypeMirror[][]{
+      { string, valueType },
+      { valueType },
+      { string, string },
+      { string }
+    };
+
+    List<ExecutableElement> methods = ElementFilter.methodsIn(
+      elements.getAllMembers(type));
+    for (TypeMirror[] signature : signatures) {
+      for (ExecutableElement method : methods) {
+        if (method.getSimpleName().contentEquals(annotation.setter())
+          && method.getModifiers().contains(Modifier.PUBLIC)
+          && matches(types, method, signature)) {
+          setter = method;
+          setterTakesName = (signature.length == 2);
+          rawValue = types.isSameType(signature[signature.length - 1], string);
+          return;
+        }
+      }
+    }
+  }
+
+  private static boolean matches(Types types,
+                                 ExecutableElement method,
+                                 TypeMirror[] signature) {
+    List<? extends VariableElement> parameters = method.getParameters();
+    if (parameters.size() != signature.length) {
+      return false;
+    }
+    for (int i = 0; i < signature.length; ++i) {
+      if (!types.isSameType(types.erasure(parameters.get(i).asType()),
+                            types.erasure(signature[i]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads the <code>converter</code> element, which can't be read through
+   * {@link #getAnnotation()}, since it is a class.
+   */
+  private static String converterClass(Element field) {
+    for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+      if (!((TypeElement) mirror.getAnnotationType().asElement())
+        .getQualifiedName().contentEquals(CommandLineOption.class.getName())) {
+        continue;
+      }
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+             : mirror.getElementValues().entrySet()) {
+        if (entry.getKey().getSimpleName().contentEquals("converter")) {
+          String name = entry.getValue().getValue().toString();
+          return ((name.equals("com.munkei.ValueConverter")) ? null : name);
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * @return An expression converting <code>value</code> to the value type,
+   * without reflection, or <code>null</code> if there is none.
+   */
+  private String conversion(Types types, Elements elements) {
+    if (converterClass != null) {
+      return "CONVERTER_" + field.getSimpleName() + ".convert(value)";
+    }
+
+    switch (valueType.getKind()) {
+      case BYTE:
+        return "java.lang.Byte.parseByte(value)";
+      case SHORT:
+        return "java.lang.Short.parseShort(value)";
+      case INT:
+        return "java.lang.Integer.parseInt(value)";
+      case LONG:
+        return "java.lang.Long.parseLong(value)";
+      case FLOAT:
+        return "java.lang.Float.parseFloat(value)";
+      case DOUBLE:
+        return "java.lang.Double.parseDouble(value)";
+      case CHAR:
+        return "character(name, value)";
+      case DECLARED:
+        break;
+      default:
+        return null;
+    }
+
+    TypeElement element = (TypeElement) types.asElement(valueType);
+    String name = element.getQualifiedName().toString();
+    switch (name) {
+      case "java.lang.String":
+        return "value";
+      case "java.lang.Character":
+        return "java.lang.Character.valueOf(character(name, value))";
+      case "java.nio.file.Path":
+        return "java.nio.file.Paths.get(value)";
+      case "java.net.URI":
+        return "java.net.URI.create(value)";
+      case "java.time.Duration":
+        return "java.time.Duration.parse(value)";
+      default:
+        break;
+    }
+
+    if (element.getKind() == ElementKind.ENUM) {
+      return name + ".valueOf(value)";
+    }
+
+    TypeMirror string = elements.getTypeElement("java.lang.String").asType();
+    for (ExecutableElement method : ElementFilter.methodsIn(
+      element.getEnclosedElements())) {
+      if (method.getSimpleName().contentEquals("valueOf")
+        && method.getModifiers().contains(Modifier.PUBLIC)
+        && method.getModifiers().contains(Modifier.STATIC)
+        && method.getParameters().size() == 1
+        && types.isSameType(method.getParameters().get(0).asType(), string)
+        && types.isSameType(types.erasure(method.getReturnType()),
+                            types.erasure(valueType))) {
+        return name + ".valueOf(value)";
+      }
+    }
+
+    if (!element.getModifiers().contains(Modifier.ABSTRACT)) {
+      for (ExecutableElement constructor : ElementFilter.constructorsIn(
+        element.getEnclosedElements())) {
+        if (constructor.getModifiers().contains(Modifier.PUBLIC)
+          && constructor.getParameters().size() == 1
+          && types.isSameType(constructor.getParameters().get(0).asType(),
+                              string)) {
+          return "new " + name + "(value)";
+        }
+      }
+    }
+
+    return null;
+  }
+
+}
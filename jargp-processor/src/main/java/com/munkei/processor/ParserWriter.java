@@ -0,0 +1,780 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei.processor;
+
+import com.munkei.CommandLineOption;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the source of a generated parser.
+ * <p>
+ * The generated parser behaves like {@link com.munkei.JArgP}: long options may
+ * be abbreviated (if unique), short options may be grouped and
+ * <code>--</code> stops the parsing of options. Names are dispatched with
+ * <code>switch</code> statements, and values are converted and set with plain
+ * Java code.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class ParserWriter {
+
+  /**
+   * The width that descriptions in the usage text are wrapped to, that of a
+   * standard terminal.
+   */
+  private static final int WIDTH = 80;
+
+  private static final String INDENT = "    ";
+
+  private final String packageName;
+
+  private final String subjectName;
+
+  private final String parserName;
+
+  private final List<OptionModel> options;
+
+  /**
+   * The option of each name; the first one wins.
+   */
+  private final Map<String, OptionModel> names = new LinkedHashMap<>();
+
+  private final StringBuilder out = new StringBuilder();
+
+  private int indentation;
+
+  /**
+   * @param packageName The package of the subject and the parser.
+   *
+   * @param subjectName The (canonical) name of the subject class.
+   *
+   * @param parserName The simple name of the parser class.
+   *
+   * @param options The options.
+   */
+  ParserWriter(String packageName,
+               String subjectName,
+               String parserName,
+               List<OptionModel> options) {
+    this.packageName = packageName;
+    this.subjectName = subjectName;
+    this.parserName = parserName;
+    this.options = options;
+
+    for (OptionModel option : options) {
+      for (String name : option.getNames()) {
+        if (!names.containsKey(name)) {
+          names.put(name, option);
+        }
+      }
+    }
+  }
+
+  void write(Writer writer)
+    throws IOException {
+    if (!packageName.isEmpty()) {
+      line("package " + packageName + ";");
+      line("");
+    }
+
+    line("/**");
+    line(" * Parser for {@link " + subjectName + "}, generated by JArgP from its");
+    line(" * {@link com.munkei.CommandLineOption} fields.");
+    line(" */");
+    open("public final class " + parserName);
+    line("");
+
+    line("/**");
+    line(" * The usage text, as printed by {@link #printUsage(java.io.PrintStream)}.");
+    line(" */");
+    line("public static final String USAGE = " + literal(usage()) + ";");
+    line("");
+
+    for (OptionModel option : options) {
+      if (option.getConverterClass() != null) {
+        line("private static final " + option.getConverterClass()
+          + " CONVERTER_" + option.getField().getSimpleName() + " = new "
+          + option.getConverterClass() + "();");
+        line("");
+      }
+    }
+
+    writeDefaults();
+    writeParse();
+    writeResolve();
+    writeSetLong();
+    writeShortName();
+    writeTakesValue();
+    writeHelpers();
+
+    open("private " + parserName + "()");
+    close();
+    close();
+
+    writer.write(out.toString());
+  }
+
+  /**
+   * Writes a constant per (non-switch) option with a default value, converted
+   * when the parser is initialized.
+   */
+  private void writeDefaults() {
+    for (OptionModel option : options) {
+      if (!hasDefault(option) || !option.takesValue()) {
+        continue;
+      }
+
+      String constant = "DEFAULT_" + option.getField().getSimpleName();
+      String defaultValue = literal(option.getAnnotation().defaultValue());
+      line("private static final " + defaultType(option) + " " + constant
+        + ";");
+      line("");
+      open("static");
+      open("try");
+      if (option.conversionTakesName()) {
+        line("String name = " + literal(defaultName(option)) + ";");
+      }
+      if (option.getSeparator() == null) {
+        line("String value = " + defaultValue + ";");
+        line(constant + " = " + option.getConversion() + ";");
+      } else {
+        // The elements, converted
+        line(defaultType(option) + " list = new java.util.ArrayList<>();");
+        open("for (String value : split(" + defaultValue + ", "
+          + literal(option.getSeparator()) + "))");
+        line("list.add(" + option.getConversion() + ");");
+        close();
+        line(constant + " = list;");
+      }
+      close("} catch (Exception ex) {");
+      indentation++;
+      line("throw new ExceptionInInitializerError(ex);");
+      close();
+      end();
+    }
+  }
+
+  /**
+   * @return The type of the constant with an option's default value: the
+   * value type, or (with a separator) a list of it.
+   */
+  private static String defaultType(OptionModel option) {
+    return ((option.getSeparator() == null)
+            ? option.getValueType()
+            : "java.util.List<" + option.getValueType() + ">");
+  }
+
+  private void writeParse() {
+    line("/**");
+    line(" * Parses command line arguments and sets the values to the subject.");
+    line(" *");
+    line(" * @param subject The object that has the annotated fields.");
+    line(" *");
+    line(" * @param args The command line arguments.");
+    line(" *");
+    line(" * @return A list of the remaining parameters.");
+    line(" *");
+    line(" * @throws com.munkei.exception.NoSuchOptionException If an option is");
+    line(" * encountered that is not configured.");
+    line(" *");
+    line(" * @throws com.munkei.exception.ArgumentParsingException If something");
+    line(" * goes wrong with the parsing or setting of parameters.");
+    line(" */");
+    open("public static java.util.List<String> parse(" + subjectName
+      + " subject, String[] args)",
+         "  throws com.munkei.exception.NoSuchOptionException,",
+         "         com.munkei.exception.ArgumentParsingException");
+    open("if (subject == null)");
+    line("throw new NullPointerException(\"Subject may not be null\");");
+    close();
+    line("");
+    open("if (args == null)");
+    line("throw new NullPointerException(\"Arguments may not be null\");");
+    close();
+    line("");
+    line("java.util.List<String> remaining = new java.util.ArrayList<>();");
+    line("java.util.BitSet given = "
+      + ((hasDefaults()) ? "new java.util.BitSet()" : "null") + ";");
+    line("int i = 0;");
+    open("while (i < args.length)");
+    line("String arg = args[i++];");
+    line("");
+    open("if (arg.equals(\"--\"))");
+    open("while (i < args.length)");
+    line("remaining.add(args[i++]);");
+    close();
+    line("break;");
+    close();
+    line("");
+    open("if (arg.startsWith(\"--\"))");
+    line("int equals = arg.indexOf('=', 2);");
+    open("if (equals < 0)");
+    line("i = setLong(subject, resolve(arg.substring(2)), null, args, i, given);");
+    close("} else {");
+    indentation++;
+    line("i = setLong(subject,");
+    line("            resolve(arg.substring(2, equals)),");
+    line("            arg.substring(equals + 1),");
+    line("            args,");
+    line("            i,");
+    line("            given);");
+    close();
+    line("continue;");
+    close();
+    line("");
+    line("// The first option that takes a value ends the cluster");
+    open("if (arg.startsWith(\"-\") && arg.length() > 1)");
+    open("for (int c = 1; c < arg.length(); ++c)");
+    line("String name = shortName(arg.charAt(c));");
+    open("if (takesValue(name))");
+    line("i = setLong(subject,");
+    line("            name,");
+    line("            ((c + 1 < arg.length()) ? arg.substring(c + 1) : null),");
+    line("            args,");
+    line("            i,");
+    line("            given);");
+    line("break;");
+    close();
+    line("i = setLong(subject, name, null, args, i, given);");
+    close();
+    line("continue;");
+    close();
+    line("");
+    line("remaining.add(arg);");
+    close();
+    line("");
+    writeApplyDefaults();
+    line("return remaining;");
+    end();
+
+    line("/**");
+    line(" * Prints {@link #USAGE}.");
+    line(" *");
+    line(" * @param output The target for printing.");
+    line(" */");
+    open("public static void printUsage(java.io.PrintStream output)");
+    line("output.print(USAGE);");
+    end();
+  }
+
+  /**
+   * Writes <code>resolve(String)</code>, which maps names and unique
+   * abbreviations of long names to the full names.
+   */
+  private void writeResolve() {
+    // Abbreviation -> full name, or null if ambiguous
+    Map<String, String> abbreviations = new LinkedHashMap<>();
+    Map<String, OptionModel> abbreviationOptions = new LinkedHashMap<>();
+    for (Map.Entry<String, OptionModel> entry : names.entrySet()) {
+      String name = entry.getKey();
+      if (name.length() < 2) {
+        continue;
+      }
+      for (int length = 1; length <= name.length(); ++length) {
+        String prefix = name.substring(0, length);
+        if (names.containsKey(prefix)) {
+          continue;
+        }
+        if (!abbreviations.containsKey(prefix)) {
+          abbreviations.put(prefix, name);
+          abbreviationOptions.put(prefix, entry.getValue());
+        } else if (abbreviations.get(prefix) != null) {
+          String other = abbreviations.get(prefix);
+          if (abbreviationOptions.get(prefix) != entry.getValue()
+            || entry.getValue().isNegation(other)
+               != entry.getValue().isNegation(name)) {
+            abbreviations.put(prefix, null);
+          }
+        }
+      }
+    }
+
+    Map<String, List<String>> labels = new LinkedHashMap<>();
+    for (String name : names.keySet()) {
+      labels.put(name, new ArrayList<String>());
+      labels.get(name).add(name);
+    }
+    for (Map.Entry<String, String> entry : abbreviations.entrySet()) {
+      if (entry.getValue() != null) {
+        labels.get(entry.getValue()).add(entry.getKey());
+      }
+    }
+
+    open("private static String resolve(String name)",
+         "  throws com.munkei.exception.NoSuchOptionException");
+    open("switch (name)");
+    for (Map.Entry<String, List<String>> entry : labels.entrySet()) {
+      for (String label : entry.getValue()) {
+        line("case " + literal(label) + ":");
+      }
+      line("  return " + literal(entry.getKey()) + ";");
+    }
+    line("default:");
+    line("  throw new com.munkei.exception.NoSuchOptionException(name);");
+    close();
+    end();
+  }
+
+  private void writeSetLong() {
+    open("private static int setLong(" + subjectName
+      + " subject, String name, String attached, String[] args, int i,",
+         "                           java.util.BitSet given)",
+         "  throws com.munkei.exception.ArgumentParsingException");
+    open("switch (name)");
+    for (OptionModel option : options) {
+      for (boolean negation : new boolean[]{ false, true }) {
+        List<String> cases = new ArrayList<>();
+        for (String name : option.getNames()) {
+          if (names.get(name) == option && option.isNegation(name) == negation) {
+            cases.add(name);
+          }
+        }
+        if (cases.isEmpty()) {
+          continue;
+        }
+        for (String name : cases) {
+          line("case " + literal(name) + ":");
+        }
+        open("");
+        if (hasDefault(option)) {
+          line("given.set(" + options.indexOf(option) + ");");
+        }
+        writeSet(option, negation);
+        close();
+      }
+    }
+    line("default:");
+    line("  throw new IllegalStateException(name);");
+    close();
+    end();
+  }
+
+  private void writeShortName() {
+    open("private static String shortName(char c)",
+         "  throws com.munkei.exception.NoSuchOptionException");
+    open("switch (c)");
+    for (Map.Entry<String, OptionModel> entry : names.entrySet()) {
+      if (entry.getKey().length() == 1) {
+        line("case " + literal(entry.getKey().charAt(0)) + ":");
+        line("  return " + literal(entry.getKey()) + ";");
+      }
+    }
+    line("default:");
+    line("  throw new com.munkei.exception.NoSuchOptionException("
+      + "Character.toString(c));");
+    close();
+    end();
+  }
+
+  private void writeTakesValue() {
+    List<String> cases = new ArrayList<>();
+    for (Map.Entry<String, OptionModel> entry : names.entrySet()) {
+      if (entry.getValue().takesValue()) {
+        cases.add(entry.getKey());
+      }
+    }
+
+    open("private static boolean takesValue(String name)");
+    if (cases.isEmpty()) {
+      line("return false;");
+      end();
+      return;
+    }
+    open("switch (name)");
+    for (String name : cases) {
+      line("case " + literal(name) + ":");
+    }
+    line("  return true;");
+    line("default:");
+    line("  return false;");
+    close();
+    end();
+  }
+
+  /**
+   * Writes the body of a <code>case</code>, which converts and writes a value
+   * and returns the index of the next argument.
+   */
+  private void writeSet(OptionModel option, boolean negation) {
+    if (!option.takesValue()) {
+      open("if (attached != null)");
+      line("throw new com.munkei.exception.ArgumentParsingException(");
+      line("  \"Option ''{0}'' does not take a value.\", name);");
+      close();
+      writeWrite(option, negation);
+      line("return i;");
+      return;
+    }
+
+    // With a separator, the argument is split, and each element is a value
+    String argument = ((option.getSeparator() == null) ? "value" : "values");
+    line("String " + argument + " = attached;");
+    open("if (" + argument + " == null)");
+    open("if (i >= args.length)");
+    line("throw new com.munkei.exception.ArgumentParsingException(");
+    line("  \"Missing value for option ''{0}''.\", name);");
+    close();
+    line(argument + " = args[i++];");
+    close();
+    if (option.getSeparator() != null) {
+      open("for (String value : splitValue(name, values, "
+        + literal(option.getSeparator()) + "))");
+    }
+    line(option.getValueType() + " converted;");
+    open("try");
+    line("converted = " + option.getConversion() + ";");
+    close("} catch (Exception ex) {");
+    indentation++;
+    line("throw invalidValue(ex, name, value);");
+    close();
+    writeWrite(option, negation);
+    if (option.getSeparator() != null) {
+      close();
+    }
+    line("return i;");
+  }
+
+  /**
+   * Writes the statements that write <code>converted</code> (or, for
+   * switches, <code>true</code> or <code>false</code>) to the subject.
+   */
+  private void writeWrite(OptionModel option, boolean negation) {
+    if (option.hasSetter()) {
+      open("try");
+      lines(option.getWriteStatements(negation));
+      close("} catch (Exception ex) {");
+      indentation++;
+      line("throw setterFailed(ex, " + literal(option.getField().getSimpleName()
+        .toString()) + ");");
+      close();
+    } else {
+      lines(option.getWriteStatements(negation));
+    }
+  }
+
+  /**
+   * Writes the statements that set the default values of the options that
+   * weren't given.
+   */
+  private void writeApplyDefaults() {
+    if (!hasDefaults()) {
+      return;
+    }
+
+    for (OptionModel option : options) {
+      if (!hasDefault(option)) {
+        continue;
+      }
+
+      open("if (!given.get(" + options.indexOf(option) + "))");
+      if (option.writeTakesName()) {
+        line("String name = " + literal(defaultName(option)) + ";");
+      }
+      if (option.getSeparator() != null) {
+        open("for (" + option.getValueType() + " converted : DEFAULT_"
+          + option.getField().getSimpleName() + ")");
+        writeWrite(option, false);
+        close();
+      } else if (option.takesValue()) {
+        line(option.getValueType() + " converted = DEFAULT_"
+          + option.getField().getSimpleName() + ";");
+        writeWrite(option, false);
+      } else {
+        // A switch is "negated" if its default is false
+        writeWrite(option,
+                   !Boolean.parseBoolean(option.getAnnotation().defaultValue()));
+      }
+      close();
+    }
+    line("");
+  }
+
+  private boolean hasSeparators() {
+    for (OptionModel option : options) {
+      if (option.getSeparator() != null) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Writes the helpers that split values at separators (literally), like the
+   * runtime parser: <code>split</code>, and <code>splitValue</code>, which
+   * rejects empty elements.
+   */
+  private void writeSplit() {
+    open("private static java.util.List<String> split(String value, "
+      + "String separator)");
+    line("java.util.List<String> elements = new java.util.ArrayList<>();");
+    line("int start = 0;");
+    line("int end;");
+    open("while ((end = value.indexOf(separator, start)) >= 0)");
+    line("elements.add(value.substring(start, end));");
+    line("start = end + separator.length();");
+    close();
+    line("elements.add(value.substring(start));");
+    line("return elements;");
+    end();
+
+    open("private static java.util.List<String> splitValue(String name,",
+         "                                                String value,",
+         "                                                String separator)",
+         "  throws com.munkei.exception.ArgumentParsingException");
+    line("java.util.List<String> elements = split(value, separator);");
+    open("if (elements.contains(\"\"))");
+    line("throw new com.munkei.exception.ArgumentParsingException(");
+    line("  \"Invalid value ''{0}'' for option ''{1}'', empty element.\",");
+    line("  value,");
+    line("  name);");
+    close();
+    line("return elements;");
+    end();
+  }
+
+  private boolean hasDefaults() {
+    for (OptionModel option : options) {
+      if (hasDefault(option)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static boolean hasDefault(OptionModel option) {
+    return !option.getAnnotation().defaultValue().isEmpty();
+  }
+
+  /**
+   * @return The name that default values are set with: the first name.
+   */
+  private static String defaultName(OptionModel option) {
+    return ((option.getNames().isEmpty())
+            ? option.getField().getSimpleName().toString()
+            : option.getNames().get(0));
+  }
+
+  private void writeHelpers() {
+    if (hasSeparators()) {
+      writeSplit();
+    }
+
+    open("private static char character(String name, String value)",
+         "  throws com.munkei.exception.ArgumentParsingException");
+    open("if (value.length() != 1)");
+    line("throw new com.munkei.exception.ArgumentParsingException(");
+    line("  \"Invalid value ''{0}'' for option ''{1}'', expected a single character.\",");
+    line("  value,");
+    line("  name);");
+    close();
+    line("return value.charAt(0);");
+    end();
+
+    open("private static com.munkei.exception.ArgumentParsingException "
+      + "invalidValue(Exception cause, String name, String value)");
+    open("if (cause instanceof com.munkei.exception.ArgumentParsingException)");
+    line("return (com.munkei.exception.ArgumentParsingException) cause;");
+    close();
+    line("return new com.munkei.exception.ArgumentParsingException(");
+    line("  cause, \"Invalid value ''{0}'' for option ''{1}''.\", value, name);");
+    end();
+
+    open("private static com.munkei.exception.ArgumentParsingException "
+      + "setterFailed(Exception cause, String field)");
+    open("if (cause instanceof com.munkei.exception.ArgumentParsingException)");
+    line("return (com.munkei.exception.ArgumentParsingException) cause;");
+    close();
+    line("return new com.munkei.exception.ArgumentParsingException(");
+    line("  cause, \"Failed to set field ''{0}''.\", field);");
+    end();
+  }
+
+  /**
+   * @return The usage text, as printed by
+   * {@link com.munkei.JArgP#printUsage(java.io.PrintStream)} to streams that
+   * aren't terminals: without ANSI escape sequences, and with descriptions
+   * wrapped to {@link #WIDTH} columns. Since the text is a constant, it can't
+   * adapt to the terminal it's printed to.
+   */
+  private String usage() {
+    StringBuilder usage = new StringBuilder();
+
+    if (!options.isEmpty()) {
+      usage.append("Options").append('\n').append('\n');
+    }
+
+    for (OptionModel option : options) {
+      CommandLineOption annotation = option.getAnnotation();
+      List<String> all = new ArrayList<>(option.getNames());
+      if (!annotation.pattern().isEmpty()) {
+        all.add("/" + annotation.pattern() + "/");
+      }
+
+      for (String name : all) {
+        usage.append("  ")
+          .append(((name.length() == 1) ? "-" : "--") + name);
+        if (option.takesValue()) {
+          usage.append(' ')
+            .append((annotation.placeholder().isEmpty())
+                    ? "VALUE"
+                    : annotation.placeholder());
+        }
+        usage.append('\n');
+      }
+
+      if (!annotation.description().isEmpty()) {
+        usage.append('\n');
+        wrap(usage, annotation.description());
+      }
+
+      if (!annotation.defaultValue().isEmpty()) {
+        usage.append('\n');
+        wrap(usage, "Default: " + annotation.defaultValue());
+      }
+
+      usage.append('\n');
+    }
+
+    return usage.toString();
+  }
+
+  /**
+   * Appends indented text, wrapped at spaces to fit {@link #WIDTH}, like the
+   * runtime usage does.
+   */
+  private static void wrap(StringBuilder usage, String text) {
+    int available = WIDTH - INDENT.length();
+
+    for (String line : text.split("\r?\n", -1)) {
+      usage.append(INDENT);
+      int column = 0;
+      for (String word : line.split(" ")) {
+        if (word.isEmpty()) {
+          continue;
+        }
+        if (column > 0 && column + 1 + word.length() > available) {
+          usage.append('\n').append(INDENT);
+          column = 0;
+        }
+        if (column > 0) {
+          usage.append(' ');
+          ++column;
+        }
+        usage.append(word);
+        column += word.length();
+      }
+      usage.append('\n');
+    }
+  }
+
+
+  /**
+   * Writes a statement (or a declaration, possibly with more lines, e.g.
+   * <code>throws</code> clauses) that opens a block.
+   */
+  private void open(String... statement) {
+    for (int i = 0; i < statement.length - 1; ++i) {
+      line(statement[i]);
+    }
+    String last = statement[statement.length - 1];
+    line(last.isEmpty() ? "{" : last + " {");
+    indentation++;
+  }
+
+  private void close() {
+    close("}");
+  }
+
+  /**
+   * Closes a method.
+   */
+  private void end() {
+    close("}");
+    line("");
+  }
+
+  private void close(String statement) {
+    indentation--;
+    line(statement);
+  }
+
+  private void lines(String statements) {
+    for (String statement : statements.split("\n")) {
+      line(statement);
+    }
+  }
+
+  private void line(String line) {
+    if (!line.isEmpty()) {
+      for (int i = 0; i < indentation; ++i) {
+        out.append("  ");
+      }
+    }
+    out.append(line).append('\n');
+  }
+
+  static String literal(char c) {
+    return "'" + ((c == '\'') ? "\\'" : escape(Character.toString(c))) + "'";
+  }
+
+  static String literal(String string) {
+    return "\"" + escape(string) + "\"";
+  }
+
+  private static String escape(String string) {
+    StringBuilder escaped = new StringBuilder();
+    for (char c : string.toCharArray()) {
+      switch (c) {
+        case '"':
+          escaped.append("\\\"");
+          break;
+        case '\\':
+          escaped.append("\\\\");
+          break;
+        case '\n':
+          escaped.append("\\n");
+          break;
+        case '\r':
+          escaped.append("\\r");
+          break;
+        case '\t':
+          escaped.append("\\t");
+          break;
+        default:
+          if (c < 0x20 || c > 0x7e) {
+            escaped.append(String.format("\\u%04x", (int) c));
+          } else {
+            escaped.append(c);
+          }
+      }
+    }
+    return escaped.toString();
+  }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei.processor;
+
+import com.munkei.CommandLineOption;
+import com.munkei.exception.ArgumentParsingException;
+import com.munkei.exception.NoSuchOptionException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class CommandLineOptionProcessorTest {
+
+  private static final String APP = String.join(
+    "\n",
+    "package sample;",
+    "import com.munkei.CommandLineOption;",
+    "import java.io.File;",
+    "import java.util.List;",
+    "public class App {",
+    "  public enum Mode { FAST, SLOW }",
+    "  @CommandLineOption(names = { \"string\", \"string-alt\" })",
+    "  public String string;",
+    "  @CommandLineOption(names = { \"flag\" }, opposite = true)",
+    "  public Boolean flag;",
+    "  @CommandLineOption public boolean x;",
+    "  @CommandLineOption public boolean y;",
+    "  @CommandLineOption public String o;",
+    "  @CommandLineOption public int count;",
+    "  @CommandLineOption public File file;",
+    "  @CommandLineOption(defaultValue = \"FAST\") public Mode mode;",
+    "  @CommandLineOption(defaultValue = \"9\") public long size;",
+    "  @CommandLineOption(defaultValue = \"true\") public boolean on;",
+    "  @CommandLineOption public List<Integer> number;",
+    "  @CommandLineOption(separator = \",\") public List<Integer> ids;",
+    "  @CommandLineOption(separator = \"::\", defaultValue = \"a::b\")",
+    "  public List<String> tags;",
+    "  @CommandLineOption(setter = \"setLevel\") public Integer level;",
+    "  public String log = \"\";",
+    "  public void setLevel(String name, Integer value) {",
+    "    log += name + \"=\" + value;",
+    "    level = value;",
+    "  }",
+    "}");
+
+  @Test
+  public void testGeneratedParser()
+    throws Exception {
+    Class<?> parser = compile("sample.App", APP, "sample.JArgP_App");
+    Class<?> app = parser.getClassLoader().loadClass("sample.App");
+    Object subject = app.getConstructor().newInstance();
+
+    @SuppressWarnings("unchecked")
+    List<String> remaining = (List<String>) parser
+      .getMethod("parse", app, String[].class)
+      .invoke(null, subject, new String[]{
+        "--str", "value",
+        "remain1",
+        "--no-flag",
+        "-xyoout",
+        "--count=-7",
+        "--file", ".",
+        "--mode", "SLOW",
+        "--number", "1",
+        "--number", "2",
+        "--level", "3",
+        "--ids", "1,5,9",
+        "--ids=2",
+        "--",
+        "--remain2"
+      });
+
+    assertEquals(Arrays.asList("remain1", "--remain2"), remaining);
+    assertEquals("value", app.getField("string").get(subject));
+    assertEquals(Boolean.FALSE, app.getField("flag").get(subject));
+    assertEquals(true, app.getField("x").get(subject));
+    assertEquals(true, app.getField("y").get(subject));
+    assertEquals("out", app.getField("o").get(subject));
+    assertEquals(-7, app.getField("count").get(subject));
+    assertEquals(new File("."), app.getField("file").get(subject));
+    assertEquals("SLOW", app.getField("mode").get(subject).toString());
+    assertEquals(Arrays.asList(1, 2), app.getField("number").get(subject));
+    assertEquals("level=3", app.getField("log").get(subject));
+    assertEquals(Arrays.asList(1, 5, 9, 2), app.getField("ids").get(subject));
+
+    String usage = (String) parser.getField("USAGE").get(null);
+    assertTrue(usage.contains("--no-flag"));
+    assertTrue(usage.contains("string-alt"));
+    // The constant may be printed anywhere, so it has no escape sequences
+    assertFalse(usage.contains("\033"));
+    assertTrue(usage.contains("  --string VALUE\n"));
+  }
+
+  @Test
+  public void testDefaults()
+    throws Exception {
+    Class<?> parser = compile("sample.App", APP, "sample.JArgP_App");
+    Class<?> app = parser.getClassLoader().loadClass("sample.App");
+    Object subject = app.getConstructor().newInstance();
+
+    parser.getMethod("parse", app, String[].class)
+      .invoke(null, subject, new String[]{ "--mode", "SLOW" });
+
+    assertEquals("SLOW", app.getField("mode").get(subject).toString());
+    assertEquals(9L, app.getField("size").get(subject));
+    assertEquals(true, app.getField("on").get(subject));
+    assertEquals(Arrays.asList("a", "b"), app.getField("tags").get(subject));
+  }
+
+  @Test
+  public void testEmptyElement()
+    throws Exception {
+    Class<?> parser = compile("sample.App", APP, "sample.JArgP_App");
+    Class<?> app = parser.getClassLoader().loadClass("sample.App");
+
+    try {
+      parser.getMethod("parse", app, String[].class)
+        .invoke(null,
+                app.getConstructor().newInstance(),
+                new String[]{ "--ids", "1,,9" });
+      fail();
+    } catch (InvocationTargetException ex) {
+      assertTrue(ex.getCause() instanceof ArgumentParsingException);
+    }
+  }
+
+  @Test
+  public void testUnknownOption()
+    throws Exception {
+    Class<?> parser = compile("sample.App", APP, "sample.JArgP_App");
+    Class<?> app = parser.getClassLoader().loadClass("sample.App");
+
+    try {
+      // Ambiguous: "--f" could be "--flag" or "--file"
+      parser.getMethod("parse", app, String[].class)
+        .invoke(null,
+                app.getConstructor().newInstance(),
+                new String[]{ "--f" });
+      fail();
+    } catch (InvocationTargetException ex) {
+      assertTrue(ex.getCause() instanceof NoSuchOptionException);
+    }
+  }
+
+  @Test
+  public void testNonPublicField()
+    throws Exception {
+    // Ignored, like JArgP ignores it
+    Class<?> parser = compile("sample.Hidden", String.join(
+      "\n",
+      "package sample;",
+      "import com.munkei.CommandLineOption;",
+      "public class Hidden {",
+      "  @CommandLineOption public String name;",
+      "  @CommandLineOption String hidden;",
+      "}"), "sample.JArgP_Hidden");
+    Class<?> hidden = parser.getClassLoader().loadClass("sample.Hidden");
+
+    try {
+      parser.getMethod("parse", hidden, String[].class)
+        .invoke(null,
+                hidden.getConstructor().newInstance(),
+                new String[]{ "--hidden", "x" });
+      fail();
+    } catch (InvocationTargetException ex) {
+      assertTrue(ex.getCause() instanceof NoSuchOptionException);
+    }
+  }
+
+  @Test(expected = ClassNotFoundException.class)
+  public void testArrayField()
+    throws Exception {
+    // Compiles (with a warning), but without a parser
+    Class<?> app = compile("sample.Ids", String.join(
+      "\n",
+      "package sample;",
+      "import com.munkei.CommandLineOption;",
+      "public class Ids {",
+      "  @CommandLineOption public String name;",
+      "  @CommandLineOption(separator = \",\") public int[] ids;",
+      "}"), "sample.Ids");
+
+    app.getClassLoader().loadClass("sample.JArgP_Ids");
+  }
+
+  /**
+   * Compiles a source file with the processor, and loads a class.
+   */
+  private static Class<?> compile(String className,
+                                  String source,
+                                  String load)
+    throws IOException, ClassNotFoundException {
+    Path directory = Files.createTempDirectory("jargp-processor");
+    Path file = directory.resolve(className.replace('.', '/') + ".java");
+    Files.createDirectories(file.getParent());
+    Files.write(file, source.getBytes("UTF-8"));
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics
+      = new DiagnosticCollector<>();
+    try (StandardJavaFileManager files = compiler
+      .getStandardFileManager(diagnostics, null, null)) {
+      String classPath = new File(CommandLineOption.class.getProtectionDomain()
+        .getCodeSource().getLocation().getPath()).getPath();
+      JavaCompiler.CompilationTask task = compiler.getTask(
+        null,
+        files,
+        diagnostics,
+        Arrays.asList("-classpath", classPath,
+                      "-d", directory.toString(),
+                      "-s", directory.toString()),
+        null,
+        files.getJavaFileObjects(file.toFile()));
+      task.setProcessors(Arrays.asList(new CommandLineOptionProcessor()));
+
+      boolean success = task.call();
+      assertTrue(diagnostics.getDiagnostics().toString(), success);
+    }
+
+    URLClassLoader loader = new URLClassLoader(
+      new java.net.URL[]{ directory.toUri().toURL() },
+      CommandLineOptionProcessorTest.class.getClassLoader());
+    return loader.loadClass(load);
+  }
+
+}
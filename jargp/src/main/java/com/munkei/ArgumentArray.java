@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over an array of arguments. Unlike other iterators, it lets the
+ * parser look ahead at the arguments that remain, to count the elements of
+ * multiple options before any are set (see
+ * {@link ParseContext#setCounts(int[])}). Other arguments, including those
+ * from argument files, aren't counted.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class ArgumentArray
+  implements Iterator<String> {
+
+  private final String[] args;
+
+  private int position;
+
+  ArgumentArray(String[] args) {
+    this.args = args;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return position < args.length;
+  }
+
+  @Override
+  public String next() {
+    if (position >= args.length) {
+      throw new NoSuchElementException();
+    }
+
+    return args[position++];
+  }
+
+  /**
+   * @return All the arguments, including those already iterated over.
+   */
+  String[] getArgs() {
+    return args;
+  }
+
+  /**
+   * @return The index of the next argument.
+   */
+  int getPosition() {
+    return position;
+  }
+
+}
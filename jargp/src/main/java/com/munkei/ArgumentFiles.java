@@ -0,0 +1,316 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Expands argument files (a.k.a. response files) while iterating over
+ * arguments.
+ * <p>
+ * An argument that starts with the prefix (e.g. <code>@args.txt</code>) is
+ * replaced by the arguments in the file. The file is memory-mapped and split
+ * into arguments one at a time, as they are asked for, so large files are
+ * never read into memory as a whole. The rules are:
+ * <ul>
+ * <li>Arguments are separated by whitespace.</li>
+ * <li>Characters within single quotes are taken literally.</li>
+ * <li>Within double quotes, and outside quotes, a backslash escapes the next
+ * character.</li>
+ * <li>A <code>#</code> at the start of an argument starts a comment that runs
+ * to the end of the line.</li>
+ * <li>Arguments in a file that start with the prefix are expanded too; relative
+ * paths are resolved against the directory of the including file. A file that
+ * (directly or indirectly) includes itself is an error.</li>
+ * <li>An argument that starts with the prefix twice (e.g.
+ * <code>@@name</code>) is not expanded, but passed on with one prefix
+ * removed.</li>
+ * </ul>
+ * Files are read as UTF-8.
+ * <p>
+ * Since {@link Iterator} can't throw checked exceptions, problems are thrown as
+ * {@link Failure}s, which the parse reports (see
+ * {@link ParseContext#hasNext(java.util.Iterator)}).
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class ArgumentFiles
+  implements Iterator<CharSequence> {
+
+  private final Iterator<? extends CharSequence> args;
+
+  private final String prefix;
+
+  private final Deque<Source> sources = new ArrayDeque<>();
+
+  /**
+   * Holds the bytes of the argument being read, shared by all files.
+   */
+  private byte[] token = new byte[64];
+
+  private CharSequence next;
+
+  ArgumentFiles(Iterator<? extends CharSequence> args, String prefix) {
+    this.args = args;
+    this.prefix = prefix;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      next = advance();
+    }
+
+    return next != null;
+  }
+
+  @Override
+  public CharSequence next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    CharSequence result = next;
+    next = null;
+    return result;
+  }
+
+  private CharSequence advance() {
+    while (true) {
+      CharSequence arg;
+      if (sources.isEmpty()) {
+        if (!args.hasNext()) {
+          return null;
+        }
+        arg = args.next();
+      } else {
+        arg = sources.peek().next();
+        if (arg == null) {
+          sources.pop();
+          continue;
+        }
+      }
+
+      if (!startsWith(arg, 0)) {
+        return arg;
+      }
+
+      if (startsWith(arg, prefix.length())) {
+        return arg.subSequence(prefix.length(), arg.length()).toString();
+      }
+
+      open(arg.subSequence(prefix.length(), arg.length()).toString());
+    }
+  }
+
+  private boolean startsWith(CharSequence arg, int offset) {
+    if (arg.length() - offset < prefix.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < prefix.length(); ++i) {
+      if (arg.charAt(offset + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private void open(String name) {
+    Path path;
+    try {
+      path = ((sources.isEmpty())
+              ? Paths.get(name)
+              : sources.peek().path.resolveSibling(name));
+    } catch (InvalidPathException ex) {
+      throw new Failure(ex, "Invalid argument file name ''{0}''.", name);
+    }
+
+    try (FileChannel channel = FileChannel.open(path,
+                                                StandardOpenOption.READ)) {
+      Path real = path.toRealPath();
+      for (Source source : sources) {
+        if (source.real.equals(real)) {
+          throw new Failure(null, "Argument file ''{0}'' includes itself.",
+                            path);
+        }
+      }
+
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new Failure(null, "Argument file ''{0}'' is too large.", path);
+      }
+
+      // The mapping stays valid after the channel is closed
+      sources.push(new Source(path, real, channel.map(
+                              FileChannel.MapMode.READ_ONLY,
+                              0,
+                              channel.size())));
+    } catch (IOException ex) {
+      throw new Failure(ex, "Failed to read argument file ''{0}''.", path);
+    }
+  }
+
+  private void append(int length, byte b) {
+    if (length == token.length) {
+      token = Arrays.copyOf(token, length * 2);
+    }
+    token[length] = b;
+  }
+
+  static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+  }
+
+  /**
+   * A memory-mapped argument file, read one argument at a time.
+   */
+  private final class Source {
+
+    private final Path path;
+
+    private final Path real;
+
+    private final ByteBuffer buffer;
+
+    private int position;
+
+    private Source(Path path, Path real, ByteBuffer buffer) {
+      this.path = path;
+      this.real = real;
+      this.buffer = buffer;
+    }
+
+    /**
+     * @return The next argument, or <code>null</code> at the end of the file.
+     */
+    private String next() {
+      int limit = buffer.limit();
+
+      // Skip whitespace and comments
+      while (position < limit) {
+        byte b = buffer.get(position);
+        if (b == '#') {
+          while (position < limit && buffer.get(position) != '\n') {
+            ++position;
+          }
+        } else if (isWhitespace(b)) {
+          ++position;
+        } else {
+          break;
+        }
+      }
+
+      if (position == limit) {
+        return null;
+      }
+
+      int length = 0;
+      byte quote = 0;
+      while (position < limit) {
+        byte b = buffer.get(position++);
+
+        if (quote == 0 && isWhitespace(b)) {
+          break;
+        }
+
+        if (b == quote) {
+          quote = 0;
+        } else if (quote == 0 && (b == '\'' || b == '"')) {
+          quote = b;
+        } else if (b == '\\' && quote != '\'') {
+          if (position == limit) {
+            throw new Failure(null,
+                              "Unterminated escape in argument file ''{0}''.",
+                              path);
+          }
+          append(length++, buffer.get(position++));
+        } else {
+          append(length++, b);
+        }
+      }
+
+      if (quote != 0) {
+        throw new Failure(null,
+                          "Unterminated quote in argument file ''{0}''.",
+                          path);
+      }
+
+      return new String(token, 0, length, StandardCharsets.UTF_8);
+    }
+
+  }
+
+  /**
+   * Carries a problem out of the iterator, to be turned into an
+   * {@link ArgumentParsingException} by whoever catches it (with a stack trace
+   * or not, see {@link #toException(boolean)}). The iterator skips what it
+   * couldn't read, so it can be used on after a failure.
+   */
+  static final class Failure
+    extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String pattern;
+
+    private final transient Object[] arguments;
+
+    Failure(Throwable cause, String message, Object... arguments) {
+      // Only a carrier, so it has no stack trace of its own
+      super(null, cause, false, false);
+      this.pattern = message;
+      this.arguments = arguments;
+    }
+
+    /**
+     * @param stackTrace Whether to fill in the stack trace.
+     */
+    ArgumentParsingException toException(boolean stackTrace) {
+      return new ArgumentParsingException(getCause(),
+                                          stackTrace,
+                                          pattern,
+                                          arguments);
+    }
+
+    @Override
+    public String getMessage() {
+      return MessageFormat.format(pattern, arguments);
+    }
+
+  }
+
+}
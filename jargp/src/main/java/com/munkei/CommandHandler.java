@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import com.munkei.exception.NoSuchOptionException;
+import java.util.List;
+
+/**
+ * Handles the commands read by a {@link CommandLoop}.
+ *
+ * @param <T> The type of the commands' subjects.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+@FunctionalInterface
+public interface CommandHandler<T> {
+
+  /**
+   * Called for each command that was parsed successfully.
+   *
+   * @param subject The subject, with the command's options set.
+   *
+   * @param parameters The command's parameters (e.g. its name, if the first
+   * parameter names the command).
+   */
+  void handle(T subject, List<String> parameters);
+
+  /**
+   * Called for each command that could not be parsed. By default the problem
+   * is rethrown, which ends the loop.
+   *
+   * @param line The (1-based) number of the line on which the command starts.
+   *
+   * @param problem The {@link NoSuchOptionException} or
+   * {@link ArgumentParsingException}.
+   *
+   * @throws NoSuchOptionException To end the loop.
+   *
+   * @throws ArgumentParsingException To end the loop.
+   */
+  default void failed(int line, Exception problem)
+    throws NoSuchOptionException,
+           ArgumentParsingException {
+    if (problem instanceof NoSuchOptionException) {
+      throw (NoSuchOptionException) problem;
+    }
+    throw (ArgumentParsingException) problem;
+  }
+
+}
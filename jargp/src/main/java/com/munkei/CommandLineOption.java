@@ -40,15 +40,23 @@ import java.lang.annotation.Target;
  * <code>true</code>.
  * <p>
  * If you want the command line option to use the next argument as a value for a
- * field, make the field something other than a {@link Boolean}. Values are
- * converted in {@link Option#convert(java.lang.String, java.lang.Class)}, see
- * its documentation for details.
+ * field, make the field something other than a {@link Boolean} (or
+ * <code>boolean</code>). Values are converted by {@link ValueConverter}s, see
+ * {@link ValueConverters} for details. Fields of primitive types
+ * (<code>int</code>, <code>long</code>, <code>double</code>, etc.) are also
+ * supported; their values are parsed and set without boxing.
+ * <p>
+ * Options whose fields are {@link java.util.Collection}s or arrays (e.g.
+ * <code>List&lt;File&gt;</code>, <code>String[]</code> or <code>int[]</code>)
+ * are <em>multiples</em>: they may be given any number of times, and each
+ * value is added. The values of array fields are collected over the whole
+ * parse, and the field is set once, at the end.
  * <p>
  * To configure the specifics of the command line option and how it is parsed,
  * see each element:
  * <ul>
- * <li>To specify which command line options match a field, see {@link #names()}
- * and {@link #pattern()}.</li>
+ * <li>To specify which command line options match a field, see {@link #names()},
+ * {@link #pattern()} and {@link #shortPattern()}.</li>
  * <li>To specify how the documentation for the field is printed
  * ({@link JArgP#printUsage(java.io.PrintStream)}), see
  * {@link #placeholder()}, {@link #description()}, {@link #defaultValue()} and
@@ -89,27 +97,58 @@ public @interface CommandLineOption {
    * single {@link String} parameter that is the value:
    * <pre>&lt;setter&gt;({@link String} value)</pre>
    * <p>
-   * For multiples ({@link java.util.Collection}s) it is assumed the setter
-   * appends a single value.
+   * Instead of {@link String} the value parameter may be of the type of the
+   * field (for multiples, the type of the elements), in which case the setter
+   * gets the converted value.
+   * <p>
+   * The setter is looked up when the options of the subject's class are first
+   * read, so a missing setter is reported (as an
+   * {@link IllegalArgumentException}) when creating a {@link JArgP}.
+   * <p>
+   * For {@link java.util.Collection}s it is assumed the setter appends a
+   * single value. For arrays the setter gets an array of the elements of each
+   * value (one element, unless there is a {@link #separator()}).
    * <p>
    * One reason to use a setter would be to do some kind of validation of the
    * value. You <em>may</em> throw an exception in the setter if the value is
    * considered invalid. E.g. an {@link ArgumentParsingException}, but any type
-   * can be used, just make sure to catch it wherever you call
-   * {@link JArgP#parse(java.lang.String[])}.
+   * can be used; exceptions other than {@link ArgumentParsingException} are
+   * wrapped in one by {@link JArgP#parse(java.lang.String[])}.
    * <p>
    * If not used, members will be set directly.
    */
   String setter() default "";
 
   /**
-   * For complex names match this pattern. Patterns will be matched
-   * <em>after</em> names and aliases.
+   * A converter to use for the values of this option, instead of the one
+   * registered in {@link ValueConverters} for the type of the field (or, for
+   * multiples, the type of the elements).
+   * <p>
+   * The converter class must have a constructor without parameters. It is
+   * instantiated once, when the options of the subject's class are first read.
+   */
+  @SuppressWarnings("rawtypes")
+  Class<? extends ValueConverter> converter() default ValueConverter.class;
+
+  /**
+   * For complex names match this pattern (a regular expression). It is
+   * matched against the whole name of long options (<code>--[...]</code>), and
+   * only if the name isn't one of the {@link #names()} (or an abbreviation) of
+   * any option.
    * <p>
    * E.g:
    * <code>[0-9]+</code> for options like
-   * <code>-1</code>,
-   * <code>-2</code>, etc.
+   * <code>--1</code>,
+   * <code>--2</code>, etc.
+   * <p>
+   * The name that matched is passed to the {@link #setter()}, if any. If an
+   * option has a pattern but no {@link #names()}, the name of the field is
+   * <em>not</em> used as a name.
+   * <p>
+   * The patterns of all options are compiled once, into a single regular
+   * expression, so the number of options with patterns doesn't affect the
+   * cost of matching. A pattern may contain groups, but not back references
+   * to them by number.
    *
    * @see #shortPattern()
    *
@@ -118,11 +157,11 @@ public @interface CommandLineOption {
   String pattern() default "";
 
   /**
-   * For complex names match this pattern. <code>shortPattern</code>s are matched against short options (<code>--[...]</code>). Patterns will be matched
-   * <em>after</em> names and aliases.
+   * Like {@link #pattern()}, but matched against the character of short
+   * options (<code>-[...]</code>).
    * <p>
    * E.g:
-   * <code>[0-9]+</code> for options like
+   * <code>[0-9]</code> for options like
    * <code>-1</code>,
    * <code>-2</code>, etc.
    *
@@ -166,10 +205,41 @@ public @interface CommandLineOption {
   /**
    * A default value. Will be documented in the usage text. Will be set by
    * {@link JArgP#parse(java.lang.String[])} to any member that has not been set
-   * by the arguments.
+   * by the arguments (after all arguments have been parsed, and through the
+   * {@link #setter()}, if any, with the option's first name).
+   * <p>
+   * The value is converted like values on the command line, but only once,
+   * when the options of the subject's class are first read. An invalid default
+   * value is reported (as an {@link IllegalArgumentException}) when creating a
+   * {@link JArgP}. For switches the value is <code>true</code> or
+   * <code>false</code>, and for multiples it's a single element (or, with a
+   * {@link #separator()}, several).
+   * <p>
+   * Since it's converted only once, every subject gets the <em>same</em>
+   * converted object (arrays excepted; each subject gets a copy). That's fine
+   * for immutable types such as {@link String}, {@link java.io.File} and
+   * enums, but a default of a mutable type (e.g. a {@link java.util.Date}, or
+   * a class of your own) is shared by all subjects, including all the
+   * snapshots of {@link LiveOptions}, and must not be modified.
    *
    * @see JArgP#printUsage(java.io.PrintStream)
    */
   String defaultValue() default "";
 
+  /**
+   * Splits each value into several, e.g. <code>","</code> for options like
+   * <code>--ids 1,5,9</code>.
+   * <p>
+   * <em>Multiples only</em>, i.e. {@link java.util.Collection}s and arrays, to
+   * which each element is added. The elements of arrays of primitives (e.g.
+   * <code>int[]</code>) are parsed straight from the value into the array,
+   * without creating a wrapper object per element. Nor a {@link String}, except
+   * for the elements of <code>float[]</code>s and <code>double</code>s with
+   * more than 15 significant digits.
+   * <p>
+   * The separator is matched literally (it's not a regular expression), and
+   * empty elements are invalid.
+   */
+  String separator() default "";
+
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import com.munkei.exception.NoSuchOptionException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Reads commands, one per line, from a stream, parses them, and hands them
+ * to a {@link CommandHandler}; e.g. for an admin console or a control
+ * protocol:
+ *
+ * <pre>
+ * new CommandLoop&lt;&gt;(new Parser&lt;&gt;(Command.class),
+ *                   Command::new,
+ *                   (command, parameters) -&gt; execute(command, parameters))
+ *   .run(System.in);
+ * </pre>
+ *
+ * Lines are split like argument files are (quotes and backslashes are
+ * honoured, see {@link Parser#withArgumentFilePrefix(java.lang.String)}),
+ * straight from a reused buffer into the parser, and the parser's state is
+ * reused from one command to the next, so the only objects created per
+ * command are the subject, its values and its parameters. An unquoted,
+ * unescaped newline ends a command; a backslash at the end of a line
+ * continues it. Empty lines and lines that start with <code>#</code> are
+ * skipped. Input is read as UTF-8.
+ * <p>
+ * Command loops are immutable, and {@link #run(java.io.InputStream)} may be
+ * called by several threads at once (on different streams), provided the
+ * handler is thread-safe.
+ *
+ * @param <T> The type of the commands' subjects.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class CommandLoop<T> {
+
+  private final Parser<T> parser;
+
+  private final Supplier<? extends T> factory;
+
+  private final CommandHandler<? super T> handler;
+
+  /**
+   * Creates a command loop.
+   *
+   * @param parser The parser of the commands. Its settings (e.g. sources and
+   * argument files) apply to every command.
+   *
+   * @param factory Creates a subject for each command.
+   *
+   * @param handler Handles the parsed commands.
+   *
+   * @throws NullPointerException If any argument is <code>null</code>.
+   */
+  public CommandLoop(Parser<T> parser,
+                     Supplier<? extends T> factory,
+                     CommandHandler<? super T> handler)
+    throws NullPointerException {
+    if (parser == null) {
+      throw new NullPointerException("Parser may not be null");
+    }
+    if (factory == null) {
+      throw new NullPointerException("Factory may not be null");
+    }
+    if (handler == null) {
+      throw new NullPointerException("Handler may not be null");
+    }
+
+    this.parser = parser;
+    this.factory = factory;
+    this.handler = handler;
+  }
+
+  /**
+   * Runs the loop until the end of a stream.
+   *
+   * @param in The stream. It is not closed.
+   *
+   * @return The number of commands that were handled.
+   *
+   * @throws NullPointerException If <code>in</code> is <code>null</code>.
+   *
+   * @throws IOException If the stream can't be read.
+   *
+   * @throws NoSuchOptionException If a command has an unknown option, and
+   * the handler rethrows it.
+   *
+   * @throws ArgumentParsingException If a command is invalid, and the handler
+   * rethrows it.
+   *
+   * @see CommandHandler#failed(int, java.lang.Exception)
+   */
+  public long run(InputStream in)
+    throws NullPointerException,
+           IOException,
+           NoSuchOptionException,
+           ArgumentParsingException {
+    if (in == null) {
+      throw new NullPointerException("Stream may not be null");
+    }
+
+    return run(Channels.newChannel(in));
+  }
+
+  /**
+   * Runs the loop until the end of a channel.
+   *
+   * @param channel The channel. It is not closed.
+   *
+   * @return The number of commands that were handled.
+   *
+   * @throws NullPointerException If <code>channel</code> is
+   * <code>null</code>.
+   *
+   * @throws IOException If the channel can't be read.
+   *
+   * @throws NoSuchOptionException If a command has an unknown option, and
+   * the handler rethrows it.
+   *
+   * @throws ArgumentParsingException If a command is invalid, and the handler
+   * rethrows it.
+   *
+   * @see CommandHandler#failed(int, java.lang.Exception)
+   */
+  public long run(ReadableByteChannel channel)
+    throws NullPointerException,
+           IOException,
+           NoSuchOptionException,
+           ArgumentParsingException {
+    if (channel == null) {
+      throw new NullPointerException("Channel may not be null");
+    }
+
+    CommandReader reader = new CommandReader(channel);
+    ParseContext context = parser.newContext();
+    long count = 0;
+
+    while (reader.nextCommand()) {
+      T subject = factory.get();
+      if (subject == null) {
+        throw new NullPointerException("Factory returned null");
+      }
+
+      List<String> parameters = new ArrayList<>();
+      context.reset(subject);
+      try {
+        parser.parse(context, parser.expand(reader), parameters::add);
+      } catch (NoSuchOptionException | ArgumentParsingException ex) {
+        handler.failed(reader.getLine(), ex);
+        continue;
+      } catch (UncheckedIOException ex) {
+        throw ex.getCause();
+      }
+
+      handler.handle(subject, parameters);
+      ++count;
+    }
+
+    return count;
+  }
+
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits a stream of command lines into arguments, one command at a time.
+ * <p>
+ * The quoting rules are those of argument files (see {@link ArgumentFiles}),
+ * except that an unquoted, unescaped newline ends a command; a backslash at
+ * the end of a line continues the command on the next one. Empty lines, and
+ * lines that start with a <code>#</code>, are skipped.
+ * <p>
+ * The stream is read in blocks into a reused buffer, and arguments are
+ * decoded (as UTF-8) straight from it, so no line is ever held as a
+ * {@link String}.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class CommandReader
+  implements Iterator<CharSequence> {
+
+  private final ReadableByteChannel channel;
+
+  private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+  /**
+   * Holds the bytes of the argument being read.
+   */
+  private byte[] token = new byte[64];
+
+  /**
+   * The number of newlines read.
+   */
+  private int lines;
+
+  /**
+   * The line on which the current command starts.
+   */
+  private int line;
+
+  private boolean endOfCommand = true;
+
+  private String next;
+
+  CommandReader(ReadableByteChannel channel) {
+    this.channel = channel;
+    buffer.flip();
+  }
+
+  /**
+   * Moves to the next command, skipping what is left of the current one.
+   *
+   * @return Whether there is another command.
+   *
+   * @throws IOException If the channel can't be read.
+   */
+  boolean nextCommand()
+    throws IOException {
+    try {
+      while (hasNext()) {
+        next();
+      }
+    } catch (ArgumentFiles.Failure ex) {
+      // The rest of the current command is broken anyway
+      endOfCommand = true;
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+
+    while (true) {
+      int b = peek();
+      if (b == -1) {
+        return false;
+      }
+
+      if (b == '#') {
+        while (b != -1 && b != '\n') {
+          b = read();
+        }
+      } else if (ArgumentFiles.isWhitespace((byte) b)) {
+        read();
+      } else {
+        break;
+      }
+    }
+
+    line = lines + 1;
+    endOfCommand = false;
+    return true;
+  }
+
+  /**
+   * @return The (1-based) number of the line on which the current command
+   * starts.
+   */
+  int getLine() {
+    return line;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null && !endOfCommand) {
+      next = readArgument();
+    }
+    return next != null;
+  }
+
+  @Override
+  public CharSequence next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    CharSequence argument = next;
+    next = null;
+    return argument;
+  }
+
+  /**
+   * @return The next argument of the current command, or <code>null</code>
+   * at its end.
+   */
+  private String readArgument() {
+    while (true) {
+      int b = peek();
+      if (b == -1 || b == '\n') {
+        read();
+        endOfCommand = true;
+        return null;
+      }
+
+      if (b == '#') {
+        // A comment runs to the end of the line, and so ends the command
+        while (b != -1 && b != '\n') {
+          b = read();
+        }
+        endOfCommand = true;
+        return null;
+      }
+
+      if (!ArgumentFiles.isWhitespace((byte) b)) {
+        break;
+      }
+      read();
+    }
+
+    int length = 0;
+    int quote = 0;
+    boolean quoted = false;
+    while (true) {
+      int b = read();
+
+      if (b == -1) {
+        if (quote != 0) {
+          throw new ArgumentFiles.Failure(
+            null,
+            "Unterminated quote in command on line {0}.",
+            String.valueOf(line));
+        }
+        endOfCommand = true;
+        break;
+      }
+
+      if (quote == 0 && b == '\n') {
+        endOfCommand = true;
+        break;
+      }
+
+      if (quote == 0 && ArgumentFiles.isWhitespace((byte) b)) {
+        break;
+      }
+
+      if (b == quote) {
+        quote = 0;
+      } else if (quote == 0 && (b == '\'' || b == '"')) {
+        quote = b;
+        quoted = true;
+      } else if (b == '\\' && quote != '\'') {
+        int escaped = read();
+        if (escaped == -1) {
+          throw new ArgumentFiles.Failure(
+            null,
+            "Unterminated escape in command on line {0}.",
+            String.valueOf(line));
+        }
+        if (escaped == '\r' && peek() == '\n') {
+          // A line continuation with a CRLF line ending
+          escaped = read();
+        }
+        if (escaped != '\n') {
+          append(length++, (byte) escaped);
+        }
+      } else {
+        append(length++, (byte) b);
+      }
+    }
+
+    if (length == 0 && !quoted) {
+      // Only a line continuation, which separates arguments like whitespace
+      return ((endOfCommand) ? null : readArgument());
+    }
+
+    return new String(token, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private void append(int length, byte b) {
+    if (length == token.length) {
+      token = Arrays.copyOf(token, length * 2);
+    }
+    token[length] = b;
+  }
+
+  /**
+   * @return The next byte, without consuming it, or <code>-1</code> at the
+   * end of the stream.
+   */
+  private int peek() {
+    return ((fill()) ? buffer.get(buffer.position()) & 0xff : -1);
+  }
+
+  /**
+   * @return The next byte, or <code>-1</code> at the end of the stream.
+   */
+  private int read() {
+    if (!fill()) {
+      return -1;
+    }
+
+    int b = buffer.get() & 0xff;
+    if (b == '\n') {
+      ++lines;
+    }
+    return b;
+  }
+
+  /**
+   * @return Whether there is anything left to read.
+   */
+  private boolean fill() {
+    if (buffer.hasRemaining()) {
+      return true;
+    }
+
+    try {
+      int count;
+      do {
+        buffer.clear();
+        count = channel.read(buffer);
+        buffer.flip();
+      } while (count == 0);
+      return count > 0;
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of parsing a command line with {@link Subcommands}: the global
+ * options, and the name, options and remaining parameters of the subcommand.
+ *
+ * @param <G> The type of the global options.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class CommandResult<G> {
+
+  private final G global;
+
+  private final String command;
+
+  private final Object subject;
+
+  private final List<String> remaining;
+
+  CommandResult(G global,
+                String command,
+                Object subject,
+                List<String> remaining) {
+    this.global = global;
+    this.command = command;
+    this.subject = subject;
+    this.remaining = ((remaining == null)
+                      ? Collections.<String>emptyList()
+                      : Collections.unmodifiableList(remaining));
+  }
+
+  /**
+   * @return The subject of the global options.
+   */
+  public G getGlobal() {
+    return global;
+  }
+
+  /**
+   * @return The name of the subcommand, or <code>null</code> if none was
+   * given.
+   */
+  public String getCommand() {
+    return command;
+  }
+
+  /**
+   * @return The subject of the subcommand's options, or <code>null</code> if
+   * no subcommand was given.
+   */
+  public Object getSubject() {
+    return subject;
+  }
+
+  /**
+   * Gets the subject of the subcommand's options as a class.
+   *
+   * @param <S> The class.
+   *
+   * @param type The class.
+   *
+   * @return The subject, or <code>null</code> if no subcommand was given.
+   *
+   * @throws ClassCastException If the subject isn't of the class.
+   */
+  public <S> S getSubject(Class<S> type)
+    throws ClassCastException {
+    return type.cast(subject);
+  }
+
+  /**
+   * @return The parameters after the subcommand (i.e. arguments that are not
+   * options or values of options).
+   */
+  public List<String> getRemaining() {
+    return remaining;
+  }
+
+}
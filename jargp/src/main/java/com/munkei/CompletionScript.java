@@ -0,0 +1,363 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Generates shell completion scripts from options.
+ * <p>
+ * The scripts are self-contained, so completing needs no JVM. They complete
+ * the options' names (including the <code>--no-[...]</code> aliases of
+ * {@link CommandLineOption#opposite()} switches) and, for options that take a
+ * value, the value:
+ * <ul>
+ * <li>Names of files, for {@link File} and {@link Path} options, and for
+ * options whose {@link CommandLineOption#placeholder()} contains
+ * <code>FILE</code> or <code>PATH</code>.</li>
+ * <li>Names of directories, if the placeholder contains
+ * <code>DIR</code>.</li>
+ * <li>The constants of enum options.</li>
+ * <li>Nothing, otherwise.</li>
+ * </ul>
+ * Parameters are completed as file names. Options that are only matched by
+ * patterns can't be completed.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class CompletionScript {
+
+  private static final String NEWLINE = "\n";
+
+  private CompletionScript() {
+  }
+
+  /**
+   * Generates a completion script.
+   *
+   * @param options The options.
+   *
+   * @param shell The shell.
+   *
+   * @param command The name of the command that is completed.
+   *
+   * @return The script.
+   *
+   * @throws NullPointerException If <code>shell</code> or
+   * <code>command</code> is <code>null</code>.
+   *
+   * @throws IllegalArgumentException If <code>command</code> is empty, or
+   * contains whitespace or characters that are special to shells.
+   */
+  static String generate(List<Option> options, Shell shell, String command)
+    throws NullPointerException,
+           IllegalArgumentException {
+    if (shell == null) {
+      throw new NullPointerException("Shell may not be null");
+    }
+    if (command == null) {
+      throw new NullPointerException("Command may not be null");
+    }
+    if (!command.matches("[^\\s'\"\\\\$`]+")) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Invalid command name ''{0}''.",
+        command));
+    }
+
+    switch (shell) {
+      case BASH:
+        return bash(options, command);
+      case ZSH:
+        return zsh(options, command);
+      case FISH:
+        return fish(options, command);
+      default:
+        throw new AssertionError(shell);
+    }
+  }
+
+  private static String bash(List<Option> options, String command) {
+    String function = "_jargp_" + command.replaceAll("[^A-Za-z0-9_]", "_");
+    List<String> words = new ArrayList<>();
+
+    StringBuilder out = new StringBuilder();
+    header(out, command);
+    out.append(function).append("() {").append(NEWLINE)
+      .append("  local cur=\"${COMP_WORDS[COMP_CWORD]}\"").append(NEWLINE)
+      .append("  local prev=\"${COMP_WORDS[COMP_CWORD-1]}\"").append(NEWLINE)
+      .append("  case \"$prev\" in").append(NEWLINE);
+
+    for (Option option : options) {
+      List<String> names = new ArrayList<>();
+      for (String name : option.getNames()) {
+        names.add(dashed(name));
+      }
+      words.addAll(names);
+
+      if (!option.takesValue() || names.isEmpty()) {
+        continue;
+      }
+
+      List<String> patterns = new ArrayList<>();
+      for (String name : names) {
+        patterns.add(shellQuote(name));
+      }
+      out.append("    ").append(String.join("|", patterns)).append(")")
+        .append(NEWLINE);
+
+      switch (hint(option)) {
+        case FILE:
+          out.append("      COMPREPLY=( $(compgen -f -- \"$cur\") )");
+          break;
+        case DIRECTORY:
+          out.append("      COMPREPLY=( $(compgen -d -- \"$cur\") )");
+          break;
+        case CHOICES:
+          out.append("      COMPREPLY=( $(compgen -W ")
+            .append(shellQuote(String.join(" ", choices(option))))
+            .append(" -- \"$cur\") )");
+          break;
+        default:
+          out.append("      COMPREPLY=()");
+          break;
+      }
+      out.append(NEWLINE)
+        .append("      return").append(NEWLINE)
+        .append("      ;;").append(NEWLINE);
+    }
+
+    out.append("  esac").append(NEWLINE)
+      .append("  if [[ \"$cur\" == -* ]]; then").append(NEWLINE)
+      .append("    COMPREPLY=( $(compgen -W ")
+      .append(shellQuote(String.join(" ", words)))
+      .append(" -- \"$cur\") )").append(NEWLINE)
+      .append("  else").append(NEWLINE)
+      .append("    COMPREPLY=( $(compgen -f -- \"$cur\") )").append(NEWLINE)
+      .append("  fi").append(NEWLINE)
+      .append("}").append(NEWLINE)
+      .append("complete -o filenames -F ").append(function).append(" ")
+      .append(shellQuote(command)).append(NEWLINE);
+
+    return out.toString();
+  }
+
+  private static String zsh(List<Option> options, String command) {
+    StringBuilder out = new StringBuilder();
+    out.append("#compdef ").append(command).append(NEWLINE);
+    header(out, command);
+    out.append("_arguments -s -S \\").append(NEWLINE);
+
+    for (Option option : options) {
+      String description = zshEscape(description(option));
+      for (String name : option.getNames()) {
+        StringBuilder spec = new StringBuilder();
+        if (option.isMultiple()) {
+          spec.append('*');
+        }
+        spec.append(dashed(name));
+        if (option.takesValue()) {
+          spec.append((name.length() == 1) ? "+" : "=");
+        }
+        spec.append('[').append(description).append(']');
+        if (option.takesValue()) {
+          spec.append(':')
+            .append(zshEscape(placeholder(option)))
+            .append(':')
+            .append(zshAction(option));
+        }
+        out.append("  ").append(shellQuote(spec.toString())).append(" \\")
+          .append(NEWLINE);
+      }
+    }
+
+    out.append("  '*:parameter:_files'").append(NEWLINE);
+    return out.toString();
+  }
+
+  private static String zshAction(Option option) {
+    switch (hint(option)) {
+      case FILE:
+        return "_files";
+      case DIRECTORY:
+        return "_files -/";
+      case CHOICES:
+        return "(" + String.join(" ", choices(option)) + ")";
+      default:
+        return " ";
+    }
+  }
+
+  private static String fish(List<Option> options, String command) {
+    StringBuilder out = new StringBuilder();
+    header(out, command);
+
+    for (Option option : options) {
+      List<String> plain = new ArrayList<>();
+      for (String name : option.getNames()) {
+        if (!option.isNegation(name)) {
+          plain.add(name);
+        }
+      }
+      fishLine(out, command, option, plain, option.takesValue());
+
+      for (String name : option.getNames()) {
+        if (option.isNegation(name)) {
+          List<String> negation = new ArrayList<>();
+          negation.add(name);
+          fishLine(out, command, option, negation, false);
+        }
+      }
+    }
+
+    return out.toString();
+  }
+
+  private static void fishLine(StringBuilder out,
+                               String command,
+                               Option option,
+                               List<String> names,
+                               boolean takesValue) {
+    if (names.isEmpty()) {
+      return;
+    }
+
+    out.append("complete -c ").append(fishQuote(command));
+    for (String name : names) {
+      out.append((name.length() == 1) ? " -s " : " -l ")
+        .append(fishQuote(name));
+    }
+
+    if (takesValue) {
+      switch (hint(option)) {
+        case FILE:
+          out.append(" -r -F");
+          break;
+        case DIRECTORY:
+          out.append(" -x -a '(__fish_complete_directories)'");
+          break;
+        case CHOICES:
+          out.append(" -x -a ")
+            .append(fishQuote(String.join(" ", choices(option))));
+          break;
+        default:
+          out.append(" -x");
+          break;
+      }
+    }
+
+    String description = description(option);
+    if (!description.isEmpty()) {
+      out.append(" -d ").append(fishQuote(description));
+    }
+    out.append(NEWLINE);
+  }
+
+  private static void header(StringBuilder out, String command) {
+    out.append("# Completion for ").append(command)
+      .append(", generated by JArgP").append(NEWLINE).append(NEWLINE);
+  }
+
+  private static String dashed(String name) {
+    return ((name.length() == 1) ? "-" : "--") + name;
+  }
+
+  private static String placeholder(Option option) {
+    String placeholder = option.getCommandLineOption().placeholder();
+    return ((placeholder.isEmpty()) ? "VALUE" : placeholder);
+  }
+
+  /**
+   * @return The option's description, on one line.
+   */
+  private static String description(Option option) {
+    return option.getCommandLineOption().description().trim()
+      .replaceAll("\\s+", " ");
+  }
+
+  private static List<String> choices(Option option) {
+    List<String> choices = new ArrayList<>();
+    for (Object constant : option.getElementClass().getEnumConstants()) {
+      choices.add(((Enum<?>) constant).name());
+    }
+    return choices;
+  }
+
+  private static Hint hint(Option option) {
+    Class<?> type = option.getElementClass();
+    if (type.isEnum()) {
+      return Hint.CHOICES;
+    }
+
+    String placeholder = placeholder(option).toUpperCase(Locale.ROOT);
+    if (placeholder.contains("DIR")) {
+      return Hint.DIRECTORY;
+    }
+    if (type == File.class
+      || Path.class.isAssignableFrom(type)
+      || placeholder.contains("FILE")
+      || placeholder.contains("PATH")) {
+      return Hint.FILE;
+    }
+
+    return Hint.NONE;
+  }
+
+  /**
+   * Quotes a word for bash and zsh.
+   */
+  private static String shellQuote(String word) {
+    return "'" + word.replace("'", "'\\''") + "'";
+  }
+
+  private static String fishQuote(String word) {
+    return "'" + word.replace("\\", "\\\\").replace("'", "\\'") + "'";
+  }
+
+  /**
+   * Escapes the characters that are special in <code>_arguments</code>
+   * specifications.
+   */
+  private static String zshEscape(String text) {
+    return text.replaceAll("([\\\\\\[\\]:])", "\\\\$1");
+  }
+
+  /**
+   * How the value of an option is completed.
+   */
+  private enum Hint {
+
+    NONE,
+
+    FILE,
+
+    DIRECTORY,
+
+    CHOICES
+
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.NoSuchOptionException;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A problem found while parsing in the non-throwing mode (see
+ * {@link Parser#tryParse(java.lang.String[], java.util.function.Supplier)}).
+ * <p>
+ * The message is only formatted when it's asked for.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class Diagnostic {
+
+  /**
+   * The kinds of problems.
+   */
+  public enum Reason {
+
+    /**
+     * An argument looks like an option, but matches no option. The argument
+     * is skipped.
+     */
+    UNKNOWN_OPTION("No such option ''{0}''"),
+    /**
+     * An option that takes a value is the last argument.
+     */
+    MISSING_VALUE("Missing value for option ''{0}''."),
+    /**
+     * An option that doesn't take a value was given one with
+     * <code>=</code>.
+     */
+    UNEXPECTED_VALUE("Option ''{0}'' does not take a value."),
+    /**
+     * A value couldn't be converted, or was rejected by a setter.
+     */
+    INVALID_VALUE("Invalid value ''{1}'' for option ''{0}''."),
+    /**
+     * An argument file couldn't be read. The file (or the rest of it) is
+     * skipped.
+     */
+    ARGUMENT_FILE("Failed to read argument file."),
+    /**
+     * An {@link OptionSource} couldn't be read. It isn't asked again in the
+     * parse, so the next source (or the default value) is used.
+     */
+    SOURCE("Failed to read option source.");
+
+    private final String pattern;
+
+    private Reason(String pattern) {
+      this.pattern = pattern;
+    }
+
+    /**
+     * @return The message pattern; <code>{0}</code> is the option and
+     * <code>{1}</code> the value.
+     */
+    String getPattern() {
+      return pattern;
+    }
+
+  }
+
+  private final Reason reason;
+
+  private final String option;
+
+  private final String value;
+
+  private final int index;
+
+  private final Exception cause;
+
+  private String message;
+
+  Diagnostic(Reason reason,
+             String option,
+             String value,
+             int index,
+             Exception cause) {
+    this.reason = reason;
+    this.option = option;
+    this.value = value;
+    this.index = index;
+    this.cause = cause;
+  }
+
+  public Reason getReason() {
+    return reason;
+  }
+
+  /**
+   * @return The option, as given, or <code>null</code> if the problem isn't
+   * about an option.
+   */
+  public String getOption() {
+    return option;
+  }
+
+  /**
+   * @return The value, or <code>null</code>.
+   */
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * @return The (zero-based) index of the argument with the problem. For
+   * values, this is the index of the option they were given to, and for
+   * values from an {@link OptionSource}, -1.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * @return The exception that caused the problem, if any.
+   */
+  public Exception getCause() {
+    return cause;
+  }
+
+  /**
+   * @return For unknown options, names of options that the option may be a
+   * misspelling of, closest first. Otherwise empty.
+   */
+  public List<String> getSuggestions() {
+    return ((cause instanceof NoSuchOptionException)
+            ? ((NoSuchOptionException) cause).getSuggestions()
+            : Collections.<String>emptyList());
+  }
+
+  /**
+   * @return A description of the problem.
+   */
+  public String getMessage() {
+    if (message == null) {
+      message = ((cause != null && cause.getMessage() != null)
+                 ? cause.getMessage()
+                 : MessageFormat.format(reason.getPattern(), option, value));
+    }
+
+    return message;
+  }
+
+  @Override
+  public String toString() {
+    return index + ": " + getMessage();
+  }
+
+}
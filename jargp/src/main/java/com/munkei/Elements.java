@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.lang.reflect.Array;
+
+/**
+ * The elements of an array option, collected while parsing: a growable array
+ * of the option's component type, so primitives are never boxed.
+ * <p>
+ * When the number of elements is known up front (see
+ * {@link ParseContext#setCounts(int[])}, which only happens for arrays of
+ * arguments) the array is allocated at that size, and {@link #toArray()}
+ * returns it as is. Otherwise it grows as needed.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class Elements {
+
+  private Object array;
+
+  private int size;
+
+  /**
+   * @param component The component type of the array.
+   *
+   * @param capacity The initial capacity.
+   */
+  Elements(Class<?> component, int capacity) {
+    this.array = Array.newInstance(component, capacity);
+  }
+
+  /**
+   * Makes room for more elements.
+   *
+   * @param count The number of elements to make room for.
+   *
+   * @return The array, in which the elements are to be stored from
+   * {@link #size()}, and then committed with {@link #setSize(int)}.
+   */
+  Object reserve(int count) {
+    int length = Array.getLength(array);
+    if (size + count > length) {
+      array = copy(array, size, Math.max(size + count, length * 2));
+    }
+    return array;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void setSize(int size) {
+    this.size = size;
+  }
+
+  /**
+   * @return The elements, in an array of exactly their number.
+   */
+  Object toArray() {
+    return ((size == Array.getLength(array)) ? array : copy(array, size, size));
+  }
+
+  private static Object copy(Object array, int size, int length) {
+    Object copy = Array.newInstance(array.getClass().getComponentType(),
+                                    length);
+    System.arraycopy(array, 0, copy, 0, size);
+    return copy;
+  }
+
+}
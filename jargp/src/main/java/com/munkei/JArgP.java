@@ -0,0 +1,542 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.munkei.exception.ArgumentParsingException;
+import com.munkei.exception.NoSuchOptionException;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class JArgP {
+
+  /**
+   * Make a string (ANSI) bold, if standard output is a terminal that supports
+   * it.
+   *
+   * @param string The string.
+   *
+   * @return The bold <code>string</code>.
+   */
+  protected static String bold(String string) {
+    return Usage.bold(string, Terminal.isAnsi());
+  }
+
+  /**
+   * Make a string (ANSI) underlined, if standard output is a terminal that
+   * supports it.
+   *
+   * @param string The string.
+   *
+   * @return The underlined <code>string</code>.
+   */
+  protected static String underline(String string) {
+    return Usage.underline(string, Terminal.isAnsi());
+  }
+
+  private final Object subject;
+
+  private final Schema schema;
+
+  private Parser<?> parser;
+
+  private String usageHeader;
+
+  private Boolean usageAnsi;
+
+  private int usageWidth;
+
+  /**
+   * Creates a {@link JArgP} object to use for parsing, etc.
+   * <p>
+   * The options of the subject's class are only read (by reflection) the first
+   * time a {@link JArgP} is created for that class, so creating more
+   * {@link JArgP} objects for the same class is cheap.
+   *
+   * @param subject The {@link Object} that has the annotated members.
+   *
+   * @throws NullPointerException
+   *
+   * @throws IllegalArgumentException If an annotated field, or its setter,
+   * can't be found or accessed.
+   */
+  public JArgP(Object subject)
+    throws NullPointerException {
+    if (subject == null) {
+      throw new NullPointerException("Subject may not be null");
+    }
+
+    this.subject = subject;
+    this.schema = Schema.forSubject(subject);
+    this.parser = Parser.forSchema(subject.getClass(), schema);
+  }
+
+  /**
+   * Parses command line arguments and sets the values to the subject.
+   * <p>
+   * The values of array and collection options are counted before any are
+   * parsed, so arrays (and collections that the parse creates) are allocated
+   * at their final size. That takes looking ahead, so it's only done for
+   * arrays of arguments, without argument files (see
+   * {@link #setArgumentFilePrefix(java.lang.String)}); otherwise arrays and
+   * collections grow as needed.
+   *
+   * @param args The command line arguments.
+   *
+   * @return A list of the remaining parameters (i.e. arguments that are not
+   * options of values of options).
+   *
+   * @throws NullPointerException If <code>args</code> is <code>null</code>.
+   *
+   * @throws NoSuchOptionException If an option is encountered that is not
+   * configured.
+   *
+   * @throws ArgumentParsingException If something goes wrong with the parsing
+   * or setting of parameters.
+   */
+  public List<String> parse(String[] args)
+    throws NullPointerException,
+           NoSuchOptionException,
+           ArgumentParsingException {
+    if (args == null) {
+      throw new NullPointerException("Arguments may not be null");
+    }
+
+    return parse(new ArgumentArray(args));
+  }
+
+  /**
+   * Like {@link #parse(java.lang.String[])}, but for any {@link Iterable} of
+   * arguments.
+   *
+   * @param args The command line arguments.
+   *
+   * @return A list of the remaining parameters.
+   *
+   * @throws NullPointerException If <code>args</code> is <code>null</code>.
+   *
+   * @throws NoSuchOptionException If an option is encountered that is not
+   * configured.
+   *
+   * @throws ArgumentParsingException If something goes wrong with the parsing
+   * or setting of parameters.
+   */
+  public List<String> parse(Iterable<? extends CharSequence> args)
+    throws NullPointerException,
+           NoSuchOptionException,
+           ArgumentParsingException {
+    if (args == null) {
+      throw new NullPointerException("Arguments may not be null");
+    }
+
+    return parse(args.iterator());
+  }
+
+  /**
+   * Like {@link #parse(java.lang.String[])}, but consumes the arguments from a
+   * {@link Stream} as they are parsed. The stream is not closed.
+   *
+   * @param args The command line arguments.
+   *
+   * @return A list of the remaining parameters.
+   *
+   * @throws NullPointerException If <code>args</code> is <code>null</code>.
+   *
+   * @throws NoSuchOptionException If an option is encountered that is not
+   * configured.
+   *
+   * @throws ArgumentParsingException If something goes wrong with the parsing
+   * or setting of parameters.
+   */
+  public List<String> parse(Stream<? extends CharSequence> args)
+    throws NullPointerException,
+           NoSuchOptionException,
+           ArgumentParsingException {
+    if (args == null) {
+      throw new NullPointerException("Arguments may not be null");
+    }
+
+    return parse(args.iterator());
+  }
+
+  /**
+   * Like {@link #parse(java.lang.String[])}, but consumes the arguments from an
+   * {@link Iterator} as they are parsed.
+   *
+   * @param args The command line arguments.
+   *
+   * @return A list of the remaining parameters.
+   *
+   * @throws NullPointerException If <code>args</code> is <code>null</code>.
+   *
+   * @throws NoSuchOptionException If an option is encountered that is not
+   * configured.
+   *
+   * @throws ArgumentParsingException If something goes wrong with the parsing
+   * or setting of parameters.
+   *
+   * @see #parse(java.util.Iterator, java.util.function.Consumer)
+   */
+  public List<String> parse(Iterator<? extends CharSequence> args)
+    throws NullPointerException,
+           NoSuchOptionException,
+           ArgumentParsingException {
+    List<String> remaining = new ArrayList<>();
+    parse(args, remaining::add);
+    return remaining;
+  }
+
+  /**
+   * Like {@link #parse(java.util.Iterator, java.util.function.Consumer)}, but
+   * consumes the arguments from a {@link Stream}. The stream is not closed.
+   *
+   * @param args The command line arguments.
+   *
+   * @param positional Receives the remaining parameters.
+   *
+   * @throws NullPointerException If <code>args</code> or
+   * <code>positional</code> is <code>null</code>.
+   *
+   * @throws NoSuchOptionException If an option is encountered that is not
+   * configured.
+   *
+   * @throws ArgumentParsingException If something goes wrong with the parsing
+   * or setting of parameters.
+   */
+  public void parse(Stream<? extends CharSequence> args,
+                    Consumer<? super String> positional)
+    throws NullPointerException,
+           NoSuchOptionException,
+           ArgumentParsingException {
+    if (args == null) {
+      throw new NullPointerException("Arguments may not be null");
+    }
+
+    parse(args.iterator(), positional);
+  }
+
+  /**
+   * Parses command line arguments and sets the values to the subject. The
+   * arguments are consumed one at a time, and the remaining parameters (i.e.
+   * arguments that are not options or values of options) are passed to
+   * <code>positional</code> as they are encountered, instead of being
+   * collected. Since the arguments aren't looked ahead in, arrays and
+   * collections grow as their values are parsed (unlike with
+   * {@link #parse(java.lang.String[])}).
+   *
+   * @param args The command line arguments.
+   *
+   * @param positional Receives the remaining parameters.
+   *
+   * @throws NullPointerException If <code>args</code> or
+   * <code>positional</code> is <code>null</code>.
+   *
+   * @throws NoSuchOptionException If an option is encountered that is not
+   * configured.
+   *
+   * @throws ArgumentParsingException If something goes wrong with the parsing
+   * or setting of parameters.
+   */
+  public void parse(Iterator<? extends CharSequence> args,
+                    Consumer<? super String> positional)
+    throws NullPointerException,
+           NoSuchOptionException,
+           ArgumentParsingException {
+    if (args == null) {
+      throw new NullPointerException("Arguments may not be null");
+    }
+    if (positional == null) {
+      throw new NullPointerException("Positional consumer may not be null");
+    }
+
+    parser.parse(subject, args, positional);
+  }
+
+  /**
+   * Parses command line arguments without throwing on invalid ones. Unknown
+   * options and invalid values are skipped, and all problems are collected
+   * in the result (see {@link ParseResult#getDiagnostics()}).
+   *
+   * @param args The command line arguments.
+   *
+   * @return The subject, the remaining parameters and the problems, if any.
+   *
+   * @throws NullPointerException If <code>args</code> is <code>null</code>.
+   */
+  public ParseResult<Object> tryParse(String[] args)
+    throws NullPointerException {
+    if (args == null) {
+      throw new NullPointerException("Arguments may not be null");
+    }
+
+    List<String> remaining = new ArrayList<>();
+    List<Diagnostic> diagnostics = parser.tryParse(
+      subject,
+      new ArgumentArray(args),
+      remaining::add);
+    return new ParseResult<>(subject, remaining, null, diagnostics);
+  }
+
+  /**
+   * Sets whether the exceptions thrown by the parse methods have stack traces.
+   * Exceptions without them are much cheaper to create.
+   *
+   * @param stackTraces <code>true</code> (the default) or <code>false</code>.
+   */
+  public void setStackTraces(boolean stackTraces) {
+    parser = parser.withStackTraces(stackTraces);
+  }
+
+  /**
+   * Sets a listener to be notified of what the parse methods do.
+   *
+   * @param listener The listener, or <code>null</code> (the default) for
+   * none.
+   *
+   * @see ParseMetrics
+   */
+  public void setParseListener(ParseListener listener) {
+    parser = parser.withListener(listener);
+  }
+
+  /**
+   * Sets the sources of values for options that aren't given on the command
+   * line, e.g. environment variables or a configuration file. Only if no
+   * source has a value for an option is its default value used.
+   *
+   * @param sources The sources, highest precedence first, or none (the
+   * default).
+   *
+   * @throws NullPointerException If <code>sources</code>, or one of them, is
+   * <code>null</code>.
+   *
+   * @see OptionSources
+   */
+  public void setSources(OptionSource... sources)
+    throws NullPointerException {
+    parser = parser.withSources(sources);
+  }
+
+  /**
+   * Enables expansion of argument files. An argument that starts with
+   * <code>prefix</code>, e.g. <code>@args.txt</code>, is replaced by the
+   * arguments in the named file. The file is read lazily as parsing advances,
+   * so it may be very large.
+   * <p>
+   * In the file, arguments are separated by whitespace, and may be quoted with
+   * single quotes (literally) or double quotes. Outside single quotes a
+   * backslash escapes the next character. A <code>#</code> at the start of an
+   * argument comments out the rest of the line. Files may include other files
+   * (relative to the including file's directory), but not themselves. To pass
+   * an argument that starts with the prefix, double it: <code>@@name</code> is
+   * passed as <code>@name</code>.
+   *
+   * @param argumentFilePrefix The prefix, usually <code>"@"</code>, or
+   * <code>null</code> (the default) to disable expansion.
+   *
+   * @throws IllegalArgumentException If <code>argumentFilePrefix</code> is
+   * empty.
+   */
+  public void setArgumentFilePrefix(String argumentFilePrefix)
+    throws IllegalArgumentException {
+    parser = parser.withArgumentFilePrefix(argumentFilePrefix);
+  }
+
+  /**
+   * Sets the text to be shown at the beginning of the usage text.
+   *
+   * @param usageHeader The header text.
+   *
+   * @see #printUsage(java.io.PrintStream)
+   */
+  public void setUsageHeader(String usageHeader) {
+    this.usageHeader = usageHeader;
+  }
+
+  /**
+   * Sets whether the usage text uses ANSI escape sequences (for bold and
+   * underlined text).
+   *
+   * @param usageAnsi <code>true</code> or <code>false</code>, or
+   * <code>null</code> (the default) to use them only when printing to
+   * {@link System#out} or {@link System#err}, and standard output is a
+   * terminal that supports them.
+   */
+  public void setUsageAnsi(Boolean usageAnsi) {
+    this.usageAnsi = usageAnsi;
+  }
+
+  /**
+   * Sets the width that descriptions in the usage text are wrapped to.
+   *
+   * @param usageWidth The width in columns, or <code>0</code> (the default) to
+   * use the width of the terminal (the <code>COLUMNS</code> environment
+   * variable, or 80).
+   */
+  public void setUsageWidth(int usageWidth) {
+    this.usageWidth = Math.max(usageWidth, 0);
+  }
+
+  /**
+   * Gets the usage text, as printed by
+   * {@link #printUsage(java.io.PrintStream)}.
+   * <p>
+   * The options are rendered once per class and settings, and then reused
+   * (also by other {@link JArgP}s for the same class); the header is put in
+   * front of them each time.
+   *
+   * @return The usage text.
+   */
+  public String getUsage() {
+    return usage(false).getText();
+  }
+
+  /**
+   * Prints the usage text, based on the <code>description</code> and
+   * <code>default</code> annotation elements and the usage header.
+   * <p>
+   * The text is rendered once and then cached, and is printed with a single
+   * write.
+   *
+   * @param output The target for printing.
+   *
+   * @throws NullPointerException If <code>output</code> is <code>null</code>.
+   *
+   * @see #setUsageHeader(java.lang.String)
+   *
+   * @see #setUsageAnsi(java.lang.Boolean)
+   *
+   * @see #setUsageWidth(int)
+   *
+   * @see #printUsage()
+   */
+  public void printUsage(PrintStream output)
+    throws NullPointerException {
+    if (output == null) {
+      throw new NullPointerException("Output stream may not be null");
+    }
+
+    usage(output == System.out || output == System.err).print(output);
+  }
+
+  /**
+   * Like {@link #printUsage(java.io.PrintStream)}, but appends the usage text
+   * to any {@link Appendable}, e.g. a {@link StringBuilder} or a
+   * {@link java.io.Writer}.
+   *
+   * @param output The target for printing.
+   *
+   * @throws NullPointerException If <code>output</code> is <code>null</code>.
+   *
+   * @throws IOException If appending fails.
+   */
+  public void printUsage(Appendable output)
+    throws NullPointerException,
+           IOException {
+    if (output == null) {
+      throw new NullPointerException("Output may not be null");
+    }
+
+    usage(false).append(output);
+  }
+
+  /**
+   * Like {@link #printUsage(java.io.PrintStream)}, but writes the usage text
+   * to a channel, encoded in UTF-8.
+   *
+   * @param output The target for printing.
+   *
+   * @throws NullPointerException If <code>output</code> is <code>null</code>.
+   *
+   * @throws IOException If writing fails.
+   */
+  public void printUsage(WritableByteChannel output)
+    throws NullPointerException,
+           IOException {
+    if (output == null) {
+      throw new NullPointerException("Output channel may not be null");
+    }
+
+    usage(false).write(output);
+  }
+
+  /**
+   * Like {@link #printUsage(java.io.PrintStream)}, but prints to {@link System#out}.
+   */
+  public void printUsage() {
+    printUsage(System.out);
+  }
+
+  /**
+   * Generates a completion script for a shell, so that the options of a
+   * command (and their values, where possible) can be completed without
+   * starting a JVM. Typically printed by a hidden option of the command, and
+   * installed along with it.
+   * <p>
+   * Names (including <code>--no-[...]</code> aliases) are completed, and so
+   * are the values of enum options, and of {@link java.io.File} and
+   * {@link java.nio.file.Path} options and options whose placeholders contain
+   * <code>FILE</code>, <code>PATH</code> or <code>DIR</code>.
+   *
+   * @param shell The shell.
+   *
+   * @param command The name of the command, as typed in the shell.
+   *
+   * @return The script.
+   *
+   * @throws NullPointerException If <code>shell</code> or
+   * <code>command</code> is <code>null</code>.
+   *
+   * @throws IllegalArgumentException If <code>command</code> is empty, or
+   * contains whitespace or characters that are special to shells.
+   *
+   * @see Shell
+   */
+  public String getCompletionScript(Shell shell, String command)
+    throws NullPointerException,
+           IllegalArgumentException {
+    return CompletionScript.generate(schema.getOptions(), shell, command);
+  }
+
+  /**
+   * @param console Whether the output is standard output or error, i.e.
+   * whether the terminal's capabilities apply.
+   */
+  private Usage usage(boolean console) {
+    boolean ansi = ((usageAnsi != null)
+                    ? usageAnsi
+                    : console && Terminal.isAnsi());
+    int width = ((usageWidth > 0) ? usageWidth : Terminal.getWidth());
+    return schema.getUsage(usageHeader, ansi, width);
+  }
+
+}
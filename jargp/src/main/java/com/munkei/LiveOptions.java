@@ -0,0 +1,246 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import com.munkei.exception.NoSuchOptionException;
+import java.text.MessageFormat;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Options that can be reloaded while they're being used, e.g. by a daemon
+ * whose arguments are pushed by an operator.
+ * <p>
+ * Each (re)load parses into a new subject, a snapshot, that is never modified
+ * afterwards (and shouldn't be modified by users either). If any option's
+ * value differs from the current snapshot's, the new snapshot replaces it in
+ * one (volatile) write, so readers on other threads see either all of the old
+ * settings or all of the new ones, never a mix, and {@link #get()} takes no
+ * locks. Reloads are serialized.
+ * <p>
+ * After a snapshot is published, the listeners of the options that changed
+ * (and the listeners of all options) are notified, on the reloading thread.
+ * A listener that throws doesn't stop the others from being notified, nor
+ * does it fail the reload (the snapshot has been published already); its
+ * exception is passed to the reloading thread's
+ * {@link Thread.UncaughtExceptionHandler}.
+ *
+ * @param <T> The type of the snapshots.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class LiveOptions<T> {
+
+  private final Parser<T> parser;
+
+  private final Supplier<? extends T> factory;
+
+  private final List<Registration<T>> listeners = new CopyOnWriteArrayList<>();
+
+  private volatile T current;
+
+  /**
+   * Creates live options, and loads the first snapshot.
+   *
+   * @param parser The parser.
+   *
+   * @param factory Creates the snapshots.
+   *
+   * @param args The initial command line arguments.
+   *
+   * @throws NullPointerException If an argument is <code>null</code>, or if
+   * <code>factory</code> returns <code>null</code>.
+   *
+   * @throws NoSuchOptionException If an option is encountered that is not
+   * configured.
+   *
+   * @throws ArgumentParsingException If something goes wrong with the parsing
+   * or setting of parameters.
+   */
+  public LiveOptions(Parser<T> parser,
+                     Supplier<? extends T> factory,
+                     String[] args)
+    throws NullPointerException,
+           NoSuchOptionException,
+           ArgumentParsingException {
+    if (parser == null) {
+      throw new NullPointerException("Parser may not be null");
+    }
+
+    this.parser = parser;
+    this.factory = factory;
+    this.current = parser.parse(args, factory).getSubject();
+  }
+
+  /**
+   * @return The current snapshot.
+   */
+  public T get() {
+    return current;
+  }
+
+  /**
+   * Parses new command line arguments into a new snapshot, and publishes it
+   * if any option changed. If parsing fails, the current snapshot is kept.
+   *
+   * @param args The command line arguments.
+   *
+   * @return The (first) names of the options that changed, in the order of
+   * the fields. Empty if nothing changed, in which case nothing was published
+   * (and no listener notified). Exceptions thrown by listeners are not
+   * thrown from here, see {@link LiveOptions}.
+   *
+   * @throws NullPointerException If <code>args</code> is <code>null</code>.
+   *
+   * @throws NoSuchOptionException If an option is encountered that is not
+   * configured.
+   *
+   * @throws ArgumentParsingException If something goes wrong with the parsing
+   * or setting of parameters.
+   */
+  public synchronized Set<String> reload(String[] args)
+    throws NullPointerException,
+           NoSuchOptionException,
+           ArgumentParsingException {
+    T next = parser.parse(args, factory).getSubject();
+    T previous = current;
+
+    BitSet changed = parser.getSchema().changes(previous, next);
+    if (changed.isEmpty()) {
+      return Collections.emptySet();
+    }
+
+    current = next;
+
+    List<Option> options = parser.getSchema().getOptions();
+    Set<String> names = new LinkedHashSet<>();
+    for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+      names.add(options.get(i).getPrimaryName());
+    }
+    names = Collections.unmodifiableSet(names);
+
+    for (Registration<T> registration : listeners) {
+      if (registration.ordinal < 0 || changed.get(registration.ordinal)) {
+        notify(registration.listener, previous, next, names);
+      }
+    }
+
+    return names;
+  }
+
+  /**
+   * Notifies a listener, reporting what it throws to the thread's uncaught
+   * exception handler.
+   */
+  private static <T> void notify(OptionChangeListener<? super T> listener,
+                                 T previous,
+                                 T next,
+                                 Set<String> names) {
+    try {
+      listener.optionsChanged(previous, next, names);
+    } catch (RuntimeException ex) {
+      Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+    }
+  }
+
+  /**
+   * Adds a listener to be notified whenever any option changes.
+   *
+   * @param listener The listener.
+   *
+   * @throws NullPointerException If <code>listener</code> is
+   * <code>null</code>.
+   */
+  public void addListener(OptionChangeListener<? super T> listener)
+    throws NullPointerException {
+    if (listener == null) {
+      throw new NullPointerException("Listener may not be null");
+    }
+
+    listeners.add(new Registration<>(-1, listener));
+  }
+
+  /**
+   * Adds a listener to be notified whenever an option changes.
+   *
+   * @param option One of the names of the option.
+   *
+   * @param listener The listener.
+   *
+   * @throws NullPointerException If an argument is <code>null</code>.
+   *
+   * @throws IllegalArgumentException If there is no option with the name.
+   */
+  public void addListener(String option,
+                          OptionChangeListener<? super T> listener)
+    throws NullPointerException,
+           IllegalArgumentException {
+    if (option == null) {
+      throw new NullPointerException("Option may not be null");
+    }
+    if (listener == null) {
+      throw new NullPointerException("Listener may not be null");
+    }
+
+    Option found = parser.getSchema().getIndex().get(option);
+    if (found == null) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "No such option ''{0}''.",
+        option));
+    }
+
+    listeners.add(new Registration<>(found.getOrdinal(), listener));
+  }
+
+  /**
+   * Removes a listener (from all options it was added for).
+   *
+   * @param listener The listener.
+   */
+  public void removeListener(OptionChangeListener<? super T> listener) {
+    listeners.removeIf(registration -> registration.listener == listener);
+  }
+
+  /**
+   * A listener, and the ordinal of its option (or -1 for all options).
+   */
+  private static final class Registration<T> {
+
+    private final int ordinal;
+
+    private final OptionChangeListener<? super T> listener;
+
+    private Registration(int ordinal, OptionChangeListener<? super T> listener) {
+      this.ordinal = ordinal;
+      this.listener = listener;
+    }
+
+  }
+
+}
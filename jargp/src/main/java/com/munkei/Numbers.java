@@ -0,0 +1,274 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+/**
+ * Parsing of (decimal) numbers straight from characters, without creating
+ * {@link String}s or wrapper objects.
+ * <p>
+ * The accepted syntax is that of {@link Long#parseLong(java.lang.String)}: an
+ * optional sign followed by one or more digits.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class Numbers {
+
+  /**
+   * The most significant digits that a <code>long</code> mantissa can have
+   * and still be exactly representable as a <code>double</code>.
+   */
+  private static final int MAX_EXACT_DIGITS = 15;
+
+  /**
+   * The greatest power of ten that is exactly representable as a
+   * <code>double</code>.
+   */
+  private static final int MAX_EXACT_POWER = 22;
+
+  private static final double[] POWERS_OF_TEN
+    = new double[MAX_EXACT_POWER + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1.0;
+    for (int i = 1; i <= MAX_EXACT_POWER; ++i) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+    }
+  }
+
+  static long parseLong(CharSequence chars)
+    throws NumberFormatException {
+    return parseLong(chars, 0, chars.length());
+  }
+
+  /**
+   * Parses a <code>long</code> from the characters <code>[start, end)</code>.
+   *
+   * @throws NumberFormatException If the characters are not a number, or the
+   * number is out of range.
+   */
+  static long parseLong(CharSequence chars, int start, int end)
+    throws NumberFormatException {
+    return parse(chars, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  static int parseInt(CharSequence chars)
+    throws NumberFormatException {
+    return parseInt(chars, 0, chars.length());
+  }
+
+  static int parseInt(CharSequence chars, int start, int end)
+    throws NumberFormatException {
+    return (int) parse(chars, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  static short parseShort(CharSequence chars)
+    throws NumberFormatException {
+    return parseShort(chars, 0, chars.length());
+  }
+
+  static short parseShort(CharSequence chars, int start, int end)
+    throws NumberFormatException {
+    return (short) parse(chars, start, end, Short.MIN_VALUE, Short.MAX_VALUE);
+  }
+
+  static byte parseByte(CharSequence chars)
+    throws NumberFormatException {
+    return parseByte(chars, 0, chars.length());
+  }
+
+  static byte parseByte(CharSequence chars, int start, int end)
+    throws NumberFormatException {
+    return (byte) parse(chars, start, end, Byte.MIN_VALUE, Byte.MAX_VALUE);
+  }
+
+  static double parseDouble(CharSequence chars)
+    throws NumberFormatException {
+    // For a String, toString() is free
+    return Double.parseDouble(chars.toString());
+  }
+
+  /**
+   * Parses a <code>double</code> from the characters <code>[start, end)</code>.
+   * Plain decimals (e.g. <code>-12.5</code> or <code>3e-4</code>) with at most
+   * 15 significant digits are parsed without creating a {@link String};
+   * anything else is parsed by {@link Double#parseDouble(java.lang.String)}.
+   *
+   * @throws NumberFormatException If the characters are not a number.
+   */
+  static double parseDouble(CharSequence chars, int start, int end)
+    throws NumberFormatException {
+    int i = start;
+    boolean negative = false;
+    if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+      negative = (chars.charAt(i++) == '-');
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean point = false;
+    boolean any = false;
+    for (; i < end; ++i) {
+      char c = chars.charAt(i);
+      if (c >= '0' && c <= '9') {
+        any = true;
+        if (mantissa == 0 && c == '0') {
+          // Leading zeros are not significant
+        } else if (++digits > MAX_EXACT_DIGITS) {
+          return slowParseDouble(chars, start, end);
+        } else {
+          mantissa = mantissa * 10 + (c - '0');
+        }
+        if (point) {
+          --scale;
+        }
+      } else if (c == '.' && !point) {
+        point = true;
+      } else {
+        break;
+      }
+    }
+
+    if (i < end) {
+      char c = chars.charAt(i);
+      if (!any || (c != 'e' && c != 'E')) {
+        return slowParseDouble(chars, start, end);
+      }
+      try {
+        scale += parse(chars, i + 1, end, -999, 999);
+      } catch (NumberFormatException ex) {
+        return slowParseDouble(chars, start, end);
+      }
+    } else if (!any) {
+      throw invalid(chars, start, end);
+    }
+
+    double value = mantissa;
+    if (mantissa != 0) {
+      if (scale < -MAX_EXACT_POWER || scale > MAX_EXACT_POWER) {
+        return slowParseDouble(chars, start, end);
+      }
+      // Both operands are exact, so the one rounding is correct
+      value = ((scale < 0)
+               ? value / POWERS_OF_TEN[-scale]
+               : value * POWERS_OF_TEN[scale]);
+    }
+
+    return ((negative) ? -value : value);
+  }
+
+  static float parseFloat(CharSequence chars)
+    throws NumberFormatException {
+    return Float.parseFloat(chars.toString());
+  }
+
+  private static double slowParseDouble(CharSequence chars,
+                                        int start,
+                                        int end)
+    throws NumberFormatException {
+    return Double.parseDouble(chars.subSequence(start, end).toString());
+  }
+
+  /**
+   * Accumulates negatively (like {@link Long#parseLong(java.lang.String)}),
+   * so that the most negative value can be parsed without overflow.
+   */
+  private static long parse(CharSequence chars,
+                            int start,
+                            int end,
+                            long min,
+                            long max)
+    throws NumberFormatException {
+    if (start >= end) {
+      throw invalid(chars, start, end);
+    }
+
+    int i = start;
+    boolean negative = false;
+    long limit = -max;
+
+    char first = chars.charAt(i);
+    if (first == '-' || first == '+') {
+      negative = (first == '-');
+      if (negative) {
+        limit = min;
+      }
+      if (++i == end) {
+        throw invalid(chars, start, end);
+      }
+    }
+
+    long multiplicationLimit = limit / 10;
+    long result = 0;
+    for (; i < end; ++i) {
+      int digit = chars.charAt(i) - '0';
+      if (digit < 0 || digit > 9 || result < multiplicationLimit) {
+        throw invalid(chars, start, end);
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        throw invalid(chars, start, end);
+      }
+      result -= digit;
+    }
+
+    return ((negative) ? result : -result);
+  }
+
+  private static NumberFormatException invalid(CharSequence chars,
+                                               int start,
+                                               int end) {
+    return new InvalidNumber(chars.subSequence(start, end));
+  }
+
+  private Numbers() {
+  }
+
+  /**
+   * A {@link NumberFormatException} that is cheap to create: it has no stack
+   * trace, and its message is created when asked for. It's only used as the
+   * cause of an {@link com.munkei.exception.ArgumentParsingException}.
+   */
+  private static final class InvalidNumber
+    extends NumberFormatException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CharSequence input;
+
+    private InvalidNumber(CharSequence input) {
+      this.input = input;
+    }
+
+    @Override
+    public String getMessage() {
+      return "For input string: \"" + input + "\"";
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+
+  }
+
+}
@@ -0,0 +1,1546 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * An option, of a class (from a {@link CommandLineOption} field) or of an
+ * {@link OptionSet}. There is one instance per option, shared by all parses,
+ * so options can be told apart by identity, e.g. by {@link ParseListener}s.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class Option {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /**
+   * Implementations used for collection fields whose type is an interface or
+   * an abstract class. The first one that is assignable to the field's type is
+   * used.
+   */
+  private static final Class<?>[] COLLECTION_IMPLEMENTATIONS = new Class<?>[]{
+    ArrayList.class,
+    LinkedHashSet.class,
+    TreeSet.class,
+    ArrayDeque.class
+  };
+
+  private static final MethodHandle ADD;
+
+  private static final MethodHandle ADD_ALL;
+
+  private static final MethodHandle APPEND;
+
+  private static final MethodHandle COPY;
+
+  private static final MethodHandle PRESIZE;
+
+  private static final MethodHandle HASH_CAPACITY;
+
+  /**
+   * Implementations whose <code>int</code> constructor takes an initial
+   * capacity, which {@link #presize(java.lang.Object, int)} uses.
+   */
+  private static final List<Class<?>> SIZED_COLLECTIONS = Arrays.asList(
+    ArrayList.class,
+    ArrayDeque.class,
+    HashSet.class,
+    LinkedHashSet.class);
+
+  /**
+   * How values are written: as a reference, or as one of the primitive types.
+   */
+  private enum Kind {
+
+    REFERENCE(Object.class),
+    BOOLEAN(boolean.class),
+    BYTE(byte.class),
+    SHORT(short.class),
+    INT(int.class),
+    LONG(long.class),
+    FLOAT(float.class),
+    DOUBLE(double.class),
+    CHAR(char.class);
+
+    static Kind of(Class<?> type) {
+      for (Kind kind : values()) {
+        if (kind.type == type) {
+          return kind;
+        }
+      }
+
+      return REFERENCE;
+    }
+
+    /**
+     * The type of {@link Option#writer}:
+     * <code>(subject, name, value)</code>.
+     */
+    private final MethodType writerType;
+
+    private final Class<?> type;
+
+    private Kind(Class<?> type) {
+      this.type = type;
+      this.writerType = MethodType.methodType(void.class,
+                                              Object.class,
+                                              String.class,
+                                              type);
+    }
+
+  }
+
+  static {
+    try {
+      ADD = LOOKUP.findStatic(Option.class,
+                              "add",
+                              MethodType.methodType(void.class,
+                                                    String.class,
+                                                    MethodHandle.class,
+                                                    MethodHandle.class,
+                                                    MethodHandle.class,
+                                                    Object.class,
+                                                    Object.class));
+      ADD_ALL = LOOKUP.findStatic(Option.class,
+                                  "addAll",
+                                  MethodType.methodType(void.class,
+                                                        MethodHandle.class,
+                                                        Object.class,
+                                                        String.class,
+                                                        Object.class));
+      APPEND = LOOKUP.findStatic(Option.class,
+                                 "append",
+                                 MethodType.methodType(void.class,
+                                                       MethodHandle.class,
+                                                       MethodHandle.class,
+                                                       Object.class,
+                                                       Object.class));
+      COPY = LOOKUP.findStatic(Option.class,
+                               "copy",
+                               MethodType.methodType(Object.class,
+                                                     Object.class));
+      PRESIZE = LOOKUP.findStatic(Option.class,
+                                  "presize",
+                                  MethodType.methodType(void.class,
+                                                        MethodHandle.class,
+                                                        MethodHandle.class,
+                                                        MethodHandle.class,
+                                                        Object.class,
+                                                        int.class));
+      HASH_CAPACITY = LOOKUP.findStatic(Option.class,
+                                        "hashCapacity",
+                                        MethodType.methodType(int.class,
+                                                              int.class));
+    } catch (NoSuchMethodException | IllegalAccessException ex) {
+      throw new ExceptionInInitializerError(ex);
+    }
+  }
+
+  private final Field field;
+
+  private final int ordinal;
+
+  private final CommandLineOption commandLineOption;
+
+  private final boolean bool;
+
+  private final boolean collection;
+
+  private final Kind kind;
+
+  private final Class<?> effectiveClass;
+
+  /**
+   * Whether the field is an array.
+   */
+  private final boolean array;
+
+  /**
+   * The class of the elements of multiples (the component type of arrays),
+   * or else the effective class.
+   */
+  private final Class<?> elementClass;
+
+  private final List<String> names;
+
+  private final List<String> negations;
+
+  /**
+   * Splits values into elements, see {@link CommandLineOption#separator()}.
+   * <code>null</code> if values are single elements.
+   */
+  private final String separator;
+
+  /**
+   * How the elements of an array are parsed: as primitives, or (for arrays
+   * of references, and custom converters) by {@link #converter}.
+   */
+  private final Kind elementKind;
+
+  /**
+   * Whether values are split (or, for arrays, parsed) into elements before
+   * they are written, see {@link #elements(java.lang.String)}.
+   */
+  private final boolean elementWise;
+
+  /**
+   * Whether the elements of all occurrences in a parse are collected in its
+   * context, and written once, at the end of the parse (see
+   * {@link #setElements(com.munkei.ParseContext, com.munkei.Elements)}).
+   * True for array fields without setters.
+   */
+  private final boolean accumulated;
+
+  /**
+   * Makes room in the collection field of a subject for a number of
+   * elements: <code>(subject, count)void</code>. <code>null</code> if the
+   * option isn't a collection field without a setter.
+   */
+  private final MethodHandle presizer;
+
+  /**
+   * Whether {@link #writer} takes the value as is, i.e. a setter with a
+   * {@link String} value parameter.
+   */
+  private final boolean rawValue;
+
+  /**
+   * Writes a value to a subject, see {@link Kind#writerType}. Resolved once,
+   * when the option is created.
+   */
+  private final MethodHandle writer;
+
+  /**
+   * Converts values to the effective class. Resolved once, when the option is
+   * created. <code>null</code> if the option takes no value, or takes it
+   * as is.
+   */
+  private final ValueConverter<?> converter;
+
+  /**
+   * Writes the (converted) default value to a subject:
+   * <code>(subject)void</code>. <code>null</code> if the option has no
+   * default value.
+   */
+  private final MethodHandle defaultWriter;
+
+  /**
+   * @param type The subject class.
+   *
+   * @param field The annotated field.
+   *
+   * @param ordinal The index of the option in its {@link Schema}.
+   *
+   * @throws IllegalArgumentException If the field (or its setter) is not
+   * accessible, if the setter or a converter can't be found, or if the default
+   * value is invalid.
+   */
+  Option(Class<?> type, Field field, int ordinal) {
+    if (type == null) {
+      throw new NullPointerException("Type may not be null");
+    }
+    if (field == null) {
+      throw new NullPointerException("Field may not be null");
+    }
+    if (!field.isAnnotationPresent(CommandLineOption.class)) {
+      throw new IllegalArgumentException(
+        "Field ''{}'' has not got an @Option annotation.");
+    }
+
+    this.field = field;
+    this.ordinal = ordinal;
+    this.commandLineOption = field.getAnnotation(CommandLineOption.class);
+    this.bool = (Boolean.class.isAssignableFrom(field.getType())
+                 || field.getType() == boolean.class);
+    this.collection = Collection.class.isAssignableFrom(field.getType());
+    this.array = field.getType().isArray();
+    this.effectiveClass = ((collection)
+                           ? (Class<?>) ((ParameterizedType) field
+      .getGenericType()).getActualTypeArguments()[0]
+                           : field.getType());
+    this.elementClass = ((array)
+                         ? field.getType().getComponentType()
+                         : effectiveClass);
+    this.negations = createNegations();
+    this.names = createNames();
+    this.separator = ((commandLineOption.separator().isEmpty())
+                      ? null
+                      : commandLineOption.separator());
+    if (separator != null && !collection && !array) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Field ''{0}'' has a separator, but is neither a collection nor an "
+          + "array.",
+        field.getName()));
+    }
+
+    // Like single values, elements of primitive arrays are parsed as such,
+    // unless converted by a custom converter
+    this.elementKind = ((array
+                         && commandLineOption.converter()
+                         == ValueConverter.class)
+                        ? Kind.of(elementClass)
+                        : Kind.REFERENCE);
+
+    String setterName = commandLineOption.setter();
+    Method setter = null;
+    if (setterName != null && !setterName.isEmpty()) {
+      setter = findSetter(type, setterName);
+      Class<?>[] parameters = setter.getParameterTypes();
+      this.rawValue = (parameters[parameters.length - 1] == String.class);
+    } else {
+      this.rawValue = false;
+    }
+
+    // Primitives are written as such, unless converted by a custom converter
+    this.kind = ((rawValue || commandLineOption.converter()
+                  != ValueConverter.class)
+                 ? Kind.REFERENCE
+                 : Kind.of(effectiveClass));
+
+    // Arrays are parsed whole (even for setters that take them), while the
+    // elements of collections are written one at a time
+    this.elementWise = ((array) ? !rawValue : separator != null);
+    this.accumulated = (array && setter == null);
+
+    MethodHandle elementWriter;
+    if (setter != null) {
+      elementWriter = setterWriter(setter);
+    } else if (array) {
+      elementWriter = arrayWriter(field);
+    } else {
+      elementWriter = ((collection)
+                       ? collectionWriter(field)
+                       : fieldWriter(field));
+    }
+    this.writer = ((collection && separator != null)
+                   ? MethodHandles.insertArguments(ADD_ALL, 0, elementWriter)
+                   : elementWriter);
+    this.presizer = ((collection && setter == null)
+                     ? presizer(field)
+                     : null);
+
+    this.converter = ((takesValue()
+                       && !rawValue
+                       && kind == Kind.REFERENCE
+                       && elementKind == Kind.REFERENCE)
+                      ? findConverter()
+                      : null);
+
+    this.defaultWriter = ((commandLineOption.defaultValue().isEmpty())
+                          ? null
+                          : defaultWriter(commandLineOption.defaultValue()));
+  }
+
+  /**
+   * Creates an option defined in code, whose values are written to
+   * {@link OptionValues}.
+   *
+   * @param definition The definition. {@link CommandLineOption#setter()} is
+   * ignored.
+   *
+   * @param type The type of the values (of the elements, if
+   * <code>multiple</code>).
+   *
+   * @param multiple Whether the option may be given more than once, with
+   * its values collected in a list.
+   *
+   * @param converter The converter, or <code>null</code> to use the one
+   * registered in {@link ValueConverters} for <code>type</code>.
+   *
+   * @param ordinal The index of the option in its {@link Schema}.
+   *
+   * @throws IllegalArgumentException If a converter can't be found, or if
+   * the default value is invalid.
+   */
+  Option(CommandLineOption definition,
+         Class<?> type,
+         boolean multiple,
+         ValueConverter<?> converter,
+         int ordinal) {
+    this.field = null;
+    this.ordinal = ordinal;
+    this.commandLineOption = definition;
+    this.bool = (type == Boolean.class || type == boolean.class);
+    this.collection = multiple;
+    this.array = false;
+    this.effectiveClass = type;
+    this.elementClass = type;
+    this.negations = createNegations();
+    this.names = createNames();
+    this.separator = ((definition.separator().isEmpty())
+                      ? null
+                      : definition.separator());
+    if (separator != null && !multiple) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Option ''{0}'' has a separator, but is not multiple.",
+        getLabel()));
+    }
+    this.elementKind = Kind.REFERENCE;
+    this.elementWise = (separator != null);
+    this.accumulated = false;
+    this.presizer = null;
+    this.rawValue = false;
+
+    // Like fields, primitives are stored as such, unless custom converted
+    this.kind = ((converter != null || multiple)
+                 ? Kind.REFERENCE
+                 : Kind.of(type));
+    this.writer = ((elementWise)
+                   ? MethodHandles.insertArguments(ADD_ALL, 0, valuesWriter())
+                   : valuesWriter());
+
+    this.converter = ((!takesValue() || kind != Kind.REFERENCE)
+                      ? null
+                      : ((converter != null) ? converter : findConverter()));
+
+    this.defaultWriter = ((definition.defaultValue().isEmpty())
+                          ? null
+                          : defaultWriter(definition.defaultValue()));
+  }
+
+  /**
+   * Sets the option's value to the subject of a parse.
+   *
+   * @param context The parse, which also decides whether the exceptions get
+   * stack traces.
+   *
+   * @param name The name the option was given as.
+   *
+   * @param value The value, or <code>null</code> if the option doesn't take
+   * one.
+   */
+  void set(ParseContext context,
+           String name,
+           String value)
+    throws ArgumentParsingException {
+    try {
+      write(context, name, value);
+    } catch (ArgumentParsingException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw context.exception(
+        ex,
+        "Failed to set field ''{0}'' to ''{1}''.",
+        getLabel(),
+        value);
+    }
+  }
+
+  /**
+   * Writes the default value to a subject.
+   *
+   * @param subject The subject.
+   *
+   * @see #hasDefault()
+   */
+  void setDefault(Object subject)
+    throws ArgumentParsingException {
+    try {
+      defaultWriter.invokeExact(subject);
+    } catch (ArgumentParsingException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new ArgumentParsingException(
+        ex,
+        "Failed to set field ''{0}'' to ''{1}''.",
+        getLabel(),
+        commandLineOption.defaultValue());
+    }
+  }
+
+  /**
+   * Writes the elements of an array option, collected over a parse, to the
+   * subject of the parse.
+   *
+   * @param context The parse.
+   *
+   * @param elements The elements.
+   */
+  void setElements(ParseContext context, Elements elements)
+    throws ArgumentParsingException {
+    try {
+      writer.invokeExact(context.getSubject(),
+                         getPrimaryName(),
+                         elements.toArray());
+    } catch (ArgumentParsingException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw context.exception(
+        ex,
+        "Failed to set field ''{0}''.",
+        getLabel());
+    }
+  }
+
+  /**
+   * Makes room in the collection field of a subject for a number of values,
+   * creating the collection at that size if the field is <code>null</code>.
+   * Does nothing for other options.
+   *
+   * @param subject The subject.
+   *
+   * @param count The number of values.
+   */
+  void presize(Object subject, int count) {
+    if (presizer == null) {
+      return;
+    }
+
+    try {
+      presizer.invokeExact(subject, count);
+    } catch (Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      // Only an optimization; if the collection can't be created, adding to
+      // it fails the same way, and is reported then
+    }
+  }
+
+  /**
+   * Converts (or parses) a value and writes it to the subject. Values of
+   * primitive options are parsed straight into, and written as, primitives.
+   */
+  private void write(ParseContext context,
+                     String name,
+                     String value)
+    throws Throwable {
+    Object subject = context.getSubject();
+    switch (kind) {
+      case BOOLEAN:
+        writer.invokeExact(subject, name, !isNegation(name));
+        break;
+      case BYTE: {
+        byte b;
+        try {
+          b = Numbers.parseByte(value);
+        } catch (NumberFormatException ex) {
+          throw invalidValue(context, ex, name, value);
+        }
+        writer.invokeExact(subject, name, b);
+        break;
+      }
+      case SHORT: {
+        short s;
+        try {
+          s = Numbers.parseShort(value);
+        } catch (NumberFormatException ex) {
+          throw invalidValue(context, ex, name, value);
+        }
+        writer.invokeExact(subject, name, s);
+        break;
+      }
+      case INT: {
+        int i;
+        try {
+          i = Numbers.parseInt(value);
+        } catch (NumberFormatException ex) {
+          throw invalidValue(context, ex, name, value);
+        }
+        writer.invokeExact(subject, name, i);
+        break;
+      }
+      case LONG: {
+        long l;
+        try {
+          l = Numbers.parseLong(value);
+        } catch (NumberFormatException ex) {
+          throw invalidValue(context, ex, name, value);
+        }
+        writer.invokeExact(subject, name, l);
+        break;
+      }
+      case FLOAT: {
+        float f;
+        try {
+          f = Numbers.parseFloat(value);
+        } catch (NumberFormatException ex) {
+          throw invalidValue(context, ex, name, value);
+        }
+        writer.invokeExact(subject, name, f);
+        break;
+      }
+      case DOUBLE: {
+        double d;
+        try {
+          d = Numbers.parseDouble(value);
+        } catch (NumberFormatException ex) {
+          throw invalidValue(context, ex, name, value);
+        }
+        writer.invokeExact(subject, name, d);
+        break;
+      }
+      case CHAR: {
+        if (value.length() != 1) {
+          throw context.exception(
+            null,
+            "Invalid value ''{0}'' for option ''{1}'', expected a single character.",
+            value,
+            name);
+        }
+        writer.invokeExact(subject, name, value.charAt(0));
+        break;
+      }
+      default: {
+        if (accumulated) {
+          try {
+            addElements(value, context.elements(this));
+          } catch (InvalidElement ex) {
+            throw invalidValue(context, ex.getCause(), name, ex.getMessage());
+          }
+          break;
+        }
+
+        Object object;
+        if (value == null) {
+          object = Boolean.valueOf(!isNegation(name));
+        } else if (elementWise) {
+          try {
+            object = elements(value);
+          } catch (InvalidElement ex) {
+            throw invalidValue(context, ex.getCause(), name, ex.getMessage());
+          }
+        } else if (rawValue) {
+          object = value;
+        } else {
+          object = convert(context, name, value);
+        }
+        writer.invokeExact(subject, name, object);
+      }
+    }
+  }
+
+  private static ArgumentParsingException invalidValue(ParseContext context,
+                                                       Exception cause,
+                                                       String name,
+                                                       String value) {
+    return context.exception(cause,
+                             "Invalid value ''{0}'' for option ''{1}''.",
+                             value,
+                             name);
+  }
+
+  /**
+   * Helper method to convert command line options' values ({@link String}s) to
+   * objects of other classes, using the converter registered in
+   * {@link ValueConverters}, see its documentation for details.
+   *
+   * @param value The value to be converted.
+   *
+   * @param to The class to which to convert.
+   *
+   * @return An object of the specified class converted from the value.
+   *
+   * @throws ArgumentParsingException If there is no converter for the class,
+   * or if the value is invalid.
+   */
+  static Object convert(String value, Class<?> to)
+    throws ArgumentParsingException {
+    if (value == null) {
+      throw new NullPointerException("Value may not be null.");
+    }
+    if (to == null) {
+      throw new NullPointerException("To may not be null.");
+    }
+
+    ValueConverter<?> converter = ValueConverters.forClass(to);
+    if (converter == null) {
+      throw new ArgumentParsingException("Can''t convert from String to ''{0}''.",
+                                         to.getName());
+    }
+
+    try {
+      return converter.convert(value);
+    } catch (RuntimeException ex) {
+      throw new ArgumentParsingException(ex,
+                                         "Can''t convert ''{0}'' to ''{1}''.",
+                                         value,
+                                         to.getName());
+    }
+  }
+
+  /**
+   * Converts a value with the option's converter.
+   */
+  private Object convert(ParseContext context, String name, String value)
+    throws ArgumentParsingException {
+    try {
+      return converter.convert(value);
+    } catch (RuntimeException ex) {
+      throw invalidValue(context, ex, name, value);
+    }
+  }
+
+  int getOrdinal() {
+    return ordinal;
+  }
+
+  boolean hasDefault() {
+    return defaultWriter != null;
+  }
+
+  boolean takesValue() {
+    return !isBoolean();
+  }
+
+  boolean isBoolean() {
+    return bool;
+  }
+
+  CommandLineOption getCommandLineOption() {
+    return commandLineOption;
+  }
+
+  List<String> getNames() {
+    return names;
+  }
+
+  /**
+   * @param name One of the option's names.
+   *
+   * @return Whether <code>name</code> is one of the <code>--no-[...]</code>
+   * aliases.
+   */
+  boolean isNegation(String name) {
+    return negations.contains(name);
+  }
+
+  private List<String> getPlainNames() {
+    List<String> list = new ArrayList<>();
+    list.addAll(Arrays.asList(getCommandLineOption().names()));
+
+    if (list.isEmpty()
+      && getCommandLineOption().pattern().isEmpty()
+      && getCommandLineOption().shortPattern().isEmpty()) {
+      list.add(getField().getName());
+    }
+
+    return list;
+  }
+
+  private List<String> createNegations() {
+    List<String> list = new ArrayList<>();
+
+    // If defined, make "--no-..." version(s)
+    if (isBoolean() && getCommandLineOption().opposite()) {
+      for (String name : getPlainNames()) {
+        list.add("no-" + name);
+      }
+    }
+
+    return Collections.unmodifiableList(list);
+  }
+
+  private List<String> createNames() {
+    List<String> list = getPlainNames();
+    list.addAll(negations);
+
+    return Collections.unmodifiableList(list);
+  }
+
+  /**
+   * @return The annotated field, or <code>null</code> for options defined in
+   * code (see {@link OptionSet}).
+   */
+  public Field getField() {
+    return field;
+  }
+
+  /**
+   * Reads the option's field (or, for options defined in code, its value in
+   * {@link OptionValues}).
+   *
+   * @param subject The subject.
+   *
+   * @return The value.
+   *
+   * @throws IllegalStateException If the field can't be read.
+   */
+  Object getValue(Object subject)
+    throws IllegalStateException {
+    if (field == null) {
+      OptionValues values = (OptionValues) subject;
+      switch (kind) {
+        case BOOLEAN:
+          return values.getBoolean(ordinal);
+        case BYTE:
+          return values.getByte(ordinal);
+        case SHORT:
+          return values.getShort(ordinal);
+        case INT:
+          return values.getInt(ordinal);
+        case LONG:
+          return values.getLong(ordinal);
+        case FLOAT:
+          return values.getFloat(ordinal);
+        case DOUBLE:
+          return values.getDouble(ordinal);
+        case CHAR:
+          return values.getChar(ordinal);
+        default:
+          return values.getObject(ordinal);
+      }
+    }
+
+    try {
+      return accessible(field).get(subject);
+    } catch (IllegalAccessException ex) {
+      throw new IllegalStateException(MessageFormat.format(
+        "Could not read field ''{0}''.",
+        field.getName()), ex);
+    }
+  }
+
+  boolean isCollection() {
+    return collection;
+  }
+
+  /**
+   * @return Whether the option takes multiple values, i.e. whether its field
+   * is a collection or an array.
+   */
+  boolean isMultiple() {
+    return collection || array;
+  }
+
+  /**
+   * @return Whether the option's values are allocated at their final size,
+   * if they are counted before the parse (see
+   * {@link ParseContext#setCounts(int[])}): arrays without setters, and
+   * collections (without setters) that are created by the parse.
+   */
+  boolean isCounted() {
+    return accumulated || presizer != null;
+  }
+
+  Class<?> getEffectiveClass() {
+    return effectiveClass;
+  }
+
+  /**
+   * @return The class of the elements of multiples (for arrays, the component
+   * type), or else the effective class.
+   */
+  Class<?> getElementClass() {
+    return elementClass;
+  }
+
+  /**
+   * Finds the converter for the option, either the one specified by
+   * {@link CommandLineOption#converter()} or the one registered in
+   * {@link ValueConverters} for the element class.
+   */
+  private ValueConverter<?> findConverter() {
+    Class<?> type = commandLineOption.converter();
+    if (type != ValueConverter.class) {
+      try {
+        return (ValueConverter<?>) accessible(type.getDeclaredConstructor())
+          .newInstance();
+      } catch (ReflectiveOperationException ex) {
+        throw new IllegalArgumentException(MessageFormat.format(
+          "Could not create converter ''{0}'' for field ''{1}''.",
+          type.getName(),
+          getLabel()), ex);
+      }
+    }
+
+    ValueConverter<?> found = ValueConverters.forClass(getElementClass());
+    if (found == null) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Can''t convert from String to ''{0}'' for field ''{1}''.",
+        getElementClass().getName(),
+        getLabel()));
+    }
+
+    return found;
+  }
+
+  /**
+   * Converts the default value, once, and binds it (and the option's first
+   * name) to the writer.
+   *
+   * @throws IllegalArgumentException If the default value is invalid.
+   */
+  private MethodHandle defaultWriter(String value) {
+    Object converted;
+    try {
+      converted = convertSetting(value);
+    } catch (ArgumentParsingException | RuntimeException ex) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Invalid default value ''{0}'' for field ''{1}''.",
+        value,
+        getLabel()), ex);
+    }
+
+    MethodHandle handle = MethodHandles.insertArguments(writer,
+                                                        1,
+                                                        getPrimaryName());
+    if (array && !rawValue) {
+      // Each subject gets its own copy of the array
+      handle = MethodHandles.filterArguments(handle, 1, COPY);
+    }
+
+    return MethodHandles.insertArguments(handle, 1, converted);
+  }
+
+  /**
+   * Sets a value from an {@link OptionSource} to the subject of a parse. Like
+   * default values, values of switches are <code>true</code> or
+   * <code>false</code>, and values of multiple options are single elements.
+   *
+   * @param context The parse.
+   *
+   * @param value The value.
+   */
+  void setSetting(ParseContext context, String value)
+    throws ArgumentParsingException {
+    Object converted;
+    try {
+      converted = convertSetting(value);
+    } catch (ArgumentParsingException | RuntimeException ex) {
+      throw invalidValue(context, ex, getPrimaryName(), value);
+    }
+
+    try {
+      writer.invoke(context.getSubject(), getPrimaryName(), converted);
+    } catch (ArgumentParsingException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw context.exception(
+        ex,
+        "Failed to set field ''{0}'' to ''{1}''.",
+        getLabel(),
+        value);
+    }
+  }
+
+  /**
+   * @return The option's first name, or (if it has none) the name of its field
+   * or its pattern.
+   */
+  public String getPrimaryName() {
+    return ((names.isEmpty()) ? getLabel() : names.get(0));
+  }
+
+  /**
+   * @return The name of the option's field, or (for options defined with
+   * {@link OptionSet.Builder}) its first name or pattern. Used in messages.
+   */
+  String getLabel() {
+    if (field != null) {
+      return field.getName();
+    }
+
+    return ((names.isEmpty())
+            ? ((commandLineOption.pattern().isEmpty())
+               ? commandLineOption.shortPattern()
+               : commandLineOption.pattern())
+            : names.get(0));
+  }
+
+  /**
+   * Converts a setting, i.e. a default value or a value from an
+   * {@link OptionSource}, to the type that the writer takes.
+   */
+  private Object convertSetting(String value)
+    throws ArgumentParsingException {
+    switch (kind) {
+      case BOOLEAN:
+        return parseBoolean(value);
+      case BYTE:
+        return Numbers.parseByte(value);
+      case SHORT:
+        return Numbers.parseShort(value);
+      case INT:
+        return Numbers.parseInt(value);
+      case LONG:
+        return Numbers.parseLong(value);
+      case FLOAT:
+        return Numbers.parseFloat(value);
+      case DOUBLE:
+        return Numbers.parseDouble(value);
+      case CHAR:
+        if (value.length() != 1) {
+          throw new IllegalArgumentException("Expected a single character");
+        }
+        return value.charAt(0);
+      default:
+        if (isBoolean()) {
+          return parseBoolean(value);
+        } else if (elementWise) {
+          return elements(value);
+        } else if (rawValue) {
+          return value;
+        } else {
+          return converter.convert(value);
+        }
+    }
+  }
+
+  private static Boolean parseBoolean(String value) {
+    return parseBoolean(value, 0, value.length());
+  }
+
+  private static boolean parseBoolean(String value, int start, int end) {
+    int length = end - start;
+    if (length == 4 && value.regionMatches(true, start, "true", 0, 4)) {
+      return true;
+    }
+    if (length == 5 && value.regionMatches(true, start, "false", 0, 5)) {
+      return false;
+    }
+
+    throw new IllegalArgumentException("Expected true or false");
+  }
+
+  /**
+   * Splits a value at the separator (if any) into a new array.
+   *
+   * @return An array of the element class (for arrays), or (for collections)
+   * an <code>Object[]</code> of the elements.
+   *
+   * @throws InvalidElement If an element is invalid.
+   *
+   * @see #addElements(java.lang.String, com.munkei.Elements)
+   */
+  private Object elements(String value) {
+    Elements elements = new Elements((array) ? elementClass : Object.class,
+                                     countElements(value, 0, value.length()));
+    addElements(value, elements);
+    return elements.toArray();
+  }
+
+  /**
+   * Splits a value at the separator (if any), and adds the elements. The
+   * elements of primitive arrays (but <code>float[]</code>) are parsed straight
+   * from the value, mostly without creating substrings; other elements are
+   * converted (unless the option takes them as is). Nothing is added unless all
+   * the elements are valid.
+   *
+   * @throws InvalidElement If an element is invalid.
+   */
+  private void addElements(String value, Elements target) {
+    int count = countElements(value, 0, value.length());
+    Object elements = target.reserve(count);
+    int offset = target.size();
+    int step = ((separator == null) ? 0 : separator.length());
+
+    int start = 0;
+    int end = 0;
+    try {
+      for (int i = offset; i < offset + count; ++i) {
+        end = elementEnd(value, start);
+        switch (elementKind) {
+          case BOOLEAN:
+            ((boolean[]) elements)[i] = parseBoolean(value, start, end);
+            break;
+          case BYTE:
+            ((byte[]) elements)[i] = Numbers.parseByte(value, start, end);
+            break;
+          case SHORT:
+            ((short[]) elements)[i] = Numbers.parseShort(value, start, end);
+            break;
+          case INT:
+            ((int[]) elements)[i] = Numbers.parseInt(value, start, end);
+            break;
+          case LONG:
+            ((long[]) elements)[i] = Numbers.parseLong(value, start, end);
+            break;
+          case FLOAT:
+            ((float[]) elements)[i] = Numbers.parseFloat(
+              value.substring(start, end));
+            break;
+          case DOUBLE:
+            ((double[]) elements)[i] = Numbers.parseDouble(value, start, end);
+            break;
+          case CHAR:
+            if (end - start != 1) {
+              throw new IllegalArgumentException(
+                "Expected a single character");
+            }
+            ((char[]) elements)[i] = value.charAt(start);
+            break;
+          default: {
+            if (start == end && separator != null) {
+              throw new IllegalArgumentException("Empty element");
+            }
+            String element = ((count == 1)
+                              ? value
+                              : value.substring(start, end));
+            Object converted = ((rawValue)
+                                ? element
+                                : converter.convert(element));
+            if (elements instanceof Object[]) {
+              ((Object[]) elements)[i] = converted;
+            } else {
+              // A primitive array with a custom converter
+              Array.set(elements, i, converted);
+            }
+          }
+        }
+        start = end + step;
+      }
+    } catch (RuntimeException | ArgumentParsingException ex) {
+      throw new InvalidElement(value.substring(start, end), ex);
+    }
+
+    target.setSize(offset + count);
+  }
+
+  /**
+   * Counts the elements of a value, without splitting it.
+   *
+   * @return One more than the number of separators in the value, i.e. one if
+   * the option has no separator.
+   */
+  int countElements(CharSequence chars, int start, int end) {
+    if (separator == null) {
+      return 1;
+    }
+
+    int count = 1;
+    int length = separator.length();
+    for (int i = start; i <= end - length; ++i) {
+      int matched = 0;
+      while (matched < length
+        && chars.charAt(i + matched) == separator.charAt(matched)) {
+        ++matched;
+      }
+      if (matched == length) {
+        ++count;
+        i += length - 1;
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * @return The end of the element that starts at <code>start</code>.
+   */
+  private int elementEnd(String value, int start) {
+    if (separator == null) {
+      return value.length();
+    }
+
+    int end = value.indexOf(separator, start);
+    return ((end < 0) ? value.length() : end);
+  }
+
+  /**
+   * Finds a setter, see {@link CommandLineOption#setter()}. The value
+   * parameter may be either of the effective class (see
+   * {@link #getEffectiveClass()}), in which case the setter gets the converted
+   * value, or a {@link String}, in which case it gets the value as is.
+   */
+  private Method findSetter(Class<?> type, String setterName) {
+    Class<?>[][] signatures = new Class<?>[][]{
+      { String.class, getEffectiveClass() },
+      { getEffectiveClass() },
+      { String.class, String.class },
+      { String.class }
+    };
+
+    Method[] methods = type.getMethods();
+    for (Class<?>[] signature : signatures) {
+      for (Method method : methods) {
+        if (method.getName().equals(setterName)
+          && Arrays.equals(method.getParameterTypes(), signature)) {
+          return method;
+        }
+      }
+    }
+
+    throw new IllegalArgumentException(MessageFormat.format(
+      "Could not find setter ''{0}(java.lang.String, {1})'' for field ''{2}''.",
+      setterName,
+      getEffectiveClass().getName(),
+      getField().getName()));
+  }
+
+  /**
+   * @return A handle of type {@link Kind#writerType} that invokes
+   * <code>setter</code>.
+   */
+  private MethodHandle setterWriter(Method setter) {
+    MethodHandle handle;
+    try {
+      handle = LOOKUP.unreflect(accessible(setter));
+    } catch (IllegalAccessException ex) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Cannot access setter ''{0}'' for field ''{1}''.",
+        setter.getName(),
+        getField().getName()), ex);
+    }
+
+    if (setter.getParameterTypes().length == 1) {
+      handle = MethodHandles.dropArguments(handle, 1, String.class);
+    }
+
+    return handle.asType(kind.writerType);
+  }
+
+  /**
+   * @return A handle of type {@link Kind#writerType} that sets
+   * <code>field</code>.
+   */
+  private MethodHandle fieldWriter(Field field) {
+    try {
+      return MethodHandles.dropArguments(
+        LOOKUP.unreflectSetter(accessible(field)),
+        1,
+        String.class).asType(kind.writerType);
+    } catch (IllegalAccessException ex) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Cannot access field ''{0}''.",
+        field.getName()), ex);
+    }
+  }
+
+  /**
+   * @return A handle of type <code>(Object, String, Object)void</code> that
+   * adds a value to the collection in <code>field</code>, creating the collection if necessary.
+   */
+  private static MethodHandle collectionWriter(Field field) {
+    try {
+      MethodHandle getter = LOOKUP.unreflectGetter(accessible(field))
+        .asType(MethodType.methodType(Object.class, Object.class));
+      MethodHandle setter = LOOKUP.unreflectSetter(field)
+        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+      return MethodHandles.dropArguments(
+        MethodHandles.insertArguments(ADD,
+                                      0,
+                                      field.getName(),
+                                      getter,
+                                      setter,
+                                      collectionConstructor(field.getType())),
+        1,
+        String.class);
+    } catch (IllegalAccessException ex) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Cannot access field ''{0}''.",
+        field.getName()), ex);
+    }
+  }
+
+  /**
+   * @return A handle of type <code>(Object, String, Object)void</code> that
+   * appends an array to the array in <code>field</code>.
+   */
+  private static MethodHandle arrayWriter(Field field) {
+    try {
+      MethodHandle getter = LOOKUP.unreflectGetter(accessible(field))
+        .asType(MethodType.methodType(Object.class, Object.class));
+      MethodHandle setter = LOOKUP.unreflectSetter(field)
+        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+      return MethodHandles.dropArguments(
+        MethodHandles.insertArguments(APPEND, 0, getter, setter),
+        1,
+        String.class);
+    } catch (IllegalAccessException ex) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Cannot access field ''{0}''.",
+        field.getName()), ex);
+    }
+  }
+
+  /**
+   * @return A handle of type {@link Kind#writerType} that stores values in
+   * the option's slot of {@link OptionValues}.
+   */
+  private MethodHandle valuesWriter() {
+    MethodHandle store;
+    switch (kind) {
+      case REFERENCE:
+        store = ((collection) ? OptionValues.ADD : OptionValues.PUT_OBJECT);
+        break;
+      case BOOLEAN:
+        store = OptionValues.PUT_BOOLEAN;
+        break;
+      case FLOAT:
+      case DOUBLE:
+        store = OptionValues.PUT_DOUBLE;
+        break;
+      default:
+        // Widened to long
+        store = OptionValues.PUT_LONG;
+    }
+
+    return MethodHandles.dropArguments(
+      MethodHandles.insertArguments(store, 1, ordinal),
+      1,
+      String.class).asType(kind.writerType);
+  }
+
+  /**
+   * @return A handle of type <code>()Object</code> that creates a collection
+   * of the type. For interfaces and abstract classes one of
+   * {@link #COLLECTION_IMPLEMENTATIONS} is used. If there is no suitable
+   * constructor the handle returns <code>null</code>.
+   */
+  private static MethodHandle collectionConstructor(Class<?> type) {
+    Class<?> implementation = collectionImplementation(type);
+    if (implementation != null) {
+      try {
+        return LOOKUP.findConstructor(implementation,
+                                      MethodType.methodType(void.class))
+          .asType(MethodType.methodType(Object.class));
+      } catch (NoSuchMethodException | IllegalAccessException ex) {
+        // No usable constructor
+      }
+    }
+
+    return MethodHandles.constant(Object.class, null);
+  }
+
+  /**
+   * @return A handle of type <code>(int)Object</code> that creates a
+   * collection of the type with room for a number of values, or returns
+   * <code>null</code> if the implementation isn't one of
+   * {@link #SIZED_COLLECTIONS}.
+   */
+  private static MethodHandle sizedCollectionConstructor(Class<?> type) {
+    Class<?> implementation = collectionImplementation(type);
+    if (SIZED_COLLECTIONS.contains(implementation)) {
+      try {
+        MethodHandle constructor = LOOKUP.findConstructor(
+          implementation,
+          MethodType.methodType(void.class, int.class))
+          .asType(MethodType.methodType(Object.class, int.class));
+        return ((HashSet.class.isAssignableFrom(implementation))
+                ? MethodHandles.filterArguments(constructor, 0, HASH_CAPACITY)
+                : constructor);
+      } catch (NoSuchMethodException | IllegalAccessException ex) {
+        // No usable constructor
+      }
+    }
+
+    return MethodHandles.dropArguments(
+      MethodHandles.constant(Object.class, null),
+      0,
+      int.class);
+  }
+
+  /**
+   * @return The class that is created for a collection field of the type: the
+   * type itself, or (for interfaces and abstract classes) one of
+   * {@link #COLLECTION_IMPLEMENTATIONS}, or <code>null</code> if none fits.
+   */
+  private static Class<?> collectionImplementation(Class<?> type) {
+    if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+      return type;
+    }
+
+    for (Class<?> candidate : COLLECTION_IMPLEMENTATIONS) {
+      if (type.isAssignableFrom(candidate)) {
+        return candidate;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * @return A handle of type <code>(Object, int)void</code> that makes room
+   * for a number of values in the collection in <code>field</code>.
+   */
+  private static MethodHandle presizer(Field field) {
+    try {
+      MethodHandle getter = LOOKUP.unreflectGetter(accessible(field))
+        .asType(MethodType.methodType(Object.class, Object.class));
+      MethodHandle setter = LOOKUP.unreflectSetter(field)
+        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+      return MethodHandles.insertArguments(
+        PRESIZE,
+        0,
+        getter,
+        setter,
+        sizedCollectionConstructor(field.getType()));
+    } catch (IllegalAccessException ex) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Cannot access field ''{0}''.",
+        field.getName()), ex);
+    }
+  }
+
+  /**
+   * Creates a collection field at its final size, or (if it has been created
+   * already, e.g. by an initializer, and is an {@link ArrayList}) makes room
+   * in it. Bound into the handles created by
+   * {@link #presizer(java.lang.reflect.Field)}.
+   */
+  private static void presize(MethodHandle getter,
+                              MethodHandle setter,
+                              MethodHandle constructor,
+                              Object subject,
+                              int count)
+    throws Throwable {
+    Object existing = (Object) getter.invokeExact(subject);
+    if (existing == null) {
+      Object created = (Object) constructor.invokeExact(count);
+      if (created != null) {
+        setter.invokeExact(subject, created);
+      }
+    } else if (existing instanceof ArrayList) {
+      ArrayList<?> list = (ArrayList<?>) existing;
+      list.ensureCapacity(list.size() + count);
+    }
+  }
+
+  /**
+   * @return The capacity of a hash set that holds a number of values without
+   * being rehashed, at the default load factor.
+   */
+  private static int hashCapacity(int count) {
+    return count * 4 / 3 + 1;
+  }
+
+  /**
+   * Adds a value to a collection field. Bound into the handles created by
+   * {@link #collectionWriter(java.lang.reflect.Field)}.
+   */
+  @SuppressWarnings("unchecked")
+  private static void add(String fieldName,
+                          MethodHandle getter,
+                          MethodHandle setter,
+                          MethodHandle constructor,
+                          Object subject,
+                          Object value)
+    throws Throwable {
+    Collection<Object> collection = (Collection<Object>) (Object) getter
+      .invokeExact(subject);
+    if (collection == null) {
+      collection = (Collection<Object>) (Object) constructor.invokeExact();
+      if (collection == null) {
+        throw new ArgumentParsingException(
+          "Could not create a collection for field ''{0}''.",
+          fieldName);
+      }
+      setter.invokeExact(subject, (Object) collection);
+    }
+    collection.add(value);
+  }
+
+  /**
+   * Writes the elements of a value one at a time. Bound into the writers of
+   * collections with separators.
+   */
+  private static void addAll(MethodHandle elementWriter,
+                             Object subject,
+                             String name,
+                             Object elements)
+    throws Throwable {
+    for (Object element : (Object[]) elements) {
+      elementWriter.invokeExact(subject, name, element);
+    }
+  }
+
+  /**
+   * Appends an array to an array field, or sets the field if it's
+   * <code>null</code>. Bound into the handles created by
+   * {@link #arrayWriter(java.lang.reflect.Field)}.
+   */
+  private static void append(MethodHandle getter,
+                             MethodHandle setter,
+                             Object subject,
+                             Object elements)
+    throws Throwable {
+    Object existing = (Object) getter.invokeExact(subject);
+    if (existing == null) {
+      setter.invokeExact(subject, elements);
+      return;
+    }
+
+    int length = Array.getLength(existing);
+    int added = Array.getLength(elements);
+    Object joined = Array.newInstance(existing.getClass().getComponentType(),
+                                      length + added);
+    System.arraycopy(existing, 0, joined, 0, length);
+    System.arraycopy(elements, 0, joined, length, added);
+    setter.invokeExact(subject, joined);
+  }
+
+  /**
+   * @return A copy of an array.
+   */
+  private static Object copy(Object array) {
+    int length = Array.getLength(array);
+    Object copy = Array.newInstance(array.getClass().getComponentType(),
+                                    length);
+    System.arraycopy(array, 0, copy, 0, length);
+    return copy;
+  }
+
+  private static <T extends AccessibleObject> T accessible(T object) {
+    try {
+      object.setAccessible(true);
+    } catch (RuntimeException ex) {
+      // Not allowed; public members may still be accessible
+    }
+
+    return object;
+  }
+
+  /**
+   * An invalid element of a value, carried out of
+   * {@link #elements(java.lang.String)}. The message is the element.
+   */
+  private static final class InvalidElement
+    extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private InvalidElement(String element, Exception cause) {
+      super(element, cause, false, false);
+    }
+
+    @Override
+    public synchronized Exception getCause() {
+      return (Exception) super.getCause();
+    }
+
+  }
+
+}
@@ -17,29 +17,33 @@
  * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-package com.munkei.exception;
+package com.munkei;
 
-import java.text.MessageFormat;
+import java.util.Set;
 
 /**
+ * Notified when {@link LiveOptions} publishes a new snapshot.
+ *
+ * @param <T> The type of the snapshots.
  *
  * @author Theo 'Biffen' Willows <theo@willows.se>
  *
  * @since 0.0.1
  */
-public class ArgumentParsingException
-  extends Exception {
-
-  private static final long serialVersionUID = 1L;
-
-  public ArgumentParsingException(Throwable cause,
-                                  String message,
-                                  Object... arguments) {
-    super(MessageFormat.format(message, arguments), cause);
-  }
+@FunctionalInterface
+public interface OptionChangeListener<T> {
 
-  public ArgumentParsingException(String message, Object... arguments) {
-    this(null, message, arguments);
-  }
+  /**
+   * Called after a new snapshot has been published. Exceptions are passed to
+   * the thread's {@link Thread.UncaughtExceptionHandler}, not to the caller of
+   * {@link LiveOptions#reload(java.lang.String[])}.
+   *
+   * @param previous The previous snapshot.
+   *
+   * @param current The new snapshot.
+   *
+   * @param changed The (first) names of the options whose values changed.
+   */
+  void optionsChanged(T previous, T current, Set<String> changed);
 
 }
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A lookup index of the names of a set of {@link Option}s.
+ * <p>
+ * Exact names are looked up in a hash map. Long names (i.e. names that are
+ * longer than a single character) are also put in a character trie, which is
+ * used to look up names by region of an argument, and to resolve unique
+ * abbreviations, e.g. <code>--verb</code> for
+ * <code>--verbose</code>. An abbreviation is unique if all the names it
+ * abbreviates belong to the same option (and are all, or none, of them
+ * <code>--no-[...]</code> aliases).
+ * <p>
+ * The {@link CommandLineOption#pattern()}s of all options are combined into a
+ * single regular expression (and likewise the
+ * {@link CommandLineOption#shortPattern()}s), with one group per option, so a
+ * name that isn't found otherwise is matched against all patterns in one go.
+ * <p>
+ * Long names are also put in a {@link Suggestions} tree, to suggest names
+ * for misspelled ones.
+ * <p>
+ * If several options share a name, or match the same name, the first one wins.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class OptionIndex {
+
+  private final Map<String, Option> names;
+
+  private final Node trie;
+
+  /**
+   * Single-character (ASCII) names, by character.
+   */
+  private final String[] shortNames = new String[128];
+
+  private final Patterns longPatterns;
+
+  private final Patterns shortPatterns;
+
+  private final Suggestions suggestions = new Suggestions();
+
+  OptionIndex(List<Option> options) {
+    if (options == null) {
+      throw new NullPointerException("Options may not be null");
+    }
+
+    Map<String, Option> map = new HashMap<>();
+    trie = new Node();
+
+    for (Option option : options) {
+      for (String name : option.getNames()) {
+        if (map.containsKey(name)) {
+          continue;
+        }
+
+        map.put(name, option);
+        if (name.length() > 1) {
+          trie.insert(name, 0, option, option.isNegation(name));
+          suggestions.add(name);
+        } else if (name.charAt(0) < shortNames.length) {
+          shortNames[name.charAt(0)] = name;
+        }
+      }
+    }
+
+    names = Collections.unmodifiableMap(map);
+    longPatterns = new Patterns(options, false);
+    shortPatterns = new Patterns(options, true);
+  }
+
+  /**
+   * Gets the option with the exact name.
+   *
+   * @param name The name.
+   *
+   * @return The option, or <code>null</code> if there is none.
+   */
+  Option get(String name) {
+    return names.get(name);
+  }
+
+  /**
+   * Resolves a name as given on the command line to the name of an option.
+   *
+   * @param name The name as given on the command line.
+   *
+   * @param abbreviate Whether <code>name</code> may be a unique abbreviation
+   * of a long name.
+   *
+   * @return The full name, or <code>null</code> if <code>name</code> matches
+   * no name (or is an ambiguous abbreviation).
+   */
+  String resolve(String name, boolean abbreviate) {
+    return resolve(name, 0, name.length(), abbreviate);
+  }
+
+  /**
+   * Like {@link #resolve(java.lang.String, boolean)}, but for the name in the
+   * characters <code>[start, end)</code>, without creating a {@link String}.
+   *
+   * @param chars The characters, e.g. a command line argument.
+   *
+   * @param start The offset of the name.
+   *
+   * @param end The offset after the name.
+   *
+   * @param abbreviate Whether the name may be a unique abbreviation of a long
+   * name.
+   *
+   * @return The full name, or <code>null</code> if the name matches no name
+   * (or is an ambiguous abbreviation).
+   */
+  String resolve(CharSequence chars, int start, int end, boolean abbreviate) {
+    int length = end - start;
+    if (length <= 0) {
+      return null;
+    }
+
+    if (length == 1) {
+      String name = shortName(chars.charAt(start));
+      if (name != null || !abbreviate) {
+        return name;
+      }
+    }
+
+    Node node = trie;
+    for (int i = start; i < end && node != null; ++i) {
+      node = node.child(chars.charAt(i));
+    }
+
+    if (node == null) {
+      return null;
+    }
+    if (node.exact != null) {
+      return node.exact;
+    }
+
+    return ((abbreviate) ? node.unique : null);
+  }
+
+  /**
+   * Finds the option whose pattern matches the name in the characters
+   * <code>[start, end)</code>. Patterns are only meant to be tried after
+   * {@link #resolve(java.lang.CharSequence, int, int, boolean)} has failed.
+   *
+   * @param chars The characters, e.g. a command line argument.
+   *
+   * @param start The offset of the name.
+   *
+   * @param end The offset after the name.
+   *
+   * @param shortName Whether to match against the
+   * {@link CommandLineOption#shortPattern()}s (rather than the
+   * {@link CommandLineOption#pattern()}s).
+   *
+   * @return The option, or <code>null</code> if no pattern matches.
+   */
+  Option match(CharSequence chars, int start, int end, boolean shortName) {
+    return ((shortName) ? shortPatterns : longPatterns).match(chars, start, end);
+  }
+
+  /**
+   * Suggests long names for one that matches no option.
+   *
+   * @param name The name, as given.
+   *
+   * @return The closest names, closest first, or an empty list if there are
+   * none close enough (or <code>name</code> is a short name).
+   */
+  List<String> suggest(String name) {
+    return ((name.length() > 1)
+            ? suggestions.suggest(name)
+            : Collections.<String>emptyList());
+  }
+
+  private String shortName(char c) {
+    if (c < shortNames.length) {
+      return shortNames[c];
+    }
+
+    String name = String.valueOf(c);
+    return ((names.containsKey(name)) ? name : null);
+  }
+
+  /**
+   * The patterns of a set of options, as one alternation.
+   */
+  private static final class Patterns {
+
+    /**
+     * The combined pattern, or <code>null</code> if there are no patterns.
+     */
+    private final Pattern pattern;
+
+    /**
+     * The number of the group that wraps each option's pattern.
+     */
+    private final int[] groups;
+
+    private final Option[] options;
+
+    Patterns(List<Option> all, boolean shortPatterns) {
+      StringBuilder regex = new StringBuilder();
+      List<Option> list = new ArrayList<>();
+      List<Integer> groupList = new ArrayList<>();
+      int group = 1;
+
+      for (Option option : all) {
+        String source = ((shortPatterns)
+                         ? option.getCommandLineOption().shortPattern()
+                         : option.getCommandLineOption().pattern());
+        if (source.isEmpty()) {
+          continue;
+        }
+
+        // Compiled on its own to validate it, and to count its groups
+        int count;
+        try {
+          count = Pattern.compile(source).matcher("").groupCount();
+        } catch (PatternSyntaxException ex) {
+          throw new IllegalArgumentException(MessageFormat.format(
+            "Invalid pattern ''{0}'' for field ''{1}''.",
+            source,
+            option.getLabel()), ex);
+        }
+
+        if (regex.length() > 0) {
+          regex.append('|');
+        }
+        regex.append('(').append(source).append(')');
+
+        list.add(option);
+        groupList.add(group);
+        group += 1 + count;
+      }
+
+      pattern = ((list.isEmpty()) ? null : Pattern.compile(regex.toString()));
+      options = list.toArray(new Option[list.size()]);
+      groups = new int[groupList.size()];
+      for (int i = 0; i < groups.length; ++i) {
+        groups[i] = groupList.get(i);
+      }
+    }
+
+    Option match(CharSequence chars, int start, int end) {
+      if (pattern == null) {
+        return null;
+      }
+
+      Matcher matcher = pattern.matcher(chars).region(start, end);
+      if (!matcher.matches()) {
+        return null;
+      }
+
+      for (int i = 0; i < groups.length; ++i) {
+        if (matcher.start(groups[i]) >= 0) {
+          return options[i];
+        }
+      }
+
+      return null;
+    }
+
+  }
+
+  /**
+   * A node in the trie of long names.
+   */
+  private static final class Node {
+
+    private char[] keys = new char[0];
+
+    private Node[] children = new Node[0];
+
+    /**
+     * The first name inserted below this node, or <code>null</code> if the
+     * names below this node are ambiguous.
+     */
+    private String unique;
+
+    /**
+     * The name that ends at this node, if any.
+     */
+    private String exact;
+
+    private Option option;
+
+    private boolean negation;
+
+    void insert(String name, int depth, Option option, boolean negation) {
+      if (this.option == null) {
+        this.unique = name;
+        this.option = option;
+        this.negation = negation;
+      } else if (this.option != option || this.negation != negation) {
+        unique = null;
+      }
+
+      if (depth == name.length()) {
+        exact = name;
+        return;
+      }
+
+      char c = name.charAt(depth);
+      int i = Arrays.binarySearch(keys, c);
+      if (i < 0) {
+        i = -i - 1;
+
+        char[] newKeys = new char[keys.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, i);
+        System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+        newKeys[i] = c;
+
+        Node[] newChildren = new Node[children.length + 1];
+        System.arraycopy(children, 0, newChildren, 0, i);
+        System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+        newChildren[i] = new Node();
+
+        keys = newKeys;
+        children = newChildren;
+      }
+
+      children[i].insert(name, depth + 1, option, negation);
+    }
+
+    Node child(char c) {
+      int i = Arrays.binarySearch(keys, c);
+      return ((i < 0) ? null : children[i]);
+    }
+
+  }
+
+}
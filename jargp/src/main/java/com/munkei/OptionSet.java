@@ -0,0 +1,436 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.lang.annotation.Annotation;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Options defined in code rather than with {@link CommandLineOption}
+ * annotations, e.g. options contributed by plugins loaded at runtime.
+ * <p>
+ * The options are compiled into the same structures as annotated ones (name
+ * lookup, abbreviations, patterns, defaults and usage), and parsed with a
+ * {@link Parser} (see {@link #parser()}) into {@link OptionValues}:
+ *
+ * <pre>
+ * OptionSet.Builder builder = OptionSet.builder();
+ * int port = builder.option(int.class)
+ *   .names("port", "p")
+ *   .defaultValue("8080")
+ *   .add();
+ * OptionSet options = builder.build();
+ *
+ * OptionValues values = options.parser()
+ *   .parse(args, options::newValues)
+ *   .getSubject();
+ * int value = values.getInt(port);
+ * </pre>
+ *
+ * Option sets are immutable, and thus thread-safe.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class OptionSet {
+
+  private final Schema schema;
+
+  private final Parser<OptionValues> parser;
+
+  private OptionSet(List<Option> options) {
+    this.schema = new Schema(options);
+    this.parser = Parser.forSchema(OptionValues.class, schema);
+  }
+
+  /**
+   * @return A builder of an option set.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return A parser of the options.
+   */
+  public Parser<OptionValues> parser() {
+    return parser;
+  }
+
+  /**
+   * @return New, empty, values of the options, e.g. for
+   * {@link Parser#parse(java.lang.String[], java.util.function.Supplier)}.
+   */
+  public OptionValues newValues() {
+    return new OptionValues(this);
+  }
+
+  /**
+   * @return The number of options.
+   */
+  public int size() {
+    return schema.getOptions().size();
+  }
+
+  /**
+   * Gets the ordinal of an option.
+   *
+   * @param name One of the option's names.
+   *
+   * @return The ordinal.
+   *
+   * @throws IllegalArgumentException If there is no option with the name.
+   */
+  public int ordinal(String name)
+    throws IllegalArgumentException {
+    Option option = schema.getIndex().get(name);
+    if (option == null) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "No such option ''{0}''.",
+        name));
+    }
+
+    return option.getOrdinal();
+  }
+
+  /**
+   * @return The usage text, without ANSI escape sequences.
+   */
+  public String getUsage() {
+    return schema.getUsage(null, false, Terminal.getWidth()).getText();
+  }
+
+  /**
+   * Generates a completion script for a shell.
+   *
+   * @param shell The shell.
+   *
+   * @param command The name of the command, as typed in the shell.
+   *
+   * @return The script.
+   *
+   * @throws NullPointerException If <code>shell</code> or
+   * <code>command</code> is <code>null</code>.
+   *
+   * @throws IllegalArgumentException If <code>command</code> is not a valid
+   * command name.
+   *
+   * @see JArgP#getCompletionScript(com.munkei.Shell, java.lang.String)
+   */
+  public String getCompletionScript(Shell shell, String command)
+    throws NullPointerException,
+           IllegalArgumentException {
+    return CompletionScript.generate(schema.getOptions(), shell, command);
+  }
+
+  Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Builds an {@link OptionSet}. Not thread-safe.
+   */
+  public static final class Builder {
+
+    private final List<Option> options = new ArrayList<>();
+
+    private Builder() {
+    }
+
+    /**
+     * Starts defining an option.
+     *
+     * @param type The type of the option's values (of each value, if it's
+     * {@link OptionBuilder#multiple()}). Options of type
+     * <code>boolean</code> or {@link Boolean} are switches.
+     *
+     * @return A builder of the option; call {@link OptionBuilder#add()} to
+     * add it.
+     *
+     * @throws NullPointerException If <code>type</code> is
+     * <code>null</code>.
+     */
+    public OptionBuilder option(Class<?> type)
+      throws NullPointerException {
+      if (type == null) {
+        throw new NullPointerException("Type may not be null");
+      }
+
+      return new OptionBuilder(this, type);
+    }
+
+    /**
+     * @return The option set.
+     */
+    public OptionSet build() {
+      return new OptionSet(new ArrayList<>(options));
+    }
+
+  }
+
+  /**
+   * Defines an option. The attributes are those of
+   * {@link CommandLineOption}.
+   */
+  public static final class OptionBuilder {
+
+    private final Builder builder;
+
+    private final Class<?> type;
+
+    private String[] names = new String[0];
+
+    private String pattern = "";
+
+    private String shortPattern = "";
+
+    private boolean opposite;
+
+    private String placeholder = "VALUE";
+
+    private String description = "";
+
+    private String defaultValue = "";
+
+    private boolean multiple;
+
+    private String separator = "";
+
+    private ValueConverter<?> converter;
+
+    private OptionBuilder(Builder builder, Class<?> type) {
+      this.builder = builder;
+      this.type = type;
+    }
+
+    /**
+     * @see CommandLineOption#names()
+     */
+    public OptionBuilder names(String... names) {
+      this.names = names.clone();
+      return this;
+    }
+
+    /**
+     * @see CommandLineOption#pattern()
+     */
+    public OptionBuilder pattern(String pattern) {
+      this.pattern = pattern;
+      return this;
+    }
+
+    /**
+     * @see CommandLineOption#shortPattern()
+     */
+    public OptionBuilder shortPattern(String shortPattern) {
+      this.shortPattern = shortPattern;
+      return this;
+    }
+
+    /**
+     * @see CommandLineOption#opposite()
+     */
+    public OptionBuilder opposite() {
+      this.opposite = true;
+      return this;
+    }
+
+    /**
+     * @see CommandLineOption#placeholder()
+     */
+    public OptionBuilder placeholder(String placeholder) {
+      this.placeholder = placeholder;
+      return this;
+    }
+
+    /**
+     * @see CommandLineOption#description()
+     */
+    public OptionBuilder description(String description) {
+      this.description = description;
+      return this;
+    }
+
+    /**
+     * @see CommandLineOption#defaultValue()
+     */
+    public OptionBuilder defaultValue(String defaultValue) {
+      this.defaultValue = defaultValue;
+      return this;
+    }
+
+    /**
+     * Makes the option take any number of values, which are collected in a
+     * list (see {@link OptionValues#getList(int)}), rather than one.
+     */
+    public OptionBuilder multiple() {
+      this.multiple = true;
+      return this;
+    }
+
+    /**
+     * Splits each value into several, which are added to the list. Only for
+     * {@link #multiple()} options.
+     *
+     * @see CommandLineOption#separator()
+     */
+    public OptionBuilder separator(String separator) {
+      this.separator = separator;
+      return this;
+    }
+
+    /**
+     * Sets the converter of the option's values. By default, the converter
+     * registered in {@link ValueConverters} for the type is used.
+     *
+     * @see CommandLineOption#converter()
+     */
+    public OptionBuilder converter(ValueConverter<?> converter) {
+      this.converter = converter;
+      return this;
+    }
+
+    /**
+     * Adds the option to the set.
+     *
+     * @return The option's ordinal, with which its value is read from
+     * {@link OptionValues}.
+     *
+     * @throws IllegalArgumentException If the option has neither names nor
+     * patterns, if it has a separator but isn't multiple, if there's no
+     * converter for its type, or if its default value is invalid.
+     */
+    public int add()
+      throws IllegalArgumentException {
+      if (names.length == 0 && pattern.isEmpty() && shortPattern.isEmpty()) {
+        throw new IllegalArgumentException(
+          "Options must have names or patterns");
+      }
+
+      int ordinal = builder.options.size();
+      builder.options.add(new Option(new Definition(this),
+                                     type,
+                                     multiple,
+                                     converter,
+                                     ordinal));
+      return ordinal;
+    }
+
+  }
+
+  /**
+   * The attributes of an {@link OptionBuilder}, as a
+   * {@link CommandLineOption}, so they are used exactly like annotations'.
+   */
+  @SuppressWarnings("ClassExplicitlyAnnotation")
+  private static final class Definition
+    implements CommandLineOption {
+
+    private final List<String> names;
+
+    private final String pattern;
+
+    private final String shortPattern;
+
+    private final boolean opposite;
+
+    private final String placeholder;
+
+    private final String description;
+
+    private final String defaultValue;
+
+    private final String separator;
+
+    private Definition(OptionBuilder builder) {
+      this.names = Collections.unmodifiableList(Arrays.asList(builder.names));
+      this.pattern = builder.pattern;
+      this.shortPattern = builder.shortPattern;
+      this.opposite = builder.opposite;
+      this.placeholder = builder.placeholder;
+      this.description = builder.description;
+      this.defaultValue = builder.defaultValue;
+      this.separator = builder.separator;
+    }
+
+    @Override
+    public String[] names() {
+      return names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public String setter() {
+      return "";
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Class<? extends ValueConverter> converter() {
+      return ValueConverter.class;
+    }
+
+    @Override
+    public String pattern() {
+      return pattern;
+    }
+
+    @Override
+    public String shortPattern() {
+      return shortPattern;
+    }
+
+    @Override
+    public boolean opposite() {
+      return opposite;
+    }
+
+    @Override
+    public String placeholder() {
+      return placeholder;
+    }
+
+    @Override
+    public String description() {
+      return description;
+    }
+
+    @Override
+    public String defaultValue() {
+      return defaultValue;
+    }
+
+    @Override
+    public String separator() {
+      return separator;
+    }
+
+    @Override
+    public Class<? extends Annotation> annotationType() {
+      return CommandLineOption.class;
+    }
+
+  }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+
+/**
+ * A source of option values other than the command line, e.g. environment
+ * variables or a configuration file (see {@link OptionSources}). Sources are
+ * only asked for the options that weren't given on the command line, and in
+ * order of precedence; the first source that has a value wins, and if none
+ * has, the option's {@link CommandLineOption#defaultValue()} is used.
+ * <p>
+ * Values are interpreted like default values: switches take
+ * <code>true</code> or <code>false</code>, and multiple options take a single
+ * element.
+ * <p>
+ * Sources must be thread-safe if the parser is shared by several threads.
+ *
+ * @see Parser#withSources(com.munkei.OptionSource...)
+ * @see JArgP#setSources(com.munkei.OptionSource...)
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public interface OptionSource {
+
+  /**
+   * Gets the value of an option.
+   *
+   * @param name The option's first name (or its field's name, if it has no
+   * names), e.g. <code>"log-level"</code>.
+   *
+   * @return The value, or <code>null</code> if the source has none.
+   *
+   * @throws ArgumentParsingException If the source can't be read.
+   */
+  String get(String name)
+    throws ArgumentParsingException;
+
+}
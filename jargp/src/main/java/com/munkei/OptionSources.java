@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Factories of the built-in {@link OptionSource}s.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class OptionSources {
+
+  private OptionSources() {
+  }
+
+  /**
+   * Gets a source of environment variables. The variable of an option is the
+   * prefix followed by the option's name in upper case, with dashes and dots
+   * replaced by underscores, e.g. <code>APP_LOG_LEVEL</code> for
+   * <code>log-level</code> with the prefix <code>APP_</code>.
+   *
+   * @param prefix The prefix, which may be empty.
+   *
+   * @return The source.
+   *
+   * @throws NullPointerException If <code>prefix</code> is <code>null</code>.
+   */
+  public static OptionSource environment(String prefix)
+    throws NullPointerException {
+    return environment(prefix, System.getenv());
+  }
+
+  /**
+   * Like {@link #environment(java.lang.String)}, but with the variables in a
+   * map.
+   *
+   * @param prefix The prefix, which may be empty.
+   *
+   * @param variables The variables.
+   *
+   * @return The source.
+   *
+   * @throws NullPointerException If an argument is <code>null</code>.
+   */
+  public static OptionSource environment(String prefix,
+                                         Map<String, String> variables)
+    throws NullPointerException {
+    if (prefix == null) {
+      throw new NullPointerException("Prefix may not be null");
+    }
+    if (variables == null) {
+      throw new NullPointerException("Variables may not be null");
+    }
+
+    return name -> variables.get(prefix + name.toUpperCase(Locale.ROOT)
+      .replace('-', '_')
+      .replace('.', '_'));
+  }
+
+  /**
+   * Gets a source of a properties file. The key of an option is the prefix
+   * followed by the option's name, e.g. <code>app.log-level</code> for
+   * <code>log-level</code> with the prefix <code>app.</code>.
+   * <p>
+   * The file has the syntax of
+   * {@link java.util.Properties#load(java.io.Reader)}, and is read as UTF-8.
+   * It's read the first time a value is needed, and then only once: the file
+   * is memory-mapped, and the keys with the prefix are indexed. Values are
+   * only decoded (and converted) when they're needed, so large files shared
+   * by many applications are cheap to use.
+   *
+   * @param file The file.
+   *
+   * @param prefix The prefix, which may be empty.
+   *
+   * @return The source.
+   *
+   * @throws NullPointerException If an argument is <code>null</code>.
+   */
+  public static OptionSource propertiesFile(Path file, String prefix)
+    throws NullPointerException {
+    if (file == null) {
+      throw new NullPointerException("File may not be null");
+    }
+    if (prefix == null) {
+      throw new NullPointerException("Prefix may not be null");
+    }
+
+    return new PropertiesFile(file, prefix);
+  }
+
+}
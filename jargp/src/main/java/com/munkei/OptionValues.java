@@ -0,0 +1,266 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The values of options defined with an {@link OptionSet}.
+ * <p>
+ * Values are stored by the options' ordinals (see
+ * {@link OptionSet.OptionBuilder#add()}) in arrays: numbers, booleans and
+ * characters in a <code>long[]</code> (floating-point numbers as their bits),
+ * and everything else in an <code>Object[]</code>. Reading a value is thus an
+ * array load, without boxing or hashing. Multiple options' values are
+ * collected in lists.
+ * <p>
+ * Like other subjects, values are written by one parse; reading them from
+ * several threads afterwards is safe if they are published safely.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class OptionValues {
+
+  static final MethodHandle PUT_BOOLEAN;
+
+  static final MethodHandle PUT_LONG;
+
+  static final MethodHandle PUT_DOUBLE;
+
+  static final MethodHandle PUT_OBJECT;
+
+  static final MethodHandle ADD;
+
+  static {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      PUT_BOOLEAN = lookup.findStatic(OptionValues.class,
+                                      "putBoolean",
+                                      putType(boolean.class));
+      PUT_LONG = lookup.findStatic(OptionValues.class,
+                                   "putLong",
+                                   putType(long.class));
+      PUT_DOUBLE = lookup.findStatic(OptionValues.class,
+                                     "putDouble",
+                                     putType(double.class));
+      PUT_OBJECT = lookup.findStatic(OptionValues.class,
+                                     "putObject",
+                                     putType(Object.class));
+      ADD = lookup.findStatic(OptionValues.class, "add", putType(Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException ex) {
+      throw new ExceptionInInitializerError(ex);
+    }
+  }
+
+  private final OptionSet options;
+
+  private final long[] primitives;
+
+  private final Object[] objects;
+
+  private final BitSet present;
+
+  OptionValues(OptionSet options) {
+    int size = options.size();
+    this.options = options;
+    this.primitives = new long[size];
+    this.objects = new Object[size];
+    this.present = new BitSet(size);
+  }
+
+  /**
+   * @return The options that these are the values of.
+   */
+  public OptionSet getOptions() {
+    return options;
+  }
+
+  /**
+   * @param ordinal The option's ordinal.
+   *
+   * @return Whether the option has a value (given, from a source, or a
+   * default value).
+   */
+  public boolean isSet(int ordinal) {
+    return present.get(ordinal);
+  }
+
+  /**
+   * Gets the value of a <code>boolean</code> or {@link Boolean} option.
+   * <p>
+   * The other primitive getters likewise get the values of options of
+   * primitive types, or of their wrappers (which are <code>0</code> if not
+   * set), without boxing the former.
+   *
+   * @param ordinal The option's ordinal.
+   *
+   * @return The value.
+   */
+  public boolean getBoolean(int ordinal) {
+    Object object = objects[ordinal];
+    return ((object != null) ? (Boolean) object : primitives[ordinal] != 0L);
+  }
+
+  public byte getByte(int ordinal) {
+    return (byte) getLong(ordinal);
+  }
+
+  public short getShort(int ordinal) {
+    return (short) getLong(ordinal);
+  }
+
+  public char getChar(int ordinal) {
+    Object object = objects[ordinal];
+    return ((object != null)
+            ? (Character) object
+            : (char) primitives[ordinal]);
+  }
+
+  public int getInt(int ordinal) {
+    return (int) getLong(ordinal);
+  }
+
+  public long getLong(int ordinal) {
+    Object object = objects[ordinal];
+    return ((object != null)
+            ? ((Number) object).longValue()
+            : primitives[ordinal]);
+  }
+
+  public float getFloat(int ordinal) {
+    return (float) getDouble(ordinal);
+  }
+
+  public double getDouble(int ordinal) {
+    Object object = objects[ordinal];
+    return ((object != null)
+            ? ((Number) object).doubleValue()
+            : Double.longBitsToDouble(primitives[ordinal]));
+  }
+
+  /**
+   * Gets the value of an option, boxed if it's primitive.
+   *
+   * @param <V> The type of the value.
+   *
+   * @param ordinal The option's ordinal.
+   *
+   * @return The value, or <code>null</code> if an option that isn't
+   * primitive has no value.
+   */
+  @SuppressWarnings("unchecked")
+  public <V> V get(int ordinal) {
+    return (V) options.getSchema().getOptions().get(ordinal).getValue(this);
+  }
+
+  /**
+   * Gets the values of a multiple option.
+   *
+   * @param <V> The type of the values.
+   *
+   * @param ordinal The option's ordinal.
+   *
+   * @return The values, in the order they were given; empty if none were.
+   */
+  @SuppressWarnings("unchecked")
+  public <V> List<V> getList(int ordinal) {
+    List<V> list = (List<V>) objects[ordinal];
+    return ((list == null)
+            ? Collections.<V>emptyList()
+            : Collections.unmodifiableList(list));
+  }
+
+  /**
+   * Gets the value of an option by name. Slower than by ordinal.
+   *
+   * @param <V> The type of the value.
+   *
+   * @param name One of the option's names.
+   *
+   * @return The value, boxed if it's primitive.
+   *
+   * @throws IllegalArgumentException If there is no option with the name.
+   */
+  public <V> V get(String name)
+    throws IllegalArgumentException {
+    return get(options.ordinal(name));
+  }
+
+  Object getObject(int ordinal) {
+    return objects[ordinal];
+  }
+
+  Schema getSchema() {
+    return options.getSchema();
+  }
+
+  private static MethodType putType(Class<?> type) {
+    return MethodType.methodType(void.class,
+                                 OptionValues.class,
+                                 int.class,
+                                 type);
+  }
+
+  private static void putBoolean(OptionValues values,
+                                 int ordinal,
+                                 boolean value) {
+    values.primitives[ordinal] = ((value) ? 1L : 0L);
+    values.present.set(ordinal);
+  }
+
+  private static void putLong(OptionValues values, int ordinal, long value) {
+    values.primitives[ordinal] = value;
+    values.present.set(ordinal);
+  }
+
+  private static void putDouble(OptionValues values,
+                                int ordinal,
+                                double value) {
+    values.primitives[ordinal] = Double.doubleToRawLongBits(value);
+    values.present.set(ordinal);
+  }
+
+  private static void putObject(OptionValues values,
+                                int ordinal,
+                                Object value) {
+    values.objects[ordinal] = value;
+    values.present.set(ordinal);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void add(OptionValues values, int ordinal, Object value) {
+    List<Object> list = (List<Object>) values.objects[ordinal];
+    if (list == null) {
+      list = new ArrayList<>();
+      values.objects[ordinal] = list;
+    }
+    list.add(value);
+    values.present.set(ordinal);
+  }
+
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import com.munkei.exception.NoSuchOptionException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The state of one parse: the subject, the options that have been set, the
+ * index of the current argument, and how problems are reported.
+ * <p>
+ * Problems are either thrown as exceptions, or (in the non-throwing mode)
+ * collected as {@link Diagnostic}s, in which case parsing goes on where
+ * possible.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class ParseContext {
+
+  private Object subject;
+
+  private final OptionIndex optionIndex;
+
+  private final boolean stackTraces;
+
+  private final ParseListener listener;
+
+  private final List<OptionSource> sources;
+
+  /**
+   * The collected problems, or <code>null</code> if problems are thrown.
+   */
+  private final List<Diagnostic> diagnostics;
+
+  /**
+   * The ordinals of the options that have been set, or <code>null</code> if
+   * no option has a default value and there are no sources (so there's no
+   * need to know).
+   */
+  private final BitSet set;
+
+  private final List<Option> options;
+
+  private int index = -1;
+
+  private boolean stopAtParameter;
+
+  /**
+   * The number of values of each option, by ordinal, if they have been
+   * counted before the parse, or else <code>null</code>.
+   */
+  private int[] counts;
+
+  /**
+   * The elements of array options, by ordinal, collected over the parse (see
+   * {@link Option#setElements(com.munkei.ParseContext, com.munkei.Elements)}).
+   * Created when first needed.
+   */
+  private Elements[] elements;
+
+  /**
+   * The indices of the sources that couldn't be read, or <code>null</code> if
+   * none has failed.
+   */
+  private BitSet brokenSources;
+
+  ParseContext(Object subject,
+               Schema schema,
+               boolean stackTraces,
+               boolean collect,
+               ParseListener listener,
+               List<OptionSource> sources) {
+    this.subject = subject;
+    this.optionIndex = schema.getIndex();
+    this.stackTraces = stackTraces;
+    this.listener = listener;
+    this.sources = sources;
+    this.diagnostics = ((collect) ? new ArrayList<Diagnostic>() : null);
+    this.options = schema.getOptions();
+    this.set = ((schema.hasDefaults() || !sources.isEmpty())
+                ? new BitSet(schema.getOptions().size())
+                : null);
+  }
+
+  /**
+   * Readies the context for another parse, with the same settings, so one
+   * context can be used for many (consecutive) parses.
+   *
+   * @param subject The subject of the next parse.
+   */
+  void reset(Object subject) {
+    this.subject = subject;
+    index = -1;
+    if (diagnostics != null) {
+      diagnostics.clear();
+    }
+    if (set != null) {
+      set.clear();
+    }
+    counts = null;
+    elements = null;
+    brokenSources = null;
+  }
+
+  Object getSubject() {
+    return subject;
+  }
+
+  /**
+   * @return The sources of values for options that aren't given, in order of
+   * precedence.
+   */
+  List<OptionSource> getSources() {
+    return sources;
+  }
+
+  ParseListener getListener() {
+    return listener;
+  }
+
+  /**
+   * @return Whether there is a listener to notify (so it's worth reading the
+   * clock).
+   */
+  boolean isListening() {
+    return listener != ParseListener.NONE;
+  }
+
+  /**
+   * @return Whether problems are collected rather than thrown.
+   */
+  boolean isCollecting() {
+    return diagnostics != null;
+  }
+
+  /**
+   * @return The collected problems.
+   */
+  List<Diagnostic> getDiagnostics() {
+    return ((diagnostics == null)
+            ? Collections.<Diagnostic>emptyList()
+            : Collections.unmodifiableList(diagnostics));
+  }
+
+  /**
+   * Makes the parse stop after the first parameter (or <code>--</code>).
+   */
+  void stopAtParameter() {
+    stopAtParameter = true;
+  }
+
+  boolean stopsAtParameter() {
+    return stopAtParameter;
+  }
+
+  BitSet getSet() {
+    return set;
+  }
+
+  /**
+   * @return The index of the current argument.
+   */
+  int getIndex() {
+    return index;
+  }
+
+  /**
+   * @return Whether there is another argument. Problems with argument files
+   * (see {@link ArgumentFiles}) are reported on the way, and the arguments
+   * that couldn't be read are skipped.
+   */
+  boolean hasNext(Iterator<? extends CharSequence> args)
+    throws ArgumentParsingException {
+    while (true) {
+      try {
+        return args.hasNext();
+      } catch (ArgumentFiles.Failure ex) {
+        argumentFile(ex);
+      }
+    }
+  }
+
+  /**
+   * Takes the next argument, after {@link #hasNext(java.util.Iterator)}.
+   */
+  CharSequence next(Iterator<? extends CharSequence> args) {
+    CharSequence next = args.next();
+    ++index;
+    return next;
+  }
+
+  /**
+   * Records that an option has been set.
+   */
+  void set(Option option) {
+    if (set != null) {
+      set.set(option.getOrdinal());
+    }
+  }
+
+  /**
+   * Sets the number of values of each option, counted before the parse.
+   *
+   * @param counts The counts, by ordinal.
+   */
+  void setCounts(int[] counts) {
+    this.counts = counts;
+  }
+
+  /**
+   * @return The elements collected for an array option, in an array that, if
+   * the values have been counted, has room for all of them.
+   */
+  Elements elements(Option option) {
+    if (elements == null) {
+      elements = new Elements[options.size()];
+    }
+
+    int ordinal = option.getOrdinal();
+    if (elements[ordinal] == null) {
+      elements[ordinal] = new Elements(
+        option.getElementClass(),
+        ((counts == null) ? 0 : counts[ordinal]));
+    }
+    return elements[ordinal];
+  }
+
+  /**
+   * Writes the elements collected for array options to the subject.
+   */
+  void flushElements()
+    throws ArgumentParsingException {
+    if (elements == null) {
+      return;
+    }
+
+    Elements[] collected = elements;
+    elements = null;
+    for (int i = 0; i < collected.length; ++i) {
+      // Empty if all the values were invalid
+      if (collected[i] == null || collected[i].size() == 0) {
+        continue;
+      }
+
+      Option option = options.get(i);
+      try {
+        option.setElements(this, collected[i]);
+      } catch (ArgumentParsingException ex) {
+        invalidValue(ex, option.getPrimaryName(), null, index);
+      }
+    }
+  }
+
+  /**
+   * Creates an exception, with a stack trace only if configured.
+   */
+  ArgumentParsingException exception(Throwable cause,
+                                     String message,
+                                     Object... arguments) {
+    return new ArgumentParsingException(cause, stackTraces, message, arguments);
+  }
+
+  void unknownOption(String option, int index)
+    throws NoSuchOptionException {
+    NoSuchOptionException ex = new UnknownOptionException(option,
+                                                          optionIndex,
+                                                          stackTraces);
+    if (diagnostics == null) {
+      throw ex;
+    }
+
+    diagnostics.add(new Diagnostic(Diagnostic.Reason.UNKNOWN_OPTION,
+                                   option,
+                                   null,
+                                   index,
+                                   ex));
+  }
+
+  void missingValue(String option, int index)
+    throws ArgumentParsingException {
+    problem(Diagnostic.Reason.MISSING_VALUE, option, null, index, null);
+  }
+
+  void unexpectedValue(String option, String value, int index)
+    throws ArgumentParsingException {
+    problem(Diagnostic.Reason.UNEXPECTED_VALUE, option, value, index, null);
+  }
+
+  void invalidValue(ArgumentParsingException ex,
+                    String option,
+                    String value,
+                    int index)
+    throws ArgumentParsingException {
+    problem(Diagnostic.Reason.INVALID_VALUE, option, value, index, ex);
+  }
+
+  void argumentFile(ArgumentFiles.Failure failure)
+    throws ArgumentParsingException {
+    problem(Diagnostic.Reason.ARGUMENT_FILE,
+            null,
+            null,
+            index + 1,
+            failure.toException(stackTraces));
+  }
+
+  /**
+   * Reports that a source couldn't be read, so it's skipped for the rest of
+   * the parse.
+   *
+   * @param source The index of the source.
+   *
+   * @param option The option the source was asked for.
+   */
+  void brokenSource(int source, ArgumentParsingException ex, String option)
+    throws ArgumentParsingException {
+    if (brokenSources == null) {
+      brokenSources = new BitSet(sources.size());
+    }
+    brokenSources.set(source);
+    // The option isn't given at all, so it has no index
+    problem(Diagnostic.Reason.SOURCE, option, null, -1, ex);
+  }
+
+  /**
+   * @return Whether a source has been found broken in this parse, see
+   * {@link #brokenSource(int, ArgumentParsingException, String)}.
+   */
+  boolean isBroken(int source) {
+    return brokenSources != null && brokenSources.get(source);
+  }
+
+  private void problem(Diagnostic.Reason reason,
+                       String option,
+                       String value,
+                       int index,
+                       ArgumentParsingException cause)
+    throws ArgumentParsingException {
+    if (diagnostics != null) {
+      diagnostics.add(new Diagnostic(reason, option, value, index, cause));
+      return;
+    }
+
+    if (cause != null) {
+      throw cause;
+    }
+
+    throw exception(null, reason.getPattern(), option, value);
+  }
+
+  /**
+   * A {@link NoSuchOptionException} that looks for suggestions only when they
+   * (or the message) are asked for, so unknown options are cheap when nobody
+   * looks, e.g. when the problems of malformed input are only counted.
+   */
+  private static final class UnknownOptionException
+    extends NoSuchOptionException {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient OptionIndex optionIndex;
+
+    private transient List<String> suggestions;
+
+    private UnknownOptionException(String option,
+                                   OptionIndex optionIndex,
+                                   boolean stackTrace) {
+      super(option, null, stackTrace);
+      this.optionIndex = optionIndex;
+    }
+
+    @Override
+    public List<String> getSuggestions() {
+      if (suggestions == null) {
+        suggestions = ((optionIndex == null)
+                       ? Collections.<String>emptyList()
+                       : Collections.unmodifiableList(
+                         optionIndex.suggest(getOption())));
+      }
+
+      return suggestions;
+    }
+
+  }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.util.List;
+
+/**
+ * Receives events from parsing, e.g. for metrics or tracing. Set one with
+ * {@link Parser#withListener(com.munkei.ParseListener)} or
+ * {@link JArgP#setParseListener(com.munkei.ParseListener)}.
+ * <p>
+ * All methods do nothing by default. Without a listener (i.e. with
+ * {@link #NONE}) the parser doesn't even read the clock, so instrumentation
+ * costs nothing unless it's used. Listeners must be thread-safe if the parser
+ * is shared by several threads.
+ * <p>
+ * Options are identified by {@link Option} objects, which are the same for
+ * all names of an option and all parses. Options defined in code (see
+ * {@link OptionSet}) have no fields, but they do have names (see
+ * {@link Option#getPrimaryName()}).
+ * <p>
+ * A listener that emits JDK Flight Recorder events,
+ * <code>com.munkei.jfr.JfrParseListener</code>, is in the separate
+ * <code>jargp-jfr</code> artifact.
+ *
+ * @see ParseMetrics
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public interface ParseListener {
+
+  /**
+   * The listener that listens to nothing (the default).
+   */
+  ParseListener NONE = new ParseListener() {
+  };
+
+  /**
+   * Called when parsing starts.
+   *
+   * @param type The class of the subject.
+   *
+   * @param options The options that may be parsed, whether they are given or
+   * not. The list is the same for all parses of a class or
+   * {@link OptionSet}.
+   */
+  default void parseStarted(Class<?> type, List<Option> options) {
+  }
+
+  /**
+   * Called when parsing ends, also when it fails.
+   *
+   * @param type The class of the subject.
+   *
+   * @param nanos How long the parsing took, in nanoseconds.
+   *
+   * @param success Whether the arguments were parsed without problems.
+   */
+  default void parseFinished(Class<?> type, long nanos, boolean success) {
+  }
+
+  /**
+   * Called when an argument matches an option, before its value is
+   * converted.
+   *
+   * @param option The option.
+   *
+   * @param name The name the option was given as.
+   */
+  default void optionMatched(Option option, String name) {
+  }
+
+  /**
+   * Called when an option has been set.
+   *
+   * @param option The option.
+   *
+   * @param name The name the option was given as.
+   *
+   * @param nanos How long converting and setting the value took, in
+   * nanoseconds.
+   */
+  default void valueConverted(Option option, String name, long nanos) {
+  }
+
+  /**
+   * Called when a value is invalid, i.e. couldn't be converted or was
+   * rejected by a setter.
+   *
+   * @param option The option.
+   *
+   * @param name The name the option was given as.
+   *
+   * @param value The value.
+   *
+   * @param cause The exception.
+   */
+  default void conversionFailed(Option option,
+                                String name,
+                                String value,
+                                Exception cause) {
+  }
+
+  /**
+   * Called when an option that wasn't given has been set to its default
+   * value.
+   *
+   * @param option The option.
+   */
+  default void defaultApplied(Option option) {
+  }
+
+}
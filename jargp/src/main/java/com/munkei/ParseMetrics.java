@@ -0,0 +1,342 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ParseListener} that counts, per option, how often it's given, how
+ * often its value is invalid and how often its default value is used, and
+ * keeps histograms of how long conversions (and whole parses) take. Use it to
+ * find slow converters and options that are never used.
+ * <p>
+ * All options of a subject class (or {@link OptionSet}) are counted from its
+ * first parse, so options that are never given show up with zero hits.
+ * <p>
+ * Histograms have {@value #BUCKETS} buckets; bucket <code>i</code> counts the
+ * times in <code>[2<sup>i</sup>, 2<sup>i+1</sup>)</code> nanoseconds. The
+ * counters are thread-safe and cheap to update concurrently.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class ParseMetrics
+  implements ParseListener {
+
+  /**
+   * The number of buckets of the histograms.
+   */
+  public static final int BUCKETS = Long.SIZE;
+
+  private final LongAdder parses = new LongAdder();
+
+  private final LongAdder failedParses = new LongAdder();
+
+  private final AtomicLongArray parseTimes = new AtomicLongArray(BUCKETS);
+
+  private final ConcurrentMap<Option, OptionMetrics> options
+    = new ConcurrentHashMap<>();
+
+  private final AtomicInteger sequence = new AtomicInteger();
+
+  @Override
+  public void parseStarted(Class<?> type, List<Option> options) {
+    // The options of a class (or option set) are registered together, so if
+    // the first one is known, they all are
+    if (!options.isEmpty() && !this.options.containsKey(options.get(0))) {
+      for (Option option : options) {
+        metrics(option);
+      }
+    }
+  }
+
+  @Override
+  public void parseFinished(Class<?> type, long nanos, boolean success) {
+    parses.increment();
+    if (!success) {
+      failedParses.increment();
+    }
+    parseTimes.incrementAndGet(bucket(nanos));
+  }
+
+  @Override
+  public void optionMatched(Option option, String name) {
+    metrics(option).hits.increment();
+  }
+
+  @Override
+  public void valueConverted(Option option, String name, long nanos) {
+    metrics(option).conversionTimes.incrementAndGet(bucket(nanos));
+  }
+
+  @Override
+  public void conversionFailed(Option option,
+                               String name,
+                               String value,
+                               Exception cause) {
+    metrics(option).failures.increment();
+  }
+
+  @Override
+  public void defaultApplied(Option option) {
+    metrics(option).defaults.increment();
+  }
+
+  /**
+   * @return The number of parses.
+   */
+  public long getParses() {
+    return parses.sum();
+  }
+
+  /**
+   * @return The number of parses that failed (or had diagnostics).
+   */
+  public long getFailedParses() {
+    return failedParses.sum();
+  }
+
+  /**
+   * @return A copy of the histogram of parse times.
+   */
+  public long[] getParseTimes() {
+    return snapshot(parseTimes);
+  }
+
+  /**
+   * @return The metrics of all options seen so far, in the order they were
+   * first seen (for each class or option set, the order of the options).
+   */
+  public List<OptionMetrics> getOptionMetrics() {
+    List<OptionMetrics> list = new ArrayList<>(options.values());
+    Collections.sort(list, Comparator.comparingInt(o -> o.sequence));
+    return list;
+  }
+
+  /**
+   * Gets the metrics of an option.
+   *
+   * @param field The option's field.
+   *
+   * @return The metrics, or <code>null</code> if the option hasn't been seen.
+   */
+  public OptionMetrics getOptionMetrics(Field field) {
+    for (OptionMetrics metrics : options.values()) {
+      if (field.equals(metrics.option.getField())) {
+        return metrics;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Writes the metrics as tab-separated values: a header, a row named
+   * <code>*</code> for whole parses (with the number of parses as hits and
+   * failed parses as failures), and a row per option, named by
+   * {@link OptionMetrics#getName()}. Times are the upper bounds of the
+   * histogram buckets of the median and the 99th percentile, in nanoseconds.
+   *
+   * @param output Where to write to.
+   *
+   * @throws IOException If <code>output</code> throws one.
+   */
+  public void export(Appendable output)
+    throws IOException {
+    output.append("option\thits\tfailures\tdefaults\tp50-ns\tp99-ns\n");
+
+    long[] times = getParseTimes();
+    row(output, "*", getParses(), getFailedParses(), 0L, times);
+
+    for (OptionMetrics metrics : getOptionMetrics()) {
+      times = metrics.getConversionTimes();
+      row(output,
+          metrics.getName(),
+          metrics.getHits(),
+          metrics.getFailures(),
+          metrics.getDefaults(),
+          times);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    try {
+      export(builder);
+    } catch (IOException ex) {
+      // StringBuilders don't throw
+      throw new IllegalStateException(ex);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Gets the upper bound of the bucket that holds a percentile.
+   *
+   * @param histogram The histogram.
+   *
+   * @param percentile The percentile, between 0 and 1.
+   *
+   * @return The upper bound, or 0 if the histogram is empty.
+   */
+  public static long percentile(long[] histogram, double percentile) {
+    long total = 0L;
+    for (long count : histogram) {
+      total += count;
+    }
+    if (total == 0L) {
+      return 0L;
+    }
+
+    long rank = Math.max(1L, (long) Math.ceil(total * percentile));
+    long seen = 0L;
+    for (int i = 0; i < histogram.length; ++i) {
+      seen += histogram[i];
+      if (seen >= rank) {
+        return ((i + 1 < Long.SIZE - 1) ? (1L << (i + 1)) : Long.MAX_VALUE);
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  private OptionMetrics metrics(Option option) {
+    return options.computeIfAbsent(
+      option,
+      key -> new OptionMetrics(key, sequence.getAndIncrement()));
+  }
+
+  private static int bucket(long nanos) {
+    return (Long.SIZE - 1) - Long.numberOfLeadingZeros(Math.max(1L, nanos));
+  }
+
+  private static long[] snapshot(AtomicLongArray histogram) {
+    long[] copy = new long[histogram.length()];
+    for (int i = 0; i < copy.length; ++i) {
+      copy[i] = histogram.get(i);
+    }
+    return copy;
+  }
+
+  private static void row(Appendable output,
+                          String name,
+                          long hits,
+                          long failures,
+                          long defaults,
+                          long[] times)
+    throws IOException {
+    output.append(name)
+      .append('\t').append(Long.toString(hits))
+      .append('\t').append(Long.toString(failures))
+      .append('\t').append(Long.toString(defaults))
+      .append('\t').append(Long.toString(percentile(times, 0.5)))
+      .append('\t').append(Long.toString(percentile(times, 0.99)))
+      .append('\n');
+  }
+
+  /**
+   * The metrics of one option.
+   */
+  public static final class OptionMetrics {
+
+    private final Option option;
+
+    private final int sequence;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder defaults = new LongAdder();
+
+    private final AtomicLongArray conversionTimes
+      = new AtomicLongArray(BUCKETS);
+
+    private OptionMetrics(Option option, int sequence) {
+      this.option = option;
+      this.sequence = sequence;
+    }
+
+    public Option getOption() {
+      return option;
+    }
+
+    /**
+     * @return The option's field, or <code>null</code> for options defined in
+     * code (see {@link OptionSet}).
+     */
+    public Field getField() {
+      return option.getField();
+    }
+
+    /**
+     * @return <code>class.field</code>, or for options without fields, the
+     * option's primary name (see {@link Option#getPrimaryName()}).
+     */
+    public String getName() {
+      Field field = option.getField();
+      return ((field == null)
+              ? option.getPrimaryName()
+              : field.getDeclaringClass().getName() + "." + field.getName());
+    }
+
+    /**
+     * @return How many times the option was given.
+     */
+    public long getHits() {
+      return hits.sum();
+    }
+
+    /**
+     * @return How many times the option's value was invalid.
+     */
+    public long getFailures() {
+      return failures.sum();
+    }
+
+    /**
+     * @return How many times the option's default value was used.
+     */
+    public long getDefaults() {
+      return defaults.sum();
+    }
+
+    /**
+     * @return A copy of the histogram of how long it took to convert and set
+     * the option's value.
+     */
+    public long[] getConversionTimes() {
+      return snapshot(conversionTimes);
+    }
+
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of parsing one argument list with a {@link Parser}: either a
+ * subject and the remaining parameters, or an error. Results of
+ * {@link Parser#tryParse(java.lang.String[], java.util.function.Supplier)}
+ * always have a subject, and any problems as {@link Diagnostic}s.
+ *
+ * @param <T> The type of the subject.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class ParseResult<T> {
+
+  private final T subject;
+
+  private final List<String> remaining;
+
+  private final Exception error;
+
+  private final List<Diagnostic> diagnostics;
+
+  ParseResult(T subject,
+              List<String> remaining,
+              Exception error,
+              List<Diagnostic> diagnostics) {
+    this.subject = subject;
+    this.remaining = ((remaining == null)
+                      ? Collections.<String>emptyList()
+                      : Collections.unmodifiableList(remaining));
+    this.error = error;
+    this.diagnostics = ((diagnostics == null)
+                        ? Collections.<Diagnostic>emptyList()
+                        : diagnostics);
+  }
+
+  /**
+   * @return <code>true</code> if the arguments were parsed without errors or
+   * diagnostics.
+   */
+  public boolean isSuccess() {
+    return error == null && diagnostics.isEmpty();
+  }
+
+  /**
+   * @return The subject that the options were set to, or <code>null</code> if
+   * parsing failed.
+   */
+  public T getSubject() {
+    return subject;
+  }
+
+  /**
+   * @return The remaining parameters (i.e. arguments that are not options or
+   * values of options), empty if parsing failed.
+   */
+  public List<String> getRemaining() {
+    return remaining;
+  }
+
+  /**
+   * @return The {@link com.munkei.exception.NoSuchOptionException} or
+   * {@link com.munkei.exception.ArgumentParsingException} that parsing failed
+   * with, or <code>null</code>.
+   */
+  public Exception getError() {
+    return error;
+  }
+
+  /**
+   * @return The problems that were collected, in the order they were found.
+   * Empty unless the result is from
+   * {@link Parser#tryParse(java.lang.String[], java.util.function.Supplier)}.
+   */
+  public List<Diagnostic> getDiagnostics() {
+    return diagnostics;
+  }
+
+}
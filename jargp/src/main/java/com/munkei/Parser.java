@@ -0,0 +1,808 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import com.munkei.exception.NoSuchOptionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * An immutable, thread-safe parser for subjects of a class.
+ * <p>
+ * Unlike {@link JArgP}, a {@link Parser} isn't tied to a subject; each call to
+ * {@link #parse(java.lang.String[], java.util.function.Supplier)} parses into
+ * a new subject from a {@link Supplier}. One {@link Parser} may thus be shared
+ * by any number of threads, and many argument lists can be parsed in parallel
+ * with {@link #parseAll(java.util.List, java.util.function.Supplier)}.
+ *
+ * @param <T> The type of the subjects.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class Parser<T> {
+
+  /**
+   * Batches smaller than this are parsed by one thread.
+   */
+  private static final int BATCH_THRESHOLD = 64;
+
+  private final Class<T> type;
+
+  private final Schema schema;
+
+  private final String argumentFilePrefix;
+
+  private final boolean stackTraces;
+
+  private final ParseListener listener;
+
+  private final List<OptionSource> sources;
+
+  /**
+   * Creates a parser for subjects of a class.
+   *
+   * @param type The class with the annotated members.
+   *
+   * @throws NullPointerException If <code>type</code> is <code>null</code>.
+   *
+   * @throws IllegalArgumentException If an annotated field, or its setter,
+   * can't be found or accessed.
+   */
+  public Parser(Class<T> type)
+    throws NullPointerException,
+           IllegalArgumentException {
+    this(type,
+         Schema.forClass(type),
+         null,
+         true,
+         ParseListener.NONE,
+         Collections.<OptionSource>emptyList());
+  }
+
+  private Parser(Class<T> type,
+                 Schema schema,
+                 String argumentFilePrefix,
+                 boolean stackTraces,
+                 ParseListener listener,
+                 List<OptionSource> sources) {
+    this.type = type;
+    this.schema = schema;
+    this.argumentFilePrefix = argumentFilePrefix;
+    this.stackTraces = stackTraces;
+    this.listener = listener;
+    this.sources = sources;
+  }
+
+  /**
+   * Gets a parser that expands argument files.
+   *
+   * @param argumentFilePrefix The prefix, or <code>null</code> to disable
+   * expansion.
+   *
+   * @return A parser like this one, but with the prefix.
+   *
+   * @throws IllegalArgumentException If <code>argumentFilePrefix</code> is
+   * empty.
+   *
+   * @see JArgP#setArgumentFilePrefix(java.lang.String)
+   */
+  public Parser<T> withArgumentFilePrefix(String argumentFilePrefix)
+    throws IllegalArgumentException {
+    if (argumentFilePrefix != null && argumentFilePrefix.isEmpty()) {
+      throw new IllegalArgumentException("Argument file prefix may not be empty");
+    }
+
+    return new Parser<>(type,
+                        schema,
+                        argumentFilePrefix,
+                        stackTraces,
+                        listener,
+                        sources);
+  }
+
+  /**
+   * Gets a parser that does, or doesn't, fill in the stack traces of the
+   * exceptions it throws. Exceptions without stack traces are much cheaper to
+   * create, which matters if much of the input is invalid.
+   *
+   * @param stackTraces Whether to fill in stack traces (the default).
+   *
+   * @return A parser like this one, but with the setting.
+   */
+  public Parser<T> withStackTraces(boolean stackTraces) {
+    return new Parser<>(type,
+                        schema,
+                        argumentFilePrefix,
+                        stackTraces,
+                        listener,
+                        sources);
+  }
+
+  /**
+   * Gets a parser that notifies a listener of what it does.
+   *
+   * @param listener The listener, or <code>null</code> (or
+   * {@link ParseListener#NONE}) for none.
+   *
+   * @return A parser like this one, but with the listener.
+   */
+  public Parser<T> withListener(ParseListener listener) {
+    return new Parser<>(type,
+                        schema,
+                        argumentFilePrefix,
+                        stackTraces,
+                        ((listener == null) ? ParseListener.NONE : listener),
+                        sources);
+  }
+
+  /**
+   * Gets a parser that takes the values of options that aren't given on the
+   * command line from other sources, e.g. environment variables or a
+   * configuration file. For each such option, the sources are asked in order,
+   * and the first value found is used. Only if no source has a value is the
+   * option's default value used.
+   *
+   * @param sources The sources, highest precedence first.
+   *
+   * @return A parser like this one, but with the sources (instead of any
+   * sources that this one has).
+   *
+   * @throws NullPointerException If <code>sources</code>, or one of them, is
+   * <code>null</code>.
+   *
+   * @see OptionSources
+   */
+  public Parser<T> withSources(OptionSource... sources)
+    throws NullPointerException {
+    for (OptionSource source : sources) {
+      if (source == null) {
+        throw new NullPointerException("Sources may not be null");
+      }
+    }
+
+    return new Parser<>(type,
+                        schema,
+                        argumentFilePrefix,
+                        stackTraces,
+                        listener,
+                        Collections.unmodifiableList(
+                          new ArrayList<>(Arrays.asList(sources))));
+  }
+
+  /**
+   * @return The class of the subjects.
+   */
+  public Class<T> getType() {
+    return type;
+  }
+
+  /**
+   * Parses command line arguments into a new subject.
+   * <p>
+   * Unless argument files are enabled, the values of array and collection
+   * options are counted before any are parsed, so arrays (and collections that
+   * the parse creates) are allocated at their final size. Arguments from
+   * iterators and streams (see {@link JArgP#parse(java.util.Iterator)}) can't
+   * be looked ahead in, so there they grow as needed.
+   *
+   * @param args The command line arguments.
+   *
+   * @param factory Creates the subject.
+   *
+   * @return The subject and the remaining parameters.
+   *
+   * @throws NullPointerException If <code>args</code> or <code>factory</code>
+   * is <code>null</code>, or if <code>factory</code> returns
+   * <code>null</code>.
+   *
+   * @throws NoSuchOptionException If an option is encountered that is not
+   * configured.
+   *
+   * @throws ArgumentParsingException If something goes wrong with the parsing
+   * or setting of parameters.
+   */
+  public ParseResult<T> parse(String[] args, Supplier<? extends T> factory)
+    throws NullPointerException,
+           NoSuchOptionException,
+           ArgumentParsingException {
+    if (args == null) {
+      throw new NullPointerException("Arguments may not be null");
+    }
+    if (factory == null) {
+      throw new NullPointerException("Factory may not be null");
+    }
+
+    T subject = create(factory);
+    List<String> remaining = new ArrayList<>();
+    parse(subject, new ArgumentArray(args), remaining::add);
+    return new ParseResult<>(subject, remaining, null, null);
+  }
+
+  /**
+   * Like {@link #parse(java.lang.String[], java.util.function.Supplier)}, but
+   * doesn't throw on invalid arguments. Instead, all problems are collected as
+   * {@link Diagnostic}s in the result (see
+   * {@link ParseResult#getDiagnostics()}), and parsing goes on where possible:
+   * unknown options, invalid values and argument files that can't be read are
+   * skipped, and default values are still set.
+   * <p>
+   * No stack traces are filled in for the exceptions that are created along
+   * the way.
+   *
+   * @param args The command line arguments.
+   *
+   * @param factory Creates the subject.
+   *
+   * @return The subject, the remaining parameters and the problems, if any.
+   *
+   * @throws NullPointerException If <code>args</code> or <code>factory</code>
+   * is <code>null</code>, or if <code>factory</code> returns
+   * <code>null</code>.
+   */
+  public ParseResult<T> tryParse(String[] args, Supplier<? extends T> factory)
+    throws NullPointerException {
+    if (args == null) {
+      throw new NullPointerException("Arguments may not be null");
+    }
+    if (factory == null) {
+      throw new NullPointerException("Factory may not be null");
+    }
+
+    T subject = create(factory);
+    List<String> remaining = new ArrayList<>();
+    List<Diagnostic> diagnostics = tryParse(subject,
+                                            new ArgumentArray(args),
+                                            remaining::add);
+    return new ParseResult<>(subject, remaining, null, diagnostics);
+  }
+
+  /**
+   * Like {@link #parseAll(java.util.List, java.util.function.Supplier,
+   * java.util.concurrent.ForkJoinPool)}, with the common pool.
+   *
+   * @param argsList The argument lists.
+   *
+   * @param factory Creates the subjects.
+   *
+   * @return The results, in the order of <code>argsList</code>.
+   */
+  public List<ParseResult<T>> parseAll(List<String[]> argsList,
+                                       Supplier<? extends T> factory)
+    throws NullPointerException {
+    return parseAll(argsList, factory, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parses many argument lists in parallel, each into a new subject.
+   * <p>
+   * Parsing errors don't stop the batch; an argument list that fails is
+   * represented by a result that holds the exception (see
+   * {@link ParseResult#getError()}).
+   *
+   * @param argsList The argument lists.
+   *
+   * @param factory Creates the subjects. Called concurrently.
+   *
+   * @param pool The pool to parse in.
+   *
+   * @return The results, in the order of <code>argsList</code>.
+   *
+   * @throws NullPointerException If an argument, or one of the argument lists,
+   * is <code>null</code>.
+   */
+  public List<ParseResult<T>> parseAll(List<String[]> argsList,
+                                       Supplier<? extends T> factory,
+                                       ForkJoinPool pool)
+    throws NullPointerException {
+    if (argsList == null) {
+      throw new NullPointerException("Argument lists may not be null");
+    }
+    if (factory == null) {
+      throw new NullPointerException("Factory may not be null");
+    }
+    if (pool == null) {
+      throw new NullPointerException("Pool may not be null");
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    ParseResult<T>[] results = new ParseResult[argsList.size()];
+    pool.invoke(new Batch(argsList, factory, results, 0, results.length));
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Parses into a subject, throwing on the first problem.
+   */
+  void parse(Object subject,
+             Iterator<? extends CharSequence> args,
+             Consumer<? super String> positional)
+    throws NoSuchOptionException,
+           ArgumentParsingException {
+    parse(new ParseContext(subject,
+                           schema,
+                           stackTraces,
+                           false,
+                           listener,
+                           sources),
+          expand(args),
+          positional);
+  }
+
+  /**
+   * Creates a context, for subjects to be set with
+   * {@link ParseContext#reset(java.lang.Object)}, that throws on the first
+   * problem.
+   */
+  ParseContext newContext() {
+    return new ParseContext(null,
+                            schema,
+                            stackTraces,
+                            false,
+                            listener,
+                            sources);
+  }
+
+  /**
+   * Parses into a subject, collecting all problems.
+   *
+   * @return The problems.
+   */
+  List<Diagnostic> tryParse(Object subject,
+                            Iterator<? extends CharSequence> args,
+                            Consumer<? super String> positional) {
+    ParseContext context = new ParseContext(subject,
+                                            schema,
+                                            false,
+                                            true,
+                                            listener,
+                                            sources);
+    try {
+      parse(context, expand(args), positional);
+    } catch (NoSuchOptionException | ArgumentParsingException ex) {
+      // Problems are collected, not thrown
+      throw new IllegalStateException(ex);
+    }
+
+    return context.getDiagnostics();
+  }
+
+  /**
+   * Parses arguments whose argument files have already been expanded (see
+   * {@link #expand(java.util.Iterator)}), optionally only up to the first
+   * parameter.
+   *
+   * @param stopAtParameter Whether to stop after the first parameter (or
+   * after <code>--</code>), leaving the rest of the arguments in
+   * <code>args</code>.
+   */
+  void parseExpanded(Object subject,
+                     Iterator<? extends CharSequence> args,
+                     Consumer<? super String> positional,
+                     boolean stopAtParameter)
+    throws NoSuchOptionException,
+           ArgumentParsingException {
+    ParseContext context = new ParseContext(subject,
+                                            schema,
+                                            stackTraces,
+                                            false,
+                                            listener,
+                                            sources);
+    if (stopAtParameter) {
+      context.stopAtParameter();
+    }
+    parse(context, args, positional);
+  }
+
+  /**
+   * @return <code>args</code>, with argument files expanded if enabled.
+   */
+  Iterator<? extends CharSequence> expand(
+    Iterator<? extends CharSequence> args) {
+    return ((argumentFilePrefix == null)
+            ? args
+            : new ArgumentFiles(args, argumentFilePrefix));
+  }
+
+  /**
+   * Creates a parser with a schema that isn't that of the class, i.e. one of
+   * an {@link OptionSet}.
+   */
+  static <T> Parser<T> forSchema(Class<T> type, Schema schema) {
+    return new Parser<>(type,
+                        schema,
+                        null,
+                        true,
+                        ParseListener.NONE,
+                        Collections.<OptionSource>emptyList());
+  }
+
+  /**
+   * Gets a parser for another subject, with the same settings (and sources)
+   * as this one, except argument files, which are expanded up front.
+   */
+  Parser<?> derive(Object subject) {
+    return new Parser<>(subject.getClass(),
+                        Schema.forSubject(subject),
+                        null,
+                        stackTraces,
+                        listener,
+                        sources);
+  }
+
+  Schema getSchema() {
+    return schema;
+  }
+
+  private ParseResult<T> parseOrFail(String[] args,
+                                     Supplier<? extends T> factory) {
+    try {
+      return parse(args, factory);
+    } catch (NoSuchOptionException | ArgumentParsingException ex) {
+      return new ParseResult<>(null, null, ex, null);
+    }
+  }
+
+  private static <T> T create(Supplier<? extends T> factory) {
+    T subject = factory.get();
+    if (subject == null) {
+      throw new NullPointerException("Factory returned null");
+    }
+
+    return subject;
+  }
+
+  /**
+   * Parses with a context (that has been reset to a subject).
+   */
+  void parse(ParseContext context,
+             Iterator<? extends CharSequence> args,
+             Consumer<? super String> positional)
+    throws NoSuchOptionException,
+           ArgumentParsingException {
+    if (!context.isListening()) {
+      parseArguments(context, args, positional);
+      return;
+    }
+
+    Class<?> subjectType = context.getSubject().getClass();
+    context.getListener().parseStarted(subjectType, schema.getOptions());
+    long start = System.nanoTime();
+    boolean success = false;
+    try {
+      parseArguments(context, args, positional);
+      success = context.getDiagnostics().isEmpty();
+    } finally {
+      context.getListener().parseFinished(subjectType,
+                                          System.nanoTime() - start,
+                                          success);
+    }
+  }
+
+  private void parseArguments(ParseContext context,
+                              Iterator<? extends CharSequence> args,
+                              Consumer<? super String> positional)
+    throws NoSuchOptionException,
+           ArgumentParsingException {
+    if (args instanceof ArgumentArray && schema.hasCountedOptions()) {
+      count(context, (ArgumentArray) args);
+    }
+
+    parseTokens(context, args, positional);
+  }
+
+  private void parseTokens(ParseContext context,
+                           Iterator<? extends CharSequence> args,
+                           Consumer<? super String> positional)
+    throws NoSuchOptionException,
+           ArgumentParsingException {
+    OptionIndex index = schema.getIndex();
+    Token token = new Token();
+
+    arguments:
+    while (context.hasNext(args)) {
+      token.classify(context.next(args));
+      CharSequence arg = token.getArgument();
+      int position = context.getIndex();
+
+      switch (token.getKind()) {
+        case END_OF_OPTIONS:
+          if (context.stopsAtParameter()) {
+            // The next argument is the parameter, even if it looks like an
+            // option
+            if (context.hasNext(args)) {
+              positional.accept(context.next(args).toString());
+            }
+            break arguments;
+          }
+          while (context.hasNext(args)) {
+            positional.accept(context.next(args).toString());
+          }
+          break;
+
+        case LONG: {
+          int start = token.getNameStart();
+          int end = token.getNameEnd();
+
+          // Names (and abbreviations) first, then patterns
+          String name = index.resolve(arg, start, end, true);
+          Option option = ((name != null)
+                           ? index.get(name)
+                           : index.match(arg, start, end, false));
+          if (option == null) {
+            context.unknownOption(arg.subSequence(start, end).toString(),
+                                  position);
+            break;
+          }
+          if (name == null) {
+            name = arg.subSequence(start, end).toString();
+          }
+
+          String value = null;
+          if (token.hasValue()) {
+            if (!option.takesValue()) {
+              context.unexpectedValue(name, token.getValue(), position);
+              break;
+            }
+            value = token.getValue();
+          } else if (option.takesValue()) {
+            if (!context.hasNext(args)) {
+              context.missingValue(name, position);
+              break;
+            }
+            value = context.next(args).toString();
+          }
+
+          set(context, option, name, value, position);
+          break;
+        }
+
+        case SHORT:
+          // The first option that takes a value ends the cluster
+          for (int i = token.getNameStart(); i < token.getNameEnd(); ++i) {
+            String name = index.resolve(arg, i, i + 1, false);
+            Option option = ((name != null)
+                             ? index.get(name)
+                             : index.match(arg, i, i + 1, true));
+            if (option == null) {
+              context.unknownOption(String.valueOf(arg.charAt(i)), position);
+              continue;
+            }
+            if (name == null) {
+              name = String.valueOf(arg.charAt(i));
+            }
+
+            if (!option.takesValue()) {
+              set(context, option, name, null, position);
+              continue;
+            }
+
+            if (i + 1 < token.getNameEnd()) {
+              set(context, option, name, token.value(i + 1), position);
+            } else if (context.hasNext(args)) {
+              set(context,
+                  option,
+                  name,
+                  context.next(args).toString(),
+                  position);
+            } else {
+              context.missingValue(name, position);
+            }
+            break;
+          }
+          break;
+
+        default:
+          // This wasn't an option
+          positional.accept(arg.toString());
+          if (context.stopsAtParameter()) {
+            break arguments;
+          }
+      }
+    }
+
+    context.flushElements();
+    if (context.getSet() != null) {
+      schema.complete(context);
+    }
+  }
+
+  /**
+   * Counts the values of the options that are allocated at their final size
+   * (see {@link Option#isCounted()}), in the arguments that are left, and
+   * presizes their collections. Only arrays of arguments are counted, since
+   * they can be looked ahead in for free; other arguments are parsed with
+   * collections and arrays that grow as needed.
+   * <p>
+   * This is a cheap pass over the arguments: names are resolved, but no
+   * values are converted, and problems are left to the parse proper.
+   */
+  private void count(ParseContext context, ArgumentArray args) {
+    OptionIndex index = schema.getIndex();
+    Token token = new Token();
+    String[] array = args.getArgs();
+    int[] counts = null;
+
+    arguments:
+    for (int i = args.getPosition(); i < array.length; ++i) {
+      String arg = array[i];
+      Option option = null;
+      int valueStart = -1;
+
+      switch (token.classify(arg).getKind()) {
+        case END_OF_OPTIONS:
+          break arguments;
+
+        case LONG: {
+          int start = token.getNameStart();
+          int end = token.getNameEnd();
+          String name = index.resolve(arg, start, end, true);
+          option = ((name != null)
+                    ? index.get(name)
+                    : index.match(arg, start, end, false));
+          valueStart = token.getValueStart();
+          break;
+        }
+
+        case SHORT:
+          // Like the parse, up to the first option that takes a value
+          for (int j = token.getNameStart(); j < token.getNameEnd(); ++j) {
+            String name = index.resolve(arg, j, j + 1, false);
+            option = ((name != null)
+                      ? index.get(name)
+                      : index.match(arg, j, j + 1, true));
+            if (option != null && option.takesValue()) {
+              valueStart = ((j + 1 < token.getNameEnd()) ? j + 1 : -1);
+              break;
+            }
+          }
+          break;
+
+        default:
+          if (context.stopsAtParameter()) {
+            break arguments;
+          }
+      }
+
+      if (option == null || !option.takesValue()) {
+        continue;
+      }
+
+      String value = arg;
+      if (valueStart < 0) {
+        if (i + 1 >= array.length) {
+          break;
+        }
+        value = array[++i];
+        valueStart = 0;
+      }
+
+      if (option.isCounted()) {
+        if (counts == null) {
+          counts = new int[schema.getOptions().size()];
+        }
+        counts[option.getOrdinal()] += option.countElements(value,
+                                                            valueStart,
+                                                            value.length());
+      }
+    }
+
+    if (counts == null) {
+      return;
+    }
+
+    context.setCounts(counts);
+    for (Option option : schema.getOptions()) {
+      if (counts[option.getOrdinal()] > 0) {
+        option.presize(context.getSubject(), counts[option.getOrdinal()]);
+      }
+    }
+  }
+
+  private static void set(ParseContext context,
+                          Option option,
+                          String name,
+                          String value,
+                          int position)
+    throws ArgumentParsingException {
+    long start = 0L;
+    if (context.isListening()) {
+      context.getListener().optionMatched(option, name);
+      start = System.nanoTime();
+    }
+
+    try {
+      option.set(context, name, value);
+    } catch (ArgumentParsingException ex) {
+      if (context.isListening()) {
+        context.getListener().conversionFailed(option,
+                                               name,
+                                               value,
+                                               ex);
+      }
+      context.invalidValue(ex, name, value, position);
+      return;
+    }
+
+    if (context.isListening()) {
+      context.getListener().valueConverted(option,
+                                           name,
+                                           System.nanoTime() - start);
+    }
+    context.set(option);
+  }
+
+  /**
+   * Parses the argument lists <code>[start, end)</code>, splitting the range
+   * until it's small enough.
+   */
+  private final class Batch
+    extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String[]> argsList;
+
+    private final Supplier<? extends T> factory;
+
+    private final ParseResult<T>[] results;
+
+    private final int start;
+
+    private final int end;
+
+    private Batch(List<String[]> argsList,
+                  Supplier<? extends T> factory,
+                  ParseResult<T>[] results,
+                  int start,
+                  int end) {
+      this.argsList = argsList;
+      this.factory = factory;
+      this.results = results;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= BATCH_THRESHOLD) {
+        for (int i = start; i < end; ++i) {
+          results[i] = parseOrFail(argsList.get(i), factory);
+        }
+        return;
+      }
+
+      int middle = (start + end) >>> 1;
+      invokeAll(new Batch(argsList, factory, results, start, middle),
+                new Batch(argsList, factory, results, middle, end));
+    }
+
+  }
+
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An {@link OptionSource} of a properties file.
+ * <p>
+ * The first lookup maps the file into memory and scans it once, indexing the
+ * keys that have the prefix by the offsets of their (raw) values. The prefix
+ * is compared with the raw bytes of each key, and only keys that have it are
+ * decoded while scanning; a value is decoded, and its escapes and line
+ * continuations resolved, when it's looked up.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class PropertiesFile
+  implements OptionSource {
+
+  private final Path file;
+
+  private final String prefix;
+
+  private volatile Index index;
+
+  PropertiesFile(Path file, String prefix) {
+    this.file = file;
+    this.prefix = prefix;
+  }
+
+  @Override
+  public String get(String name)
+    throws ArgumentParsingException {
+    Index current = index;
+    if (current == null) {
+      current = index();
+    }
+
+    Long range = current.values.get(name);
+    if (range == null) {
+      return null;
+    }
+
+    int start = (int) (range >>> 32);
+    int end = (int) (long) range;
+    return unescape(decode(current.buffer, start, end));
+  }
+
+  private synchronized Index index()
+    throws ArgumentParsingException {
+    if (index == null) {
+      ByteBuffer buffer;
+      try (FileChannel channel = FileChannel.open(file,
+                                                  StandardOpenOption.READ)) {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      } catch (IOException | RuntimeException ex) {
+        throw new ArgumentParsingException(
+          ex,
+          "Failed to read properties file ''{0}''.",
+          file);
+      }
+      index = new Index(buffer, scan(buffer, prefix));
+    }
+
+    return index;
+  }
+
+  /**
+   * Scans the lines of a file for keys with the prefix.
+   *
+   * @return The ranges of the values (start in the high half, end in the low
+   * half) by key, without the prefix.
+   */
+  private static Map<String, Long> scan(ByteBuffer buffer, String prefix) {
+    byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+    Map<String, Long> values = new HashMap<>();
+    int limit = buffer.limit();
+    int position = 0;
+
+    while (position < limit) {
+      position = skipWhitespace(buffer, position, true);
+      if (position >= limit) {
+        break;
+      }
+
+      byte b = buffer.get(position);
+      if (b == '#' || b == '!') {
+        // Comments don't continue, even if they end with a backslash
+        position = nextNewline(buffer, position);
+        continue;
+      }
+
+      // The key ends at an unescaped separator or whitespace
+      int keyStart = position;
+      int firstEscape = -1;
+      while (position < limit) {
+        b = buffer.get(position);
+        if (b == '\\') {
+          if (firstEscape < 0) {
+            firstEscape = position;
+          }
+          position = skipEscape(buffer, position);
+          continue;
+        }
+        if (b == '=' || b == ':' || isWhitespace(b) || isNewline(b)) {
+          break;
+        }
+        ++position;
+      }
+      int keyEnd = position;
+
+      position = skipWhitespace(buffer, position, false);
+      if (position < limit
+        && (buffer.get(position) == '=' || buffer.get(position) == ':')) {
+        position = skipWhitespace(buffer, position + 1, false);
+      }
+
+      int valueStart = position;
+      position = endOfLine(buffer, position);
+
+      String name;
+      switch (matchPrefix(buffer, keyStart, keyEnd, firstEscape, prefixBytes)) {
+        case MISMATCH:
+          continue;
+        case MATCH:
+          name = decode(buffer, keyStart + prefixBytes.length, keyEnd);
+          if (firstEscape >= 0) {
+            name = unescape(name);
+          }
+          break;
+        default: {
+          // The prefix may be (partly) escaped in the key
+          String key = unescape(decode(buffer, keyStart, keyEnd));
+          if (!key.startsWith(prefix)) {
+            continue;
+          }
+          name = key.substring(prefix.length());
+        }
+      }
+
+      // Later lines win, like in java.util.Properties
+      values.put(name, ((long) valueStart << 32) | position);
+    }
+
+    return values;
+  }
+
+  /**
+   * Compares the prefix with the raw bytes of a key. Before the first escape
+   * sequence the bytes of a key are those of its (decoded) name, so the key
+   * only has to be decoded if the prefix reaches that far.
+   *
+   * @param firstEscape The offset of the first backslash in the key, or -1.
+   */
+  private static Prefix matchPrefix(ByteBuffer buffer,
+                                    int keyStart,
+                                    int keyEnd,
+                                    int firstEscape,
+                                    byte[] prefix) {
+    int end = ((firstEscape < 0) ? keyEnd : firstEscape);
+    for (int i = 0; i < prefix.length; ++i) {
+      if (keyStart + i >= end) {
+        return ((firstEscape < 0) ? Prefix.MISMATCH : Prefix.UNKNOWN);
+      }
+      if (buffer.get(keyStart + i) != prefix[i]) {
+        return Prefix.MISMATCH;
+      }
+    }
+
+    return Prefix.MATCH;
+  }
+
+  /**
+   * @return The offset of the next newline (or the end), escaped or not.
+   */
+  private static int nextNewline(ByteBuffer buffer, int position) {
+    int limit = buffer.limit();
+    while (position < limit && !isNewline(buffer.get(position))) {
+      ++position;
+    }
+
+    return position;
+  }
+
+  /**
+   * @return The offset of the end of the (logical) line, i.e. of the first
+   * newline that isn't escaped.
+   */
+  private static int endOfLine(ByteBuffer buffer, int position) {
+    int limit = buffer.limit();
+    while (position < limit) {
+      byte b = buffer.get(position);
+      if (b == '\\') {
+        position = skipEscape(buffer, position);
+      } else if (isNewline(b)) {
+        break;
+      } else {
+        ++position;
+      }
+    }
+
+    return position;
+  }
+
+  /**
+   * @return The offset after the escape sequence at the offset (a
+   * <code>\r\n</code> after a backslash counts as one character).
+   */
+  private static int skipEscape(ByteBuffer buffer, int position) {
+    int limit = buffer.limit();
+    if (position + 2 < limit
+      && buffer.get(position + 1) == '\r'
+      && buffer.get(position + 2) == '\n') {
+      return position + 3;
+    }
+
+    return Math.min(position + 2, limit);
+  }
+
+  private static int skipWhitespace(ByteBuffer buffer,
+                                    int position,
+                                    boolean newlines) {
+    int limit = buffer.limit();
+    while (position < limit) {
+      byte b = buffer.get(position);
+      if (!isWhitespace(b) && !(newlines && isNewline(b))) {
+        break;
+      }
+      ++position;
+    }
+
+    return position;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\f';
+  }
+
+  private static boolean isNewline(byte b) {
+    return b == '\n' || b == '\r';
+  }
+
+  private static String decode(ByteBuffer buffer, int start, int end) {
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; ++i) {
+      bytes[i] = buffer.get(start + i);
+    }
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Resolves escape sequences and line continuations.
+   */
+  static String unescape(String raw) {
+    if (raw.indexOf('\\') < 0) {
+      return raw;
+    }
+
+    StringBuilder builder = new StringBuilder(raw.length());
+    for (int i = 0; i < raw.length(); ++i) {
+      char c = raw.charAt(i);
+      if (c != '\\') {
+        builder.append(c);
+        continue;
+      }
+      if (++i >= raw.length()) {
+        break;
+      }
+
+      c = raw.charAt(i);
+      switch (c) {
+        case '\r':
+        case '\n':
+          // A line continuation; leading whitespace of the next line is
+          // skipped
+          if (c == '\r'
+            && i + 1 < raw.length()
+            && raw.charAt(i + 1) == '\n') {
+            ++i;
+          }
+          while (i + 1 < raw.length()
+            && " \t\f".indexOf(raw.charAt(i + 1)) >= 0) {
+            ++i;
+          }
+          break;
+        case 't':
+          builder.append('\t');
+          break;
+        case 'n':
+          builder.append('\n');
+          break;
+        case 'r':
+          builder.append('\r');
+          break;
+        case 'f':
+          builder.append('\f');
+          break;
+        case 'u':
+          if (i + 4 < raw.length()) {
+            try {
+              builder.append((char) Integer.parseInt(raw.substring(i + 1,
+                                                                   i + 5),
+                                                     16));
+              i += 4;
+              break;
+            } catch (NumberFormatException ex) {
+              // Taken literally, below
+            }
+          }
+          builder.append(c);
+          break;
+        default:
+          builder.append(c);
+      }
+    }
+
+    return builder.toString();
+  }
+
+  /**
+   * Whether a key has the prefix, see
+   * {@link #matchPrefix(java.nio.ByteBuffer, int, int, int, byte[])}.
+   */
+  private enum Prefix {
+
+    MATCH,
+    MISMATCH,
+    /**
+     * The key has to be decoded to tell.
+     */
+    UNKNOWN;
+
+  }
+
+  /**
+   * A mapped file and the offsets of its values.
+   */
+  private static final class Index {
+
+    private final ByteBuffer buffer;
+
+    private final Map<String, Long> values;
+
+    private Index(ByteBuffer buffer, Map<String, Long> values) {
+      this.buffer = buffer;
+      this.values = values;
+    }
+
+  }
+
+}
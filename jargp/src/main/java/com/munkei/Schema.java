@@ -0,0 +1,278 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The compiled options of a subject class.
+ * <p>
+ * A schema is created (by reflection) once per class, the first time it is
+ * needed, and is then shared by all {@link JArgP} objects whose subjects are of
+ * that class. Schemas are immutable, and thus thread-safe.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class Schema {
+
+  private static final ClassValue<Schema> SCHEMAS = new ClassValue<Schema>() {
+
+    @Override
+    protected Schema computeValue(Class<?> type) {
+      return new Schema(type);
+    }
+
+  };
+
+  /**
+   * Gets the schema of a class.
+   *
+   * @param type The subject class.
+   *
+   * @return The (cached) schema.
+   *
+   * @throws NullPointerException If <code>type</code> is <code>null</code>.
+   */
+  static Schema forClass(Class<?> type)
+    throws NullPointerException {
+    if (type == null) {
+      throw new NullPointerException("Type may not be null");
+    }
+
+    return SCHEMAS.get(type);
+  }
+
+  /**
+   * Gets the schema of a subject: that of its {@link OptionSet}, if it's
+   * {@link OptionValues}, or else that of its class.
+   */
+  static Schema forSubject(Object subject) {
+    return ((subject instanceof OptionValues)
+            ? ((OptionValues) subject).getSchema()
+            : forClass(subject.getClass()));
+  }
+
+  private final List<Option> options;
+
+  private final OptionIndex index;
+
+  /**
+   * The ordinals of the options that have default values.
+   */
+  private final BitSet defaults = new BitSet();
+
+  /**
+   * The ordinals of all options.
+   */
+  private final BitSet all = new BitSet();
+
+  /**
+   * Whether any option is allocated at its final size, see
+   * {@link Option#isCounted()}.
+   */
+  private final boolean counted;
+
+  private final ConcurrentMap<Usage.Key, Usage> usages
+    = new ConcurrentHashMap<>();
+
+  private Schema(Class<?> type) {
+    this(annotatedOptions(type));
+  }
+
+  /**
+   * Creates a schema of options defined in code (see {@link OptionSet}).
+   *
+   * @param options The options, in ordinal order.
+   */
+  Schema(List<Option> options) {
+    boolean anyCounted = false;
+    for (Option option : options) {
+      if (option.hasDefault()) {
+        defaults.set(option.getOrdinal());
+      }
+      anyCounted |= option.isCounted();
+    }
+    this.counted = anyCounted;
+
+    this.options = Collections.unmodifiableList(options);
+    all.set(0, options.size());
+    index = new OptionIndex(this.options);
+  }
+
+  private static List<Option> annotatedOptions(Class<?> type) {
+    List<Option> list = new ArrayList<>();
+
+    for (Field field : type.getFields()) {
+      if (field.isAnnotationPresent(CommandLineOption.class)) {
+        list.add(new Option(type, field, list.size()));
+      }
+    }
+
+    return list;
+  }
+
+  List<Option> getOptions() {
+    return options;
+  }
+
+  OptionIndex getIndex() {
+    return index;
+  }
+
+  /**
+   * Sets the options that weren't set in a parse from the parse's sources, or
+   * to their default values.
+   *
+   * @param context The parse.
+   */
+  void complete(ParseContext context)
+    throws ArgumentParsingException {
+    BitSet set = context.getSet();
+    List<OptionSource> sources = context.getSources();
+    BitSet candidates = ((sources.isEmpty()) ? defaults : all);
+
+    for (int i = candidates.nextSetBit(0);
+         i >= 0;
+         i = candidates.nextSetBit(i + 1)) {
+      if (set != null && set.get(i)) {
+        continue;
+      }
+
+      Option option = options.get(i);
+      if (!sources.isEmpty() && setFromSources(context, option)) {
+        continue;
+      }
+
+      if (option.hasDefault()) {
+        option.setDefault(context.getSubject());
+        if (context.isListening()) {
+          context.getListener().defaultApplied(option);
+        }
+      }
+    }
+  }
+
+  /**
+   * Sets an option from the first source that has a value for it. Sources
+   * that can't be read are reported, and skipped for the rest of the parse.
+   *
+   * @return Whether a source had a value.
+   */
+  private static boolean setFromSources(ParseContext context, Option option)
+    throws ArgumentParsingException {
+    String name = option.getPrimaryName();
+    List<OptionSource> sources = context.getSources();
+    for (int i = 0; i < sources.size(); ++i) {
+      if (context.isBroken(i)) {
+        continue;
+      }
+
+      String value;
+      try {
+        value = sources.get(i).get(name);
+      } catch (ArgumentParsingException ex) {
+        context.brokenSource(i, ex, name);
+        continue;
+      }
+      if (value == null) {
+        continue;
+      }
+
+      try {
+        option.setSetting(context, value);
+      } catch (ArgumentParsingException ex) {
+        // The option isn't given at all, so it has no index
+        context.invalidValue(ex, name, value, -1);
+      }
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Compares the options of two subjects.
+   *
+   * @param previous A subject, or <code>null</code>.
+   *
+   * @param current Another subject.
+   *
+   * @return The ordinals of the options whose values differ (all of them, if
+   * <code>previous</code> is <code>null</code>).
+   */
+  BitSet changes(Object previous, Object current) {
+    if (previous == null) {
+      return (BitSet) all.clone();
+    }
+
+    BitSet changed = new BitSet(options.size());
+    for (Option option : options) {
+      if (!Objects.deepEquals(option.getValue(previous),
+                              option.getValue(current))) {
+        changed.set(option.getOrdinal());
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * @return Whether any option has a default value.
+   */
+  boolean hasDefaults() {
+    return !defaults.isEmpty();
+  }
+
+  /**
+   * @return Whether any option is allocated at its final size, so the values
+   * are worth counting before a parse.
+   */
+  boolean hasCountedOptions() {
+    return counted;
+  }
+
+  /**
+   * Gets the usage text, rendering the options the first time they're asked
+   * for with the same ANSI capability and width. The header isn't cached.
+   *
+   * @param header The header, or <code>null</code>.
+   *
+   * @param ansi Whether to use ANSI escape sequences.
+   *
+   * @param width The width to wrap descriptions to.
+   *
+   * @return The usage.
+   */
+  Usage getUsage(String header, boolean ansi, int width) {
+    return usages.computeIfAbsent(new Usage.Key(ansi, width),
+                                  key -> new Usage(options, ansi, width))
+      .withHeader(header);
+  }
+
+}
@@ -17,30 +17,34 @@
  * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-package com.munkei.exception;
-
-import java.text.MessageFormat;
+package com.munkei;
 
 /**
+ * The shells that completion scripts can be generated for (see
+ * {@link JArgP#getCompletionScript(com.munkei.Shell, java.lang.String)}).
  *
  * @author Theo 'Biffen' Willows <theo@willows.se>
  *
  * @since 0.0.1
  */
-public class NoSuchOptionException
-  extends Exception {
-
-  private static final long serialVersionUID = 1L;
-
-  private final String option;
-
-  public NoSuchOptionException(String option) {
-    super(MessageFormat.format("No such option ''{0}''", option));
-    this.option = option;
-  }
-
-  public String getOption() {
-    return option;
-  }
+public enum Shell {
+
+  /**
+   * Bash. The script is sourced, e.g. from
+   * <code>/etc/bash_completion.d/</code>.
+   */
+  BASH,
+
+  /**
+   * Zsh. The script is saved as <code>_command</code> in a directory in
+   * <code>$fpath</code>.
+   */
+  ZSH,
+
+  /**
+   * Fish. The script is saved as <code>command.fish</code> in
+   * <code>~/.config/fish/completions/</code>.
+   */
+  FISH
 
 }
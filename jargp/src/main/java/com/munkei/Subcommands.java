@@ -0,0 +1,264 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import com.munkei.exception.NoSuchCommandException;
+import com.munkei.exception.NoSuchOptionException;
+import java.lang.reflect.Constructor;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * An immutable, thread-safe parser for git-style command lines:
+ * <code>tool [global options] command [command options]</code>.
+ * <p>
+ * The global options are parsed with a {@link Parser} up to the first
+ * parameter, which names the subcommand; the rest of the arguments are parsed
+ * into the subcommand's subject. Subcommands are registered by class, or by a
+ * {@link Supplier} of subjects, and nothing about a subcommand is looked at
+ * until it's invoked: its class isn't reflected over (nor, when registered by
+ * a {@link Supplier}, even loaded) before then. The cost of starting up thus
+ * doesn't grow with the number of subcommands.
+ *
+ * @param <G> The type of the global options.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class Subcommands<G> {
+
+  private final Parser<G> global;
+
+  private final Map<String, Supplier<?>> commands;
+
+  /**
+   * The names of the subcommands, to suggest one for a misspelled command.
+   * Built on the first unknown command, since most instances (e.g. those that
+   * a chain of <code>withCommand</code> calls creates along the way) are never
+   * asked.
+   */
+  private volatile Suggestions suggestions;
+
+  /**
+   * Creates a parser with global options, and no subcommands.
+   *
+   * @param global The parser of the global options. Its settings (argument
+   * files, stack traces and listener) apply to the subcommands as well.
+   *
+   * @throws NullPointerException If <code>global</code> is <code>null</code>.
+   */
+  public Subcommands(Parser<G> global)
+    throws NullPointerException {
+    this(global, Collections.<String, Supplier<?>>emptyMap());
+    if (global == null) {
+      throw new NullPointerException("Global parser may not be null");
+    }
+  }
+
+  private Subcommands(Parser<G> global, Map<String, Supplier<?>> commands) {
+    this.global = global;
+    this.commands = commands;
+  }
+
+  /**
+   * Gets a parser with another subcommand, whose subjects are created with
+   * the class's public no-argument constructor.
+   *
+   * @param name The name of the subcommand.
+   *
+   * @param type The class of the subcommand's options.
+   *
+   * @return A parser like this one, but with the subcommand.
+   *
+   * @throws NullPointerException If an argument is <code>null</code>.
+   *
+   * @throws IllegalArgumentException If <code>name</code> is empty, starts
+   * with <code>-</code> or is already registered.
+   */
+  public Subcommands<G> withCommand(String name, Class<?> type)
+    throws NullPointerException,
+           IllegalArgumentException {
+    if (type == null) {
+      throw new NullPointerException("Type may not be null");
+    }
+
+    return withCommand(name, () -> instantiate(name, type));
+  }
+
+  /**
+   * Gets a parser with another subcommand, whose subjects are created by a
+   * {@link Supplier}. The subjects' class is only known, and its options only
+   * compiled, when the subcommand is invoked.
+   *
+   * @param name The name of the subcommand.
+   *
+   * @param factory Creates the subjects. Called concurrently if the parser is
+   * shared.
+   *
+   * @return A parser like this one, but with the subcommand.
+   *
+   * @throws NullPointerException If an argument is <code>null</code>.
+   *
+   * @throws IllegalArgumentException If <code>name</code> is empty, starts
+   * with <code>-</code> or is already registered.
+   */
+  public Subcommands<G> withCommand(String name, Supplier<?> factory)
+    throws NullPointerException,
+           IllegalArgumentException {
+    if (name == null) {
+      throw new NullPointerException("Name may not be null");
+    }
+    if (factory == null) {
+      throw new NullPointerException("Factory may not be null");
+    }
+    if (name.isEmpty() || name.startsWith("-")) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Invalid command name ''{0}''.",
+        name));
+    }
+    if (commands.containsKey(name)) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Command ''{0}'' is already registered.",
+        name));
+    }
+
+    Map<String, Supplier<?>> map = new LinkedHashMap<>(commands);
+    map.put(name, factory);
+    return new Subcommands<>(global, Collections.unmodifiableMap(map));
+  }
+
+  /**
+   * @return The names of the subcommands, in the order they were registered.
+   */
+  public Set<String> getCommandNames() {
+    return commands.keySet();
+  }
+
+  /**
+   * Parses a command line.
+   *
+   * @param args The command line arguments.
+   *
+   * @param factory Creates the subject of the global options.
+   *
+   * @return The global options, and the subcommand and its options (if a
+   * subcommand was given).
+   *
+   * @throws NullPointerException If <code>args</code> or <code>factory</code>
+   * is <code>null</code>, or if a factory returns <code>null</code>.
+   *
+   * @throws NoSuchOptionException If an option is encountered that is not
+   * configured.
+   *
+   * @throws NoSuchCommandException If the subcommand isn't registered.
+   *
+   * @throws ArgumentParsingException If something goes wrong with the parsing
+   * or setting of parameters.
+   */
+  public CommandResult<G> parse(String[] args, Supplier<? extends G> factory)
+    throws NullPointerException,
+           NoSuchOptionException,
+           NoSuchCommandException,
+           ArgumentParsingException {
+    if (args == null) {
+      throw new NullPointerException("Arguments may not be null");
+    }
+    if (factory == null) {
+      throw new NullPointerException("Factory may not be null");
+    }
+
+    G globalSubject = factory.get();
+    if (globalSubject == null) {
+      throw new NullPointerException("Factory returned null");
+    }
+
+    Iterator<? extends CharSequence> iterator = global.expand(
+      Arrays.asList(args).iterator());
+    String[] command = new String[1];
+    global.parseExpanded(globalSubject,
+                         iterator,
+                         parameter -> command[0] = parameter,
+                         true);
+    if (command[0] == null) {
+      return new CommandResult<>(globalSubject, null, null, null);
+    }
+
+    Supplier<?> commandFactory = commands.get(command[0]);
+    if (commandFactory == null) {
+      throw new NoSuchCommandException(command[0],
+                                       suggestions().suggest(command[0]));
+    }
+
+    Object subject = commandFactory.get();
+    if (subject == null) {
+      throw new NullPointerException("Factory returned null");
+    }
+
+    List<String> remaining = new ArrayList<>();
+    global.derive(subject).parseExpanded(subject,
+                                         iterator,
+                                         remaining::add,
+                                         false);
+    return new CommandResult<>(globalSubject, command[0], subject, remaining);
+  }
+
+  private Suggestions suggestions() {
+    Suggestions current = suggestions;
+    if (current == null) {
+      current = buildSuggestions();
+    }
+
+    return current;
+  }
+
+  private synchronized Suggestions buildSuggestions() {
+    if (suggestions == null) {
+      Suggestions built = new Suggestions();
+      for (String name : commands.keySet()) {
+        built.add(name);
+      }
+      suggestions = built;
+    }
+
+    return suggestions;
+  }
+
+  private static Object instantiate(String name, Class<?> type) {
+    try {
+      Constructor<?> constructor = type.getConstructor();
+      return constructor.newInstance();
+    } catch (ReflectiveOperationException ex) {
+      throw new IllegalArgumentException(MessageFormat.format(
+        "Could not create the options of command ''{0}''.",
+        name), ex);
+    }
+  }
+
+}
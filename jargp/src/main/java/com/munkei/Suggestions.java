@@ -0,0 +1,195 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Suggests names that are close to a misspelled one. The names are kept in a
+ * BK-tree (Burkhard-Keller tree) by Levenshtein distance, so a lookup only
+ * compares against a small part of the names: by the triangle inequality, a
+ * subtree whose distance to its parent is too far from the misspelling's
+ * distance to the parent can be skipped altogether.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class Suggestions {
+
+  /**
+   * The most suggestions that are made for a name.
+   */
+  static final int LIMIT = 3;
+
+  private Node root;
+
+  /**
+   * Adds a name. Duplicates are ignored.
+   */
+  void add(String name) {
+    if (root == null) {
+      root = new Node(name);
+      return;
+    }
+
+    Node node = root;
+    while (true) {
+      int distance = distance(name, node.name);
+      if (distance == 0) {
+        return;
+      }
+
+      Node child = node.child(distance);
+      if (child == null) {
+        node.setChild(distance, new Node(name));
+        return;
+      }
+      node = child;
+    }
+  }
+
+  /**
+   * Gets the names closest to a name, closest first. Names that are at most
+   * two edits (one for names of one or two characters), or a third of the
+   * name's length, away are suggested.
+   *
+   * @param name The misspelled name.
+   *
+   * @return At most {@link #LIMIT} names.
+   */
+  List<String> suggest(String name) {
+    if (root == null || name.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    int maximum = ((name.length() <= 2)
+                   ? 1
+                   : Math.max(2, name.length() / 3));
+    List<Match> matches = new ArrayList<>();
+
+    Deque<Node> nodes = new ArrayDeque<>();
+    nodes.push(root);
+    while (!nodes.isEmpty()) {
+      Node node = nodes.pop();
+      int distance = distance(name, node.name);
+      if (distance <= maximum) {
+        matches.add(new Match(node.name, distance));
+      }
+
+      int from = Math.max(1, distance - maximum);
+      int to = Math.min(node.children.length - 1, distance + maximum);
+      for (int i = from; i <= to; ++i) {
+        if (node.children[i] != null) {
+          nodes.push(node.children[i]);
+        }
+      }
+    }
+
+    Collections.sort(matches);
+    List<String> names = new ArrayList<>(Math.min(LIMIT, matches.size()));
+    for (int i = 0; i < matches.size() && i < LIMIT; ++i) {
+      names.add(matches.get(i).name);
+    }
+    return names;
+  }
+
+  /**
+   * @return The Levenshtein distance between two strings.
+   */
+  static int distance(String a, String b) {
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); ++j) {
+      previous[j] = j;
+    }
+
+    for (int i = 1; i <= a.length(); ++i) {
+      current[0] = i;
+      char c = a.charAt(i - 1);
+      for (int j = 1; j <= b.length(); ++j) {
+        int substitution = previous[j - 1] + ((c == b.charAt(j - 1)) ? 0 : 1);
+        current[j] = Math.min(substitution,
+                              Math.min(previous[j], current[j - 1]) + 1);
+      }
+
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+
+    return previous[b.length()];
+  }
+
+  /**
+   * A node of the tree. Children are indexed by their distance to the node.
+   */
+  private static final class Node {
+
+    private static final Node[] NONE = new Node[0];
+
+    private final String name;
+
+    private Node[] children = NONE;
+
+    private Node(String name) {
+      this.name = name;
+    }
+
+    private Node child(int distance) {
+      return ((distance < children.length) ? children[distance] : null);
+    }
+
+    private void setChild(int distance, Node child) {
+      if (distance >= children.length) {
+        Node[] grown = new Node[distance + 1];
+        System.arraycopy(children, 0, grown, 0, children.length);
+        children = grown;
+      }
+      children[distance] = child;
+    }
+
+  }
+
+  private static final class Match
+    implements Comparable<Match> {
+
+    private final String name;
+
+    private final int distance;
+
+    private Match(String name, int distance) {
+      this.name = name;
+      this.distance = distance;
+    }
+
+    @Override
+    public int compareTo(Match other) {
+      int result = Integer.compare(distance, other.distance);
+      return ((result != 0) ? result : name.compareTo(other.name));
+    }
+
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+/**
+ * Capabilities of the terminal that the process runs in, detected once.
+ * <p>
+ * ANSI escape sequences are used if standard output is a terminal (i.e.
+ * {@link System#console()} is not <code>null</code>), <code>TERM</code> is set
+ * and is not <code>dumb</code>, and <code>NO_COLOR</code> is not set. The
+ * width is taken from <code>COLUMNS</code>, if set, and is otherwise
+ * {@value #DEFAULT_WIDTH}.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class Terminal {
+
+  static final int DEFAULT_WIDTH = 80;
+
+  private static final boolean ANSI = detectAnsi();
+
+  private static final int WIDTH = detectWidth();
+
+  /**
+   * @return Whether standard output is a terminal that understands ANSI
+   * escape sequences.
+   */
+  static boolean isAnsi() {
+    return ANSI;
+  }
+
+  /**
+   * @return The width of the terminal, in columns.
+   */
+  static int getWidth() {
+    return WIDTH;
+  }
+
+  private static boolean detectAnsi() {
+    try {
+      String term = System.getenv("TERM");
+      return System.console() != null
+        && System.getenv("NO_COLOR") == null
+        && term != null
+        && !term.equals("dumb");
+    } catch (SecurityException ex) {
+      return false;
+    }
+  }
+
+  private static int detectWidth() {
+    try {
+      String columns = System.getenv("COLUMNS");
+      if (columns != null) {
+        int width = Numbers.parseInt(columns.trim());
+        if (width > 0) {
+          return width;
+        }
+      }
+    } catch (NumberFormatException | SecurityException ex) {
+      // Fall through to the default
+    }
+
+    return DEFAULT_WIDTH;
+  }
+
+  private Terminal() {
+  }
+
+}
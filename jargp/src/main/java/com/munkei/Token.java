@@ -0,0 +1,170 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+/**
+ * A command line argument, classified by offsets into the argument itself.
+ * <p>
+ * Classifying doesn't copy any characters; names are looked up by region (see
+ * {@link OptionIndex#resolve(java.lang.CharSequence, int, int, boolean)}) and
+ * values are only turned into {@link String}s when they are used. A
+ * {@link Token} is reused for all arguments of a parse.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class Token {
+
+  /**
+   * The kinds of arguments.
+   */
+  enum Kind {
+
+    /**
+     * <code>--name</code> or <code>--name=value</code>.
+     */
+    LONG,
+    /**
+     * <code>-abc</code>, i.e. one or more short names, where the first name
+     * that takes a value takes the rest of the argument (if any) as its value,
+     * e.g. <code>-ofile</code>.
+     */
+    SHORT,
+    /**
+     * <code>--</code>; all following arguments are parameters.
+     */
+    END_OF_OPTIONS,
+    /**
+     * Anything else, including <code>-</code>.
+     */
+    PARAMETER;
+
+  }
+
+  private CharSequence argument;
+
+  private Kind kind;
+
+  private int nameStart;
+
+  private int nameEnd;
+
+  private int valueStart;
+
+  /**
+   * Classifies an argument.
+   *
+   * @param argument The argument.
+   *
+   * @return This token.
+   */
+  Token classify(CharSequence argument) {
+    this.argument = argument;
+    this.valueStart = -1;
+
+    int length = argument.length();
+    if (length < 2 || argument.charAt(0) != '-') {
+      kind = Kind.PARAMETER;
+      return this;
+    }
+
+    if (argument.charAt(1) != '-') {
+      kind = Kind.SHORT;
+      nameStart = 1;
+      nameEnd = length;
+      return this;
+    }
+
+    if (length == 2) {
+      kind = Kind.END_OF_OPTIONS;
+      return this;
+    }
+
+    kind = Kind.LONG;
+    nameStart = 2;
+    nameEnd = length;
+    for (int i = 2; i < length; ++i) {
+      if (argument.charAt(i) == '=') {
+        nameEnd = i;
+        valueStart = i + 1;
+        break;
+      }
+    }
+
+    return this;
+  }
+
+  CharSequence getArgument() {
+    return argument;
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * @return The offset of the (first) name.
+   */
+  int getNameStart() {
+    return nameStart;
+  }
+
+  /**
+   * @return The offset after the (last) name.
+   */
+  int getNameEnd() {
+    return nameEnd;
+  }
+
+  /**
+   * @return Whether a value is attached with <code>=</code>.
+   */
+  boolean hasValue() {
+    return valueStart >= 0;
+  }
+
+  /**
+   * @return The offset of the attached value, if any.
+   */
+  int getValueStart() {
+    return valueStart;
+  }
+
+  /**
+   * @return The attached value.
+   */
+  String getValue() {
+    return value(valueStart);
+  }
+
+  /**
+   * @return The rest of the argument from an offset, as a {@link String}.
+   */
+  String value(int start) {
+    return argument.subSequence(start, argument.length()).toString();
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(argument);
+  }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A rendered usage text.
+ * <p>
+ * The options are rendered once per combination of ANSI capability and width,
+ * and cached by the {@link Schema} (see
+ * {@link Schema#getUsage(java.lang.String, boolean, int)}). The header isn't
+ * part of the cached rendering, but is put in front of it when printing (see
+ * {@link #withHeader(java.lang.String)}), so headers that differ between
+ * calls don't fill the cache. Descriptions are wrapped to the width; the
+ * header and the option names are not.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+final class Usage {
+
+  private static final String NEWLINE = System.lineSeparator();
+
+  private static final String INDENT = "    ";
+
+  /**
+   * The header, followed by an empty line, or <code>null</code>.
+   */
+  private final String header;
+
+  /**
+   * The rendered options.
+   */
+  private final String text;
+
+  /**
+   * The rendered options in UTF-8, for channels.
+   */
+  private final byte[] bytes;
+
+  Usage(List<Option> options, boolean ansi, int width) {
+    StringBuilder out = new StringBuilder();
+
+    if (!options.isEmpty()) {
+      out.append(bold("Options", ansi)).append(NEWLINE).append(NEWLINE);
+    }
+
+    for (Option option : options) {
+      CommandLineOption annotation = option.getCommandLineOption();
+
+      String placeholder = null;
+      if (option.takesValue()) {
+        placeholder = underline(annotation.placeholder().isEmpty()
+                                ? "VALUE"
+                                : annotation.placeholder(),
+                                ansi);
+      }
+
+      // All names, including patterns if defined
+      for (String name : option.getNames()) {
+        name(out, ((name.length() == 1) ? "-" : "--") + name, placeholder, ansi);
+      }
+      if (!annotation.pattern().isEmpty()) {
+        name(out, "--/" + annotation.pattern() + "/", placeholder, ansi);
+      }
+      if (!annotation.shortPattern().isEmpty()) {
+        name(out, "-/" + annotation.shortPattern() + "/", placeholder, ansi);
+      }
+
+      if (!annotation.description().isEmpty()) {
+        out.append(NEWLINE);
+        wrap(out, annotation.description(), width);
+      }
+
+      if (!annotation.defaultValue().isEmpty()) {
+        out.append(NEWLINE);
+        wrap(out, "Default: " + annotation.defaultValue(), width);
+      }
+
+      out.append(NEWLINE);      // Empty line between options
+    }
+
+    this.header = null;
+    this.text = out.toString();
+    this.bytes = text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private Usage(String header, Usage options) {
+    this.header = header;
+    this.text = options.text;
+    this.bytes = options.bytes;
+  }
+
+  /**
+   * @param header The header, or <code>null</code>.
+   *
+   * @return This usage, with a header (which only costs the header).
+   */
+  Usage withHeader(String header) {
+    // A null header is allowed, it just means no header will be printed
+    return ((header == null)
+            ? this
+            : new Usage(header + NEWLINE + NEWLINE, this));
+  }
+
+  String getText() {
+    return ((header == null) ? text : header + text);
+  }
+
+  void print(PrintStream output) {
+    if (header != null) {
+      output.print(header);
+    }
+    output.print(text);
+    output.flush();
+  }
+
+  void append(Appendable output)
+    throws IOException {
+    if (header != null) {
+      output.append(header);
+    }
+    output.append(text);
+  }
+
+  void write(WritableByteChannel output)
+    throws IOException {
+    if (header != null) {
+      write(output, header.getBytes(StandardCharsets.UTF_8));
+    }
+    write(output, bytes);
+  }
+
+  private static void write(WritableByteChannel output, byte[] bytes)
+    throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      output.write(buffer);
+    }
+  }
+
+  static String bold(String string, boolean ansi) {
+    return ((ansi) ? "\033[1m" + string + "\033[22m" : string);
+  }
+
+  static String underline(String string, boolean ansi) {
+    return ((ansi) ? "\033[4m" + string + "\033[24m" : string);
+  }
+
+  private static void name(StringBuilder out,
+                           String name,
+                           String placeholder,
+                           boolean ansi) {
+    out.append("  ").append(bold(name, ansi));
+    if (placeholder != null) {
+      out.append(' ').append(placeholder);
+    }
+    out.append(NEWLINE);
+  }
+
+  /**
+   * Appends indented text, wrapped at spaces to fit the width. Words that are
+   * too long are put on lines of their own. Line breaks in the text are kept.
+   */
+  private static void wrap(StringBuilder out, String text, int width) {
+    int available = Math.max(width - INDENT.length(), 1);
+
+    for (String line : text.split("\r?\n", -1)) {
+      List<String> words = new ArrayList<>();
+      for (String word : line.split(" ")) {
+        if (!word.isEmpty()) {
+          words.add(word);
+        }
+      }
+
+      out.append(INDENT);
+      int column = 0;
+      for (String word : words) {
+        if (column > 0 && column + 1 + word.length() > available) {
+          out.append(NEWLINE).append(INDENT);
+          column = 0;
+        }
+        if (column > 0) {
+          out.append(' ');
+          ++column;
+        }
+        out.append(word);
+        column += word.length();
+      }
+      out.append(NEWLINE);
+    }
+  }
+
+  /**
+   * Identifies a rendering of the options.
+   */
+  static final class Key {
+
+    private final boolean ansi;
+
+    private final int width;
+
+    Key(boolean ansi, int width) {
+      this.ansi = ansi;
+      this.width = width;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key) object;
+      return ansi == other.ansi && width == other.width;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(ansi, width);
+    }
+
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+
+/**
+ * Converts command line options' values ({@link String}s) to objects of some
+ * class.
+ * <p>
+ * Converters can be registered for a class with
+ * {@link ValueConverters#register(java.lang.Class, com.munkei.ValueConverter)},
+ * or for a single option with {@link CommandLineOption#converter()}.
+ * Converters must be thread-safe, since they are shared by all parsers.
+ *
+ * @param <T> The class to which values are converted.
+ *
+ * @see ValueConverters
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public interface ValueConverter<T> {
+
+  /**
+   * Converts a value.
+   *
+   * @param value The value, never <code>null</code>.
+   *
+   * @return The converted value.
+   *
+   * @throws ArgumentParsingException If the value is invalid. Runtime
+   * exceptions, such as {@link NumberFormatException}, are also treated as
+   * invalid values.
+   */
+  T convert(String value)
+    throws ArgumentParsingException;
+
+}
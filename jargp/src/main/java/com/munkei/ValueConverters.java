@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of {@link ValueConverter}s.
+ * <p>
+ * Converters are found for a class thusly:
+ * <ol>
+ * <li>A converter registered with
+ * {@link #register(java.lang.Class, com.munkei.ValueConverter)}.</li>
+ * <li>A built-in converter, for {@link String}, {@link Character},
+ * {@link Boolean}, {@link Byte}, {@link Short}, {@link Integer}, {@link Long},
+ * {@link Float}, {@link Double}, {@link BigInteger}, {@link BigDecimal},
+ * {@link File}, {@link Path}, {@link URI} and {@link Duration}.</li>
+ * <li>A public static <code>valueOf({@link String})</code> method of the class
+ * (this covers, for instance, {@link Enum}s).</li>
+ * <li>A public constructor of the class taking a single {@link String}.</li>
+ * </ol>
+ * The result is cached, so the reflective look-up is done at most once per
+ * class. Options resolve their converter once, when the options of a subject
+ * class are first read, so converters should be registered before that.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public final class ValueConverters {
+
+  private static final Map<Class<?>, ValueConverter<?>> CONVERTERS
+    = new ConcurrentHashMap<>();
+
+  static {
+    CONVERTERS.put(String.class, value -> value);
+    CONVERTERS.put(Character.class, value -> {
+      if (value.length() != 1) {
+        throw new ArgumentParsingException("''{0}'' is not a single character.",
+                                           value);
+      }
+      return value.charAt(0);
+    });
+    CONVERTERS.put(Boolean.class, Boolean::valueOf);
+    CONVERTERS.put(Byte.class, Byte::valueOf);
+    CONVERTERS.put(Short.class, Short::valueOf);
+    CONVERTERS.put(Integer.class, Integer::valueOf);
+    CONVERTERS.put(Long.class, Long::valueOf);
+    CONVERTERS.put(Float.class, Float::valueOf);
+    CONVERTERS.put(Double.class, Double::valueOf);
+    CONVERTERS.put(BigInteger.class, BigInteger::new);
+    CONVERTERS.put(BigDecimal.class, BigDecimal::new);
+    CONVERTERS.put(File.class, File::new);
+    CONVERTERS.put(Path.class, Paths::get);
+    CONVERTERS.put(URI.class, URI::create);
+    CONVERTERS.put(Duration.class, Duration::parse);
+  }
+
+  /**
+   * Registers a converter for a class, replacing any previous one.
+   *
+   * @param <T> The class.
+   *
+   * @param type The class.
+   *
+   * @param converter The converter.
+   *
+   * @throws NullPointerException If <code>type</code> or
+   * <code>converter</code> is <code>null</code>.
+   */
+  public static <T> void register(Class<T> type,
+                                  ValueConverter<? extends T> converter)
+    throws NullPointerException {
+    if (type == null) {
+      throw new NullPointerException("Type may not be null");
+    }
+    if (converter == null) {
+      throw new NullPointerException("Converter may not be null");
+    }
+
+    CONVERTERS.put(type, converter);
+  }
+
+  /**
+   * Gets the converter for a class.
+   *
+   * @param <T> The class.
+   *
+   * @param type The class.
+   *
+   * @return The converter, or <code>null</code> if values can't be converted
+   * to <code>type</code>.
+   *
+   * @throws NullPointerException If <code>type</code> is <code>null</code>.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> ValueConverter<T> forClass(Class<T> type)
+    throws NullPointerException {
+    if (type == null) {
+      throw new NullPointerException("Type may not be null");
+    }
+
+    ValueConverter<?> converter = CONVERTERS.get(type);
+    if (converter == null) {
+      converter = reflectiveConverter(type);
+      if (converter != null) {
+        CONVERTERS.putIfAbsent(type, converter);
+      }
+    }
+
+    return (ValueConverter<T>) converter;
+  }
+
+  /**
+   * Creates a converter that uses a static <code>valueOf(String)</code> method
+   * or a constructor taking a single {@link String}.
+   *
+   * @return The converter, or <code>null</code> if there is neither.
+   */
+  private static ValueConverter<?> reflectiveConverter(Class<?> type) {
+    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+    MethodHandle handle = null;
+
+    try {
+      handle = lookup.findStatic(type,
+                                 "valueOf",
+                                 MethodType.methodType(type, String.class));
+    } catch (NoSuchMethodException | IllegalAccessException ex) {
+      // Try a constructor, below
+    }
+
+    if (handle == null && !type.isInterface()
+      && !Modifier.isAbstract(type.getModifiers())) {
+      try {
+        handle = lookup.findConstructor(type,
+                                        MethodType.methodType(void.class,
+                                                              String.class));
+      } catch (NoSuchMethodException | IllegalAccessException ex) {
+        // We did our best
+      }
+    }
+
+    if (handle == null) {
+      return null;
+    }
+
+    final MethodHandle factory = handle.asType(
+      MethodType.methodType(Object.class, String.class));
+
+    return value -> {
+      try {
+        return (Object) factory.invokeExact(value);
+      } catch (ArgumentParsingException | RuntimeException | Error ex) {
+        throw ex;
+      } catch (Throwable ex) {
+        throw new ArgumentParsingException(
+          ex,
+          "Can''t convert ''{0}'' to ''{1}''.",
+          value,
+          type.getName());
+      }
+    };
+  }
+
+  private ValueConverters() {
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei.exception;
+
+import java.text.MessageFormat;
+
+/**
+ * Thrown when arguments can't be parsed, e.g. when a value is invalid.
+ * <p>
+ * The message is a {@link MessageFormat} pattern with arguments, and is only
+ * formatted when it's asked for (by {@link #getMessage()}), so creating the
+ * exception is cheap. The arguments should thus be immutable, e.g.
+ * {@link String}s.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class ArgumentParsingException
+  extends Exception {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String pattern;
+
+  private final Object[] arguments;
+
+  private transient String message;
+
+  public ArgumentParsingException(Throwable cause,
+                                  String message,
+                                  Object... arguments) {
+    this(cause, true, message, arguments);
+  }
+
+  public ArgumentParsingException(String message, Object... arguments) {
+    this(null, true, message, arguments);
+  }
+
+  /**
+   * @param cause The cause, or <code>null</code>.
+   *
+   * @param stackTrace Whether to fill in the stack trace. Skipping it makes
+   * the exception cheaper to create.
+   *
+   * @param message The message, as a {@link MessageFormat} pattern.
+   *
+   * @param arguments The arguments of the message.
+   */
+  public ArgumentParsingException(Throwable cause,
+                                  boolean stackTrace,
+                                  String message,
+                                  Object... arguments) {
+    super(null, cause, true, stackTrace);
+    this.pattern = message;
+    this.arguments = arguments;
+  }
+
+  @Override
+  public String getMessage() {
+    if (message == null && pattern != null) {
+      message = MessageFormat.format(pattern, arguments);
+    }
+
+    return message;
+  }
+
+}
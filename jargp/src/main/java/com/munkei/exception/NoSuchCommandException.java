@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei.exception;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when the argument that names a subcommand matches no subcommand. The
+ * message, which includes any suggested names, is only formatted when it's
+ * asked for.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class NoSuchCommandException
+  extends Exception {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String command;
+
+  private final List<String> suggestions;
+
+  private transient String message;
+
+  /**
+   * @param command The command, as given.
+   *
+   * @param suggestions Names of commands that <code>command</code> may be a
+   * misspelling of, closest first, or <code>null</code>.
+   */
+  public NoSuchCommandException(String command, List<String> suggestions) {
+    this.command = command;
+    this.suggestions = ((suggestions == null || suggestions.isEmpty())
+                        ? Collections.<String>emptyList()
+                        : Collections.unmodifiableList(suggestions));
+  }
+
+  public String getCommand() {
+    return command;
+  }
+
+  /**
+   * @return Names of commands that the command may be a misspelling of,
+   * closest first. May be empty.
+   */
+  public List<String> getSuggestions() {
+    return suggestions;
+  }
+
+  @Override
+  public String getMessage() {
+    if (message == null) {
+      message = MessageFormat.format("No such command ''{0}''", command);
+      if (!suggestions.isEmpty()) {
+        message += MessageFormat.format(". Did you mean ''{0}''?",
+                                        String.join("', '", suggestions));
+      }
+    }
+
+    return message;
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei.exception;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when an argument looks like an option, but matches no option. The
+ * message, which includes any suggested names, is only formatted when it's
+ * asked for.
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class NoSuchOptionException
+  extends Exception {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String option;
+
+  private final List<String> suggestions;
+
+  private transient String message;
+
+  public NoSuchOptionException(String option) {
+    this(option, true);
+  }
+
+  public NoSuchOptionException(String option, boolean stackTrace) {
+    this(option, null, stackTrace);
+  }
+
+  /**
+   * @param option The option, as given.
+   *
+   * @param suggestions Names of options that <code>option</code> may be a
+   * misspelling of, closest first, or <code>null</code>.
+   *
+   * @param stackTrace Whether to fill in the stack trace. Skipping it makes
+   * the exception cheaper to create.
+   */
+  public NoSuchOptionException(String option,
+                               List<String> suggestions,
+                               boolean stackTrace) {
+    super(null, null, true, stackTrace);
+    this.option = option;
+    this.suggestions = ((suggestions == null || suggestions.isEmpty())
+                        ? Collections.<String>emptyList()
+                        : Collections.unmodifiableList(suggestions));
+  }
+
+  public String getOption() {
+    return option;
+  }
+
+  /**
+   * @return Names of options that the option may be a misspelling of,
+   * closest first. May be empty. Subclasses may find them lazily.
+   */
+  public List<String> getSuggestions() {
+    return suggestions;
+  }
+
+  @Override
+  public String getMessage() {
+    if (message == null) {
+      List<String> suggestions = getSuggestions();
+      message = MessageFormat.format("No such option ''{0}''", option);
+      if (!suggestions.isEmpty()) {
+        message += MessageFormat.format(". Did you mean ''{0}''?",
+                                        String.join("', '", suggestions));
+      }
+    }
+
+    return message;
+  }
+
+}
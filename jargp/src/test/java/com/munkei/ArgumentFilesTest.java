@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class ArgumentFilesTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testQuoting()
+    throws Exception {
+    File file = write("args.txt",
+                      "plain  'single \\ quoted' \"double \\\"quoted\\\"\"\n"
+                      + "# A comment\n"
+                      + "es\\ caped mid#dle '' åäö\n");
+
+    assertEquals(Arrays.asList("first",
+                               "plain",
+                               "single \\ quoted",
+                               "double \"quoted\"",
+                               "es caped",
+                               "mid#dle",
+                               "",
+                               "åäö",
+                               "last"),
+                 expand("first", "@" + file, "last"));
+  }
+
+  @Test
+  public void testNested()
+    throws Exception {
+    write("inner.txt", "inner");
+    File outer = write("outer.txt", "before @inner.txt after");
+
+    assertEquals(Arrays.asList("before", "inner", "after", "inner"),
+                 expand("@" + outer, "@" + folder.getRoot() + "/inner.txt"));
+  }
+
+  @Test
+  public void testEscapedPrefix()
+    throws Exception {
+    assertEquals(Arrays.asList("@name"), expand("@@name"));
+  }
+
+  @Test
+  public void testCycle()
+    throws Exception {
+    write("a.txt", "@b.txt");
+    File b = write("b.txt", "@a.txt");
+
+    try {
+      expand("@" + b);
+      fail();
+    } catch (ArgumentFiles.Failure ex) {
+      assertTrue(ex.getMessage().contains("includes itself"));
+    }
+  }
+
+  @Test
+  public void testUnterminatedQuote()
+    throws Exception {
+    File file = write("args.txt", "'open");
+
+    try {
+      expand("@" + file);
+      fail();
+    } catch (ArgumentFiles.Failure ex) {
+      assertTrue(ex.getMessage().contains("Unterminated quote"));
+    }
+  }
+
+  @Test
+  public void testParse()
+    throws Exception {
+    File file = write("args.txt", "--string 'from file' --arraylist x rest");
+    JArgPTest.TestSubject subject = new JArgPTest().new TestSubject();
+    JArgP jArgP = new JArgP(subject);
+    jArgP.setArgumentFilePrefix("@");
+
+    List<String> remaining = jArgP.parse(new String[]{ "@" + file });
+
+    assertEquals("from file", subject.stringField);
+    assertEquals(Arrays.asList("x"), subject.arraylist);
+    assertEquals(Arrays.asList("rest"), remaining);
+  }
+
+  @Test(expected = ArgumentParsingException.class)
+  public void testMissingFile()
+    throws Exception {
+    JArgP jArgP = new JArgP(new JArgPTest().new TestSubject());
+    jArgP.setArgumentFilePrefix("@");
+
+    jArgP.parse(new String[]{ "@" + folder.getRoot() + "/missing.txt" });
+  }
+
+  private File write(String name, String content)
+    throws IOException {
+    File file = new File(folder.getRoot(), name);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static List<String> expand(String... args) {
+    List<String> expanded = new ArrayList<>();
+    Iterator<CharSequence> it
+      = new ArgumentFiles(Arrays.asList(args).iterator(), "@");
+    while (it.hasNext()) {
+      expanded.add(it.next().toString());
+    }
+    return expanded;
+  }
+
+}
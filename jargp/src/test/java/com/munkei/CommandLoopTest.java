@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import com.munkei.exception.NoSuchOptionException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class CommandLoopTest {
+
+  @Test
+  public void testRun()
+    throws Exception {
+    List<String> handled = new ArrayList<>();
+    CommandLoop<LoopSubject> loop = new CommandLoop<>(
+      new Parser<>(LoopSubject.class),
+      LoopSubject::new,
+      (subject, parameters) -> handled.add(
+        subject.user + "/" + subject.count + "/" + parameters));
+
+    assertEquals(5, loop.run(stream(
+      "add --user 'Jane Doe' -c 2 x\n"
+        + "\n"
+        + "# A comment\n"
+        + "  list\n"
+        + "set --user=\"a \\\"b\\\"\" \\\n"
+        + "  y # The rest\n"
+        + "del --user \"multi\n"
+        + "line\" ''\n"
+        + "get --user café")));
+
+    assertEquals(Arrays.asList(
+      "Jane Doe/2/[add, x]",
+      "null/1/[list]",
+      "a \"b\"/1/[set, y]",
+      "multi\nline/1/[del, ]",
+      "café/1/[get]"), handled);
+  }
+
+  @Test
+  public void testCrlf()
+    throws Exception {
+    List<String> handled = new ArrayList<>();
+    CommandLoop<LoopSubject> loop = new CommandLoop<>(
+      new Parser<>(LoopSubject.class),
+      LoopSubject::new,
+      (subject, parameters) -> handled.add(
+        subject.user + "/" + subject.count + "/" + parameters));
+
+    assertEquals(2, loop.run(stream(
+      "cmd --count 1 \\\r\n"
+        + "  --user a\r\n"
+        + "next -c\\\r\n"
+        + "2\r\n")));
+
+    assertEquals(Arrays.asList(
+      "a/1/[cmd]",
+      "null/2/[next]"), handled);
+  }
+
+  @Test
+  public void testFailed()
+    throws Exception {
+    List<String> handled = new ArrayList<>();
+    List<Integer> failed = new ArrayList<>();
+    CommandLoop<LoopSubject> loop = new CommandLoop<>(
+      new Parser<>(LoopSubject.class),
+      LoopSubject::new,
+      new CommandHandler<LoopSubject>() {
+
+        @Override
+        public void handle(LoopSubject subject, List<String> parameters) {
+          handled.add(parameters.get(0));
+        }
+
+        @Override
+        public void failed(int line, Exception problem) {
+          failed.add(line);
+        }
+
+      });
+
+    assertEquals(2, loop.run(stream(
+      "a\n"
+        + "b --bogus 'rest of' the line\n"
+        + "c -c x\n"
+        + "d\n"
+        + "e 'unterminated")));
+    assertEquals(Arrays.asList("a", "d"), handled);
+    assertEquals(Arrays.asList(2, 3, 5), failed);
+  }
+
+  @Test
+  public void testRethrow()
+    throws Exception {
+    CommandLoop<LoopSubject> loop = new CommandLoop<>(
+      new Parser<>(LoopSubject.class),
+      LoopSubject::new,
+      (subject, parameters) -> {
+      });
+
+    try {
+      loop.run(stream("a\n--bogus\n"));
+      fail();
+    } catch (NoSuchOptionException ex) {
+      assertEquals("bogus", ex.getOption());
+    }
+    try {
+      loop.run(stream("-c x"));
+      fail();
+    } catch (ArgumentParsingException ex) {
+      // Expected
+    }
+    assertEquals(0, loop.run(stream("")));
+  }
+
+  private static InputStream stream(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static class LoopSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "user", "u" })
+    public String user;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "count", "c" }, defaultValue = "1")
+    public int count;
+
+  }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Scanner;
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class CompletionScriptTest {
+
+  @Test
+  public void testBash()
+    throws Exception {
+    String script = new JArgP(new CompletionSubject())
+      .getCompletionScript(Shell.BASH, "my-app");
+    assertTrue(script.contains("complete -o filenames -F _jargp_my_app"));
+
+    Assume.assumeTrue(new File("/bin/bash").canExecute());
+    Path file = Files.createTempFile("jargp", ".bash");
+    try {
+      Files.write(file, script.getBytes(StandardCharsets.UTF_8));
+      assertEquals("--mode", complete(file, "my-app --mo"));
+      assertEquals("--no-color", complete(file, "my-app --no"));
+      assertEquals("FAST SLOW", complete(file, "my-app --mode ''"));
+      assertEquals("", complete(file, "my-app -n ''"));
+      assertEquals("-n", complete(file, "my-app -n"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testZsh() {
+    String script = new JArgP(new CompletionSubject())
+      .getCompletionScript(Shell.ZSH, "my-app");
+    assertTrue(script.startsWith("#compdef my-app\n"));
+    assertTrue(script.contains(
+      "'--file=[The input\\: a file.]:FILE:_files' \\\n"));
+    assertTrue(script.contains("'-f+[The input\\: a file.]:FILE:_files'"));
+    assertTrue(script.contains("'--mode=[]:VALUE:(FAST SLOW)'"));
+    assertTrue(script.contains("'--no-color[Colours.]'"));
+    assertTrue(script.contains("'--output=[]:DIRECTORY:_files -/'"));
+    assertTrue(script.contains("'*--tag=[]:VALUE: '"));
+  }
+
+  @Test
+  public void testFish() {
+    String script = new JArgP(new CompletionSubject())
+      .getCompletionScript(Shell.FISH, "my-app");
+    assertTrue(script.contains(
+      "complete -c 'my-app' -l 'file' -s 'f' -r -F -d 'The input: a file.'\n"));
+    assertTrue(script.contains("complete -c 'my-app' -l 'color' -d 'Colours.'"));
+    assertTrue(script.contains(
+      "complete -c 'my-app' -l 'no-color' -d 'Colours.'"));
+    assertTrue(script.contains(
+      "complete -c 'my-app' -l 'mode' -x -a 'FAST SLOW'"));
+    assertTrue(script.contains("complete -c 'my-app' -s 'n' -x\n"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCommand() {
+    new JArgP(new CompletionSubject()).getCompletionScript(Shell.BASH, "a b");
+  }
+
+  /**
+   * Runs a bash completion function.
+   *
+   * @return The completions, separated by spaces.
+   */
+  private static String complete(Path script, String line)
+    throws IOException, InterruptedException {
+    Process process = new ProcessBuilder(
+      "/bin/bash",
+      "-c",
+      "source '" + script + "'; COMP_WORDS=(" + line + ");"
+        + " COMP_CWORD=$(( ${#COMP_WORDS[@]} - 1 ));"
+        + " _jargp_my_app; printf '%s' \"${COMPREPLY[*]}\"")
+      .redirectErrorStream(true)
+      .start();
+    try (Scanner scanner = new Scanner(process.getInputStream(), "UTF-8")) {
+      String output = scanner.useDelimiter("\\A").hasNext()
+                      ? scanner.next().trim()
+                      : "";
+      assertEquals(output, 0, process.waitFor());
+      return output;
+    }
+  }
+
+  public static class CompletionSubject {
+
+    public enum Mode {
+
+      FAST,
+
+      SLOW
+
+    }
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "file", "f" },
+                       placeholder = "FILE",
+                       description = "The input: a file.")
+    public File file;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public Mode mode;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(opposite = true, description = "Colours.")
+    public boolean color;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "n" })
+    public int number;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(placeholder = "DIRECTORY")
+    public Path output;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public List<String> tag;
+
+  }
+
+}
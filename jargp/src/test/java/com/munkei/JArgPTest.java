@@ -0,0 +1,904 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.munkei;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+import com.munkei.exception.ArgumentParsingException;
+import com.munkei.exception.NoSuchOptionException;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class JArgPTest {
+
+  public JArgPTest() {
+  }
+
+  @Test
+  public void testUsage()
+    throws Exception {
+    TestSubject testSubject = new TestSubject();
+    JArgP jArgP = new JArgP(testSubject);
+
+    jArgP.setUsageHeader("Test\n\nUsage\n\n  test [options] [file [file]]");
+    System.out.println("<<<USAGE");
+    jArgP.printUsage();
+    System.out.println(">>>USAGE");
+  }
+
+  @Test
+  public void testUsageWrapping()
+    throws Exception {
+    JArgP jArgP = new JArgP(new WrapSubject());
+    jArgP.setUsageAnsi(false);
+    jArgP.setUsageWidth(30);
+
+    StringBuilder usage = new StringBuilder();
+    jArgP.printUsage(usage);
+
+    String n = System.lineSeparator();
+    assertEquals("Options" + n
+                 + n
+                 + "  --long VALUE" + n
+                 + n
+                 + "    A description that is long" + n
+                 + "    enough to be wrapped at" + n
+                 + "    least once." + n
+                 + n
+                 + "    Default: x" + n
+                 + n,
+                 usage.toString());
+  }
+
+  @Test
+  public void testUsageCached()
+    throws Exception {
+    JArgP first = new JArgP(new TestSubject());
+    JArgP second = new JArgP(new TestSubject());
+
+    assertSame(first.getUsage(), second.getUsage());
+    assertFalse(first.getUsage().contains("\033["));
+
+    // Headers aren't cached, only put in front of the options
+    String n = System.lineSeparator();
+    second.setUsageHeader("Header");
+    assertEquals("Header" + n + n + first.getUsage(), second.getUsage());
+
+    first.setUsageAnsi(true);
+    assertTrue(first.getUsage().contains("\033[1m--string\033[22m"));
+  }
+
+  @Test
+  public void testUsageChannel()
+    throws Exception {
+    JArgP jArgP = new JArgP(new TestSubject());
+    jArgP.setUsageHeader("Header");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    jArgP.printUsage(Channels.newChannel(bytes));
+
+    assertEquals(jArgP.getUsage(), bytes.toString("UTF-8"));
+  }
+
+  @Test
+  public void testParse()
+    throws Exception {
+    TestSubject testSubject = new TestSubject();
+    JArgP jArgP = new JArgP(testSubject);
+
+    String[] expectedRemaining = new String[]{
+      "remain1",
+      "remain2",
+      "--remain3"
+    };
+    String[] expectedStrings = new String[]{
+      "one",
+      "two"
+    };
+    String stringarg = "stringarg";
+    String[] args = new String[]{
+      "--string",
+      stringarg,
+      expectedRemaining[0],
+      "--flag",
+      "--file",
+      ".",
+      "--arraylist",
+      expectedStrings[0],
+      "--arraylist",
+      expectedStrings[1],
+      "--set",
+      expectedStrings[0],
+      "--set",
+      expectedStrings[1],
+      "-xyz",
+      "--",
+      expectedRemaining[1],
+      expectedRemaining[2]
+    };
+
+    List<String> remaining = jArgP.parse(args);
+
+    System.out.println(
+      "remaining = " + remaining);
+    assertArrayEquals(expectedRemaining, remaining.toArray(new String[]{}));
+
+    assertEquals(stringarg, testSubject.stringField);
+
+    assertEquals(true, testSubject.booleanField);
+
+    assertEquals(new File("."), testSubject.file);
+
+    System.out.println("testSubject.arraylist = " + testSubject.arraylist);
+    assertNotNull(testSubject.arraylist);
+    assertArrayEquals(expectedStrings,
+                      testSubject.arraylist.toArray(new String[]{}));
+
+    System.out.println("testSubject.set = " + testSubject.set);
+    assertNotNull(testSubject.set);
+    assertEquals(new HashSet<>(Arrays.asList(expectedStrings)),
+                 testSubject.set);
+
+    assertEquals(true, testSubject.x);
+    assertEquals(true, testSubject.y);
+    assertEquals(true, testSubject.z);
+  }
+
+  @Test
+  public void testAbbreviation()
+    throws Exception {
+    TestSubject testSubject = new TestSubject();
+    JArgP jArgP = new JArgP(testSubject);
+
+    jArgP.parse(new String[]{ "--str", "abbreviated", "--fl", "--arr", "x" });
+
+    assertEquals("abbreviated", testSubject.stringField);
+    assertEquals(true, testSubject.booleanField);
+    assertEquals(Arrays.asList("x"), testSubject.arraylist);
+  }
+
+  @Test(expected = NoSuchOptionException.class)
+  public void testAmbiguousAbbreviation()
+    throws Exception {
+    new JArgP(new TestSubject()).parse(new String[]{ "--s", "value" });
+  }
+
+  @Test
+  public void testSuggestions()
+    throws Exception {
+    JArgP jargp = new JArgP(new TestSubject());
+
+    try {
+      jargp.parse(new String[]{ "--strnig" });
+      fail();
+    } catch (NoSuchOptionException ex) {
+      assertEquals(Arrays.asList("string"), ex.getSuggestions());
+      assertTrue(ex.getMessage().endsWith("Did you mean 'string'?"));
+    }
+
+    try {
+      jargp.parse(new String[]{ "--no-flga" });
+      fail();
+    } catch (NoSuchOptionException ex) {
+      assertEquals(Arrays.asList("no-flag"), ex.getSuggestions());
+    }
+
+    try {
+      jargp.parse(new String[]{ "--completely-different" });
+      fail();
+    } catch (NoSuchOptionException ex) {
+      assertTrue(ex.getSuggestions().isEmpty());
+      assertEquals("No such option 'completely-different'", ex.getMessage());
+    }
+
+    Diagnostic diagnostic = jargp.tryParse(new String[]{ "--fiel" })
+      .getDiagnostics().get(0);
+    assertEquals(Arrays.asList("file"), diagnostic.getSuggestions());
+  }
+
+  @Test
+  public void testSchemaIsShared()
+    throws Exception {
+    TestSubject first = new TestSubject();
+    TestSubject second = new TestSubject();
+
+    assertSame(Schema.forClass(TestSubject.class),
+               Schema.forClass(TestSubject.class));
+
+    new JArgP(first).parse(new String[]{ "--string", "first" });
+    new JArgP(second).parse(new String[]{ "--string", "second" });
+
+    assertEquals("first", first.stringField);
+    assertEquals("second", second.stringField);
+  }
+
+  @Test
+  public void testSetter()
+    throws Exception {
+    SetterSubject subject = new SetterSubject();
+
+    new JArgP(subject).parse(new String[]{
+      "--count", "3",
+      "--name", "first",
+      "--name", "second"
+    });
+
+    assertEquals("count=3", subject.log.get(0));
+    assertEquals(Arrays.asList("first", "second"), subject.names);
+  }
+
+  @Test(expected = ArgumentParsingException.class)
+  public void testSetterException()
+    throws Exception {
+    new JArgP(new SetterSubject()).parse(new String[]{ "--count", "-1" });
+  }
+
+  @Test
+  public void testPrimitives()
+    throws Exception {
+    PrimitiveSubject subject = new PrimitiveSubject();
+
+    new JArgP(subject).parse(new String[]{
+      "--i", "-2147483648",
+      "--l", "9000000000",
+      "--d", "2.5",
+      "--c", "x",
+      "--b",
+      "--on",
+      "--no-off"
+    });
+
+    assertEquals(Integer.MIN_VALUE, subject.i);
+    assertEquals(9000000000L, subject.l);
+    assertEquals(2.5, subject.d, 0);
+    assertEquals('x', subject.c);
+    assertTrue(subject.b);
+    assertTrue(subject.on);
+    assertFalse(subject.off);
+  }
+
+  @Test(expected = ArgumentParsingException.class)
+  public void testPrimitiveOutOfRange()
+    throws Exception {
+    new JArgP(new PrimitiveSubject()).parse(new String[]{ "--i", "2147483648" });
+  }
+
+  @Test
+  public void testSeparator()
+    throws Exception {
+    SeparatorSubject subject = new SeparatorSubject();
+
+    new JArgP(subject).parse(new String[]{
+      "--ids", "1,-5,2147483647",
+      "--ids", "9",
+      "--sizes", "9000000000;-1",
+      "--ratios", "0.1,-2.5e3,1e-7,3.141592653589793,NaN",
+      "--names", "a, b,c"
+    });
+
+    assertArrayEquals(new int[]{ 1, -5, Integer.MAX_VALUE, 9 }, subject.ids);
+    assertArrayEquals(new long[]{ 9000000000L, -1 }, subject.sizes);
+    assertArrayEquals(new double[]{ 0.1, -2500, 1e-7, Math.PI, Double.NaN },
+                      subject.ratios,
+                      0);
+    assertEquals(Arrays.asList("a", " b", "c"), subject.names);
+    assertArrayEquals(new int[]{ 1, 2 }, subject.ports);
+
+    // The default value is not shared between subjects
+    subject.ports[0] = 0;
+    SeparatorSubject other = new SeparatorSubject();
+    new JArgP(other).parse(new String[0]);
+    assertArrayEquals(new int[]{ 1, 2 }, other.ports);
+    assertNull(other.ids);
+
+    try {
+      new JArgP(new SeparatorSubject()).parse(new String[]{
+        "--ids", "1,x2,3" });
+      fail();
+    } catch (ArgumentParsingException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().contains("'x2'"));
+    }
+    try {
+      new JArgP(new SeparatorSubject()).parse(new String[]{
+        "--names", "a,,b" });
+      fail();
+    } catch (ArgumentParsingException ex) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testParseDouble() {
+    String[] values = {
+      "0", "-0", "1", "+1.5", ".5", "5.", "0.000123", "123456789012345",
+      "1234567890123456789", "1.7976931348623157E308", "4.9e-324", "1e22",
+      "1e23", "0.30000000000000004", "2.2250738585072014E-308", "Infinity",
+      "0x1p3", "1d"
+    };
+    for (String value : values) {
+      assertEquals(value,
+                   Double.doubleToLongBits(Double.parseDouble(value)),
+                   Double.doubleToLongBits(Numbers.parseDouble(
+                     "[" + value + "]", 1, value.length() + 1)));
+    }
+
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; ++i) {
+      String value = Long.toString(random.nextLong() % 100000000000L)
+        + "." + (random.nextInt(1000) + 1000)
+        + "e" + (random.nextInt(40) - 20);
+      assertEquals(value,
+                   Double.parseDouble(value),
+                   Numbers.parseDouble(value, 0, value.length()),
+                   0);
+    }
+
+    for (String value : new String[]{ "", "-", ".", "e5", "1e", "1.2.3" }) {
+      try {
+        Numbers.parseDouble(value, 0, value.length());
+        fail(value);
+      } catch (NumberFormatException ex) {
+        // Expected
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSeparatorOnSingleValue()
+    throws Exception {
+    new JArgP(new InvalidSeparatorSubject());
+  }
+
+  @Test
+  public void testArrays()
+    throws Exception {
+    ArraySubject subject = new ArraySubject();
+
+    List<String> remaining = new JArgP(subject).parse(new String[]{
+      "--strings", "a",
+      "-f", "one",
+      "--ints=7",
+      "remain",
+      "--strings", "",
+      "-ftwo",
+      "--ints", "-3",
+      "--flags", "true",
+      "--flags", "FALSE",
+      "--chars", "x",
+      "--levels", "2,3",
+      "--strings=b",
+      "--",
+      "--strings", "c"
+    });
+
+    assertArrayEquals(new String[]{ "a", "", "b" }, subject.strings);
+    assertArrayEquals(new File[]{ new File("one"), new File("two") },
+                      subject.files);
+    assertArrayEquals(new int[]{ 7, -3 }, subject.ints);
+    assertTrue(Arrays.equals(new boolean[]{ true, false }, subject.flags));
+    assertArrayEquals(new char[]{ 'x' }, subject.chars);
+    assertArrayEquals(new byte[]{ 2, 3 }, subject.levels);
+    assertArrayEquals(new float[]{ 0.5f }, subject.weights, 0);
+    assertEquals(Arrays.asList("remain", "--strings", "c"), remaining);
+
+    // Without counts (from an iterator) the arrays grow as needed
+    ArraySubject other = new ArraySubject();
+    new JArgP(other).parse(Arrays.asList(
+      "--ints", "1", "--ints", "2", "--ints", "3", "--weights", "1.5").iterator());
+    assertArrayEquals(new int[]{ 1, 2, 3 }, other.ints);
+    assertArrayEquals(new float[]{ 1.5f }, other.weights, 0);
+    assertNull(other.strings);
+
+    try {
+      new JArgP(new ArraySubject()).parse(new String[]{
+        "--chars", "xy" });
+      fail();
+    } catch (ArgumentParsingException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().contains("'xy'"));
+    }
+  }
+
+  @Test
+  public void testTryParseArrays() {
+    ArraySubject subject = new ArraySubject();
+
+    ParseResult<Object> result = new JArgP(subject).tryParse(new String[]{
+      "--ints", "1",
+      "--ints", "x",
+      "--ints", "3",
+      "--levels", "1,300"
+    });
+
+    assertEquals(2, result.getDiagnostics().size());
+    assertArrayEquals(new int[]{ 1, 3 }, subject.ints);
+    assertNull(subject.levels);
+  }
+
+  @Test
+  public void testPresizedCollections()
+    throws Exception {
+    CollectionSubject subject = new CollectionSubject();
+
+    new JArgP(subject).parse(new String[]{
+      "--names", "a",
+      "--tags", "x;y",
+      "--names", "b",
+      "--kept", "k",
+      "--tags=z"
+    });
+
+    assertEquals(Arrays.asList("a", "b"), subject.names);
+    assertTrue(subject.tags instanceof LinkedHashSet);
+    assertEquals(Arrays.asList("x", "y", "z"), new ArrayList<>(subject.tags));
+    assertEquals(Arrays.asList("initial", "k"), subject.kept);
+  }
+
+  @Test
+  public void testParseIterator()
+    throws Exception {
+    TestSubject testSubject = new TestSubject();
+    List<CharSequence> args = new ArrayList<>();
+    args.add(new StringBuilder("--string"));
+    args.add(new StringBuilder("built"));
+    args.add("remain");
+
+    List<String> remaining = new JArgP(testSubject).parse(args.iterator());
+
+    assertEquals("built", testSubject.stringField);
+    assertEquals(Arrays.asList("remain"), remaining);
+  }
+
+  @Test
+  public void testParseStream()
+    throws Exception {
+    TestSubject testSubject = new TestSubject();
+    List<String> positional = new ArrayList<>();
+
+    new JArgP(testSubject).parse(
+      Stream.of("first", "--arraylist", "x", "second", "--", "--third"),
+      positional::add);
+
+    assertEquals(Arrays.asList("x"), testSubject.arraylist);
+    assertEquals(Arrays.asList("first", "second", "--third"), positional);
+  }
+
+  @Test(expected = ArgumentParsingException.class)
+  public void testMissingValue()
+    throws Exception {
+    new JArgP(new TestSubject()).parse(new String[]{ "--string" });
+  }
+
+  @Test
+  public void testAttachedValues()
+    throws Exception {
+    PrimitiveSubject subject = new PrimitiveSubject();
+
+    List<String> remaining = new JArgP(subject).parse(new String[]{
+      "-bi-5",
+      "--l=9",
+      "--d=2.5",
+      "-cx",
+      "-"
+    });
+
+    assertTrue(subject.b);
+    assertEquals(-5, subject.i);
+    assertEquals(9, subject.l);
+    assertEquals(2.5, subject.d, 0);
+    assertEquals('x', subject.c);
+    assertEquals(Arrays.asList("-"), remaining);
+  }
+
+  @Test
+  public void testAttachedEmptyValue()
+    throws Exception {
+    TestSubject testSubject = new TestSubject();
+
+    new JArgP(testSubject).parse(new String[]{ "--string=", "--str=a=b" });
+
+    assertEquals("a=b", testSubject.stringField);
+  }
+
+  @Test(expected = ArgumentParsingException.class)
+  public void testFlagWithValue()
+    throws Exception {
+    new JArgP(new PrimitiveSubject()).parse(new String[]{ "--b=true" });
+  }
+
+  @Test
+  public void testPatterns()
+    throws Exception {
+    PatternSubject subject = new PatternSubject();
+
+    List<String> remaining = new JArgP(subject).parse(new String[]{
+      "--42", "7",
+      "--100",
+      "--hi-there=value",
+      "--x1",
+      "-AB",
+      "rest"
+    });
+
+    assertEquals(Arrays.asList("42=7", "hi-there=value"), subject.log);
+    assertEquals(true, subject.hundred);
+    assertEquals(true, subject.xn);
+    assertEquals(true, subject.upper);
+    assertEquals(Arrays.asList("rest"), remaining);
+  }
+
+  @Test(expected = NoSuchOptionException.class)
+  public void testPatternMismatch()
+    throws Exception {
+    new JArgP(new PatternSubject()).parse(new String[]{ "-a" });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPattern()
+    throws Exception {
+    new JArgP(new InvalidPatternSubject());
+  }
+
+  @Test
+  public void testDefaults()
+    throws Exception {
+    DefaultSubject subject = new DefaultSubject();
+
+    new JArgP(subject).parse(new String[]{ "--given", "7" });
+
+    assertEquals(7, subject.given);
+    assertEquals(5, subject.count);
+    assertEquals(new File("default.txt"), subject.file);
+    assertEquals(true, subject.flag);
+    assertEquals(false, subject.on);
+    assertEquals(Arrays.asList("first"), subject.names);
+    assertEquals(Arrays.asList("level=high"), subject.log);
+  }
+
+  @Test
+  public void testDefaultsNotApplied()
+    throws Exception {
+    DefaultSubject subject = new DefaultSubject();
+
+    new JArgP(subject).parse(new String[]{
+      "--count", "1",
+      "--no-flag",
+      "--name", "given",
+      "--level", "low"
+    });
+
+    assertEquals(1, subject.count);
+    assertEquals(false, subject.flag);
+    assertEquals(Arrays.asList("given"), subject.names);
+    assertEquals(Arrays.asList("level=low"), subject.log);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDefault()
+    throws Exception {
+    new JArgP(new InvalidDefaultSubject());
+  }
+
+  public class TestSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(
+      names = { "string",
+                "string-alt" },
+      defaultValue = "default",
+      description = "A single string value.",
+      opposite = true,
+      placeholder = "STRING")
+    public String stringField;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(
+      names = { "flag" },
+      defaultValue = "false",
+      description = "A flag.",
+      opposite = true)
+    public Boolean booleanField;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public File file;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(
+      description = "A multiple string value.",
+      opposite = true,
+      placeholder = "STRING")
+    public ArrayList<String> arraylist;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(
+      description = "A multiple string value.",
+      opposite = true,
+      placeholder = "STRING")
+    public Set<String> set = new HashSet<>();
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(
+      description = "A multiple string value.",
+      opposite = true,
+      placeholder = "LEVEL",
+      pattern = "[0-9]")
+    public Integer level;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public Boolean x;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public Boolean y;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public Boolean z;
+
+  }
+
+  public class SetterSubject {
+
+    public final List<String> log = new ArrayList<>();
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(setter = "setCount")
+    public Integer count;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "name" })
+    public List<String> names;
+
+    public void setCount(String name, Integer value)
+      throws ArgumentParsingException {
+      if (value < 0) {
+        throw new ArgumentParsingException("Negative {0}", name);
+      }
+      log.add(name + "=" + value);
+      count = value;
+    }
+
+  }
+
+  public class PrimitiveSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public int i;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public long l;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public double d;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public char c;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public boolean b;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(opposite = true)
+    public Boolean on;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(opposite = true)
+    public boolean off = true;
+
+  }
+
+  public class PatternSubject {
+
+    public final List<String> log = new ArrayList<>();
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(pattern = "[0-9]+", setter = "log")
+    public Integer level;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "100" })
+    public Boolean hundred;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(pattern = "(lo|hi)-(\\w+)", setter = "log")
+    public String range;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(pattern = "x[0-9]")
+    public Boolean xn;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(shortPattern = "[A-Z]")
+    public Boolean upper;
+
+    public void log(String name, String value) {
+      log.add(name + "=" + value);
+    }
+
+  }
+
+  public class InvalidPatternSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(pattern = "(")
+    public String broken;
+
+  }
+
+  public class WrapSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(
+      names = { "long" },
+      description = "A description that is long enough to be wrapped at least once.",
+      defaultValue = "x")
+    public String value;
+
+  }
+
+  public class DefaultSubject {
+
+    public final List<String> log = new ArrayList<>();
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(defaultValue = "3")
+    public int given;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(defaultValue = "5")
+    public int count;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(defaultValue = "default.txt")
+    public File file;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(defaultValue = "true", opposite = true)
+    public Boolean flag;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(defaultValue = "false")
+    public boolean on = true;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "name" }, defaultValue = "first")
+    public List<String> names;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(defaultValue = "high", setter = "log")
+    public String level;
+
+    public void log(String name, String value) {
+      log.add(name + "=" + value);
+    }
+
+  }
+
+  public class InvalidDefaultSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(defaultValue = "many")
+    public int count;
+
+  }
+
+  public class SeparatorSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(separator = ",")
+    public int[] ids;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(separator = ";")
+    public long[] sizes;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(separator = ",")
+    public double[] ratios;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(separator = ",")
+    public List<String> names;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(separator = ",", defaultValue = "1,2")
+    public int[] ports;
+
+  }
+
+  public class ArraySubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public String[] strings;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "f" })
+    public File[] files;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public int[] ints;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public boolean[] flags;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public char[] chars;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(separator = ",")
+    public byte[] levels;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(defaultValue = "0.5")
+    public float[] weights;
+
+  }
+
+  public class CollectionSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public List<String> names;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(separator = ";")
+    public Set<String> tags;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public List<String> kept = new ArrayList<>(Arrays.asList("initial"));
+
+  }
+
+  public class InvalidSeparatorSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(separator = ",")
+    public String name;
+
+  }
+
+}
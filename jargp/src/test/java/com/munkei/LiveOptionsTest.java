@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.NoSuchOptionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class LiveOptionsTest {
+
+  @Test
+  public void testReload()
+    throws Exception {
+    LiveOptions<LiveSubject> options = new LiveOptions<>(
+      new Parser<>(LiveSubject.class),
+      LiveSubject::new,
+      new String[]{ "--host", "a", "--port", "1", "--tag", "x" });
+    LiveSubject first = options.get();
+    assertEquals("a", first.host);
+
+    List<String> all = new ArrayList<>();
+    List<String> port = new ArrayList<>();
+    options.addListener((previous, current, changed) -> all.addAll(changed));
+    options.addListener("port",
+                        (previous, current, changed) -> port.add(
+                          previous.port + "->" + current.port));
+
+    assertEquals(Collections.singleton("host"),
+                 options.reload(new String[]{
+                   "--host", "b", "--port", "1", "--tag", "x" }));
+    assertNotSame(first, options.get());
+    assertEquals("a", first.host);
+    assertEquals("b", options.get().host);
+    assertEquals(Arrays.asList("host"), all);
+    assertTrue(port.isEmpty());
+
+    LiveSubject second = options.get();
+    assertTrue(options.reload(new String[]{
+      "--host", "b", "--port", "1", "--tag", "x" }).isEmpty());
+    assertSame(second, options.get());
+
+    assertEquals(new ArrayList<>(Arrays.asList("port", "tag")),
+                 new ArrayList<>(options.reload(new String[]{
+                   "--host", "b", "--port", "2", "--tag", "y" })));
+    assertEquals(Arrays.asList("1->2"), port);
+  }
+
+  @Test
+  public void testThrowingListener()
+    throws Exception {
+    LiveOptions<LiveSubject> options = new LiveOptions<>(
+      new Parser<>(LiveSubject.class),
+      LiveSubject::new,
+      new String[]{ "--host", "a" });
+
+    List<String> notified = new ArrayList<>();
+    options.addListener((previous, current, changed) -> {
+      throw new IllegalStateException("first");
+    });
+    options.addListener((previous, current, changed) -> notified.add(
+      current.host));
+
+    Thread thread = Thread.currentThread();
+    Thread.UncaughtExceptionHandler handler
+      = thread.getUncaughtExceptionHandler();
+    List<Throwable> uncaught = new ArrayList<>();
+    thread.setUncaughtExceptionHandler((t, ex) -> uncaught.add(ex));
+    try {
+      assertEquals(Collections.singleton("host"),
+                   options.reload(new String[]{ "--host", "b" }));
+    } finally {
+      thread.setUncaughtExceptionHandler(handler);
+    }
+
+    assertEquals("b", options.get().host);
+    assertEquals(Arrays.asList("b"), notified);
+    assertEquals(1, uncaught.size());
+    assertEquals("first", uncaught.get(0).getMessage());
+  }
+
+  @Test
+  public void testFailedReload()
+    throws Exception {
+    LiveOptions<LiveSubject> options = new LiveOptions<>(
+      new Parser<>(LiveSubject.class),
+      LiveSubject::new,
+      new String[]{ "--host", "a" });
+    LiveSubject first = options.get();
+
+    try {
+      options.reload(new String[]{ "--host", "b", "--unknown" });
+      fail();
+    } catch (NoSuchOptionException ex) {
+      assertSame(first, options.get());
+    }
+  }
+
+  @Test
+  public void testConsistentSnapshots()
+    throws Exception {
+    LiveOptions<LiveSubject> options = new LiveOptions<>(
+      new Parser<>(LiveSubject.class),
+      LiveSubject::new,
+      new String[]{ "--host", "0", "--port", "0" });
+
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicBoolean torn = new AtomicBoolean();
+    Thread reader = new Thread(() -> {
+      while (!done.get()) {
+        LiveSubject snapshot = options.get();
+        if (!snapshot.host.equals(Integer.toString(snapshot.port))) {
+          torn.set(true);
+        }
+      }
+    });
+    reader.start();
+
+    for (int i = 1; i <= 1000; ++i) {
+      options.reload(new String[]{ "--host", "" + i, "--port", "" + i });
+    }
+    done.set(true);
+    reader.join();
+
+    assertFalse(torn.get());
+    assertEquals(1000, options.get().port);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testListenerForUnknownOption()
+    throws Exception {
+    new LiveOptions<>(new Parser<>(LiveSubject.class),
+                      LiveSubject::new,
+                      new String[0])
+      .addListener("unknown", (previous, current, changed) -> {
+      });
+  }
+
+  public static class LiveSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "host" })
+    public String host;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "port" })
+    public int port;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "tag" })
+    public List<String> tag;
+
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.NoSuchOptionException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class OptionSetTest {
+
+  @Test
+  public void testParse()
+    throws Exception {
+    OptionSet.Builder builder = OptionSet.builder();
+    int port = builder.option(int.class)
+      .names("port", "p")
+      .defaultValue("8080")
+      .description("The port.")
+      .add();
+    int tags = builder.option(String.class)
+      .names("tag")
+      .multiple()
+      .add();
+    int verbose = builder.option(boolean.class)
+      .names("verbose", "v")
+      .opposite()
+      .add();
+    int ratio = builder.option(double.class)
+      .names("ratio")
+      .add();
+    int upper = builder.option(String.class)
+      .names("upper")
+      .converter(String::toUpperCase)
+      .add();
+    OptionSet options = builder.build();
+    assertEquals(5, options.size());
+
+    ParseResult<OptionValues> result = options.parser().parse(
+      new String[]{ "--tag", "a", "-v", "rest", "--rat", "0.5",
+                    "--tag=b", "--upper", "x" },
+      options::newValues);
+    OptionValues values = result.getSubject();
+
+    assertEquals(Collections.singletonList("rest"), result.getRemaining());
+    assertEquals(8080, values.getInt(port));
+    assertTrue(values.isSet(port));
+    assertEquals(Arrays.asList("a", "b"), values.getList(tags));
+    assertTrue(values.getBoolean(verbose));
+    assertEquals(0.5, values.getDouble(ratio), 0.0);
+    assertEquals("X", values.get(upper));
+    assertEquals(Integer.valueOf(8080), values.get("p"));
+    assertEquals(upper, options.ordinal("upper"));
+
+    values = options.parser()
+      .parse(new String[]{ "--no-verbose", "-p", "1" }, options::newValues)
+      .getSubject();
+    assertFalse(values.getBoolean(verbose));
+    assertTrue(values.isSet(port));
+    assertEquals(1, values.getInt(port));
+    assertTrue(values.getList(tags).isEmpty());
+    assertFalse(values.isSet(ratio));
+    assertNull(values.get(upper));
+  }
+
+  @Test
+  public void testJArgP()
+    throws Exception {
+    OptionSet.Builder builder = OptionSet.builder();
+    int level = builder.option(Integer.class).names("level").add();
+    OptionSet options = builder.build();
+
+    OptionValues values = options.newValues();
+    new JArgP(values).parse(new String[]{ "--level", "3" });
+    assertEquals(3, values.getInt(level));
+    assertTrue(options.getUsage().contains("--level"));
+  }
+
+  @Test
+  public void testInvalid()
+    throws Exception {
+    OptionSet.Builder builder = OptionSet.builder();
+    try {
+      builder.option(int.class).add();
+      fail();
+    } catch (IllegalArgumentException ex) {
+      // Expected
+    }
+    try {
+      builder.option(int.class).names("n").defaultValue("x").add();
+      fail();
+    } catch (IllegalArgumentException ex) {
+      // Expected
+    }
+
+    builder.option(int.class).names("n").add();
+    OptionSet options = builder.build();
+    try {
+      options.ordinal("m");
+      fail();
+    } catch (IllegalArgumentException ex) {
+      // Expected
+    }
+    try {
+      options.parser().parse(new String[]{ "--m" }, options::newValues);
+      fail();
+    } catch (NoSuchOptionException ex) {
+      assertEquals("m", ex.getOption());
+    }
+  }
+
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class OptionSourcesTest {
+
+  @Test
+  public void testPrecedence()
+    throws Exception {
+    Map<String, String> environment = new HashMap<>();
+    environment.put("APP_NAME", "environment");
+    environment.put("APP_LEVEL", "2");
+    environment.put("APP_VERBOSE", "true");
+
+    Path file = properties(
+      "app.name = file",
+      "app.level = 3",
+      "app.size: 4");
+
+    try {
+      Parser<SourceSubject> parser = new Parser<>(SourceSubject.class)
+        .withSources(OptionSources.environment("APP_", environment),
+                     OptionSources.propertiesFile(file, "app."));
+
+      SourceSubject subject = parser.parse(
+        new String[]{ "--name", "argument" },
+        SourceSubject::new).getSubject();
+      assertEquals("argument", subject.name);
+      assertEquals(2, subject.level);
+      assertEquals(4, subject.size);
+      assertEquals(5, subject.count);
+      assertTrue(subject.verbose);
+
+      subject = parser.parse(new String[0], SourceSubject::new).getSubject();
+      assertEquals("environment", subject.name);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testPropertiesSyntax()
+    throws Exception {
+    Path file = properties(
+      "# A comment",
+      "! Another comment",
+      "other.key=ignored",
+      "  app.a=plain",
+      "app.b\t  value with spaces  ",
+      "app.c:\\u00e9t\\u00e9\\tx",
+      "app.d = first \\",
+      "        second",
+      "app.\\ e = escaped key",
+      "app.f = overridden",
+      "app.f = wins",
+      "app.g =",
+      "app.h = \u00e5ngstr\u00f6m");
+
+    try {
+      OptionSource source = OptionSources.propertiesFile(file, "app.");
+      assertEquals("plain", source.get("a"));
+      assertEquals("value with spaces  ", source.get("b"));
+      assertEquals("\u00e9t\u00e9\tx", source.get("c"));
+      assertEquals("first second", source.get("d"));
+      assertEquals("escaped key", source.get(" e"));
+      assertEquals("wins", source.get("f"));
+      assertEquals("", source.get("g"));
+      assertEquals("\u00e5ngstr\u00f6m", source.get("h"));
+      assertNull(source.get("key"));
+      assertNull(source.get("missing"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testPropertiesLikeProperties()
+    throws Exception {
+    Path file = properties(
+      "# dir C:\\",
+      "app.key=value",
+      "! also C:\\",
+      "app.other = 2",
+      "\\u0061pp.unicode = escaped prefix",
+      "app\\.dot = escaped separator",
+      "ap = short",
+      "apple = no separator");
+
+    try {
+      Properties properties = new Properties();
+      try (Reader reader = Files.newBufferedReader(file,
+                                                   StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      }
+
+      OptionSource source = OptionSources.propertiesFile(file, "app.");
+      for (String name : Arrays.asList("key",
+                                       "other",
+                                       "unicode",
+                                       "dot",
+                                       "",
+                                       "le")) {
+        assertEquals(name,
+                     properties.getProperty("app." + name),
+                     source.get(name));
+      }
+      assertEquals("value", source.get("key"));
+      assertEquals("escaped prefix", source.get("unicode"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testInvalidValue()
+    throws Exception {
+    Parser<SourceSubject> parser = new Parser<>(SourceSubject.class)
+      .withSources(OptionSources.environment(
+        "",
+        Collections.singletonMap("LEVEL", "high")));
+
+    try {
+      parser.parse(new String[0], SourceSubject::new);
+      fail();
+    } catch (ArgumentParsingException ex) {
+      assertTrue(ex.getMessage().contains("'high'"));
+    }
+
+    List<Diagnostic> diagnostics = parser.tryParse(new String[0],
+                                                   SourceSubject::new)
+      .getDiagnostics();
+    assertEquals(1, diagnostics.size());
+    assertEquals(Diagnostic.Reason.INVALID_VALUE,
+                 diagnostics.get(0).getReason());
+    assertEquals(-1, diagnostics.get(0).getIndex());
+  }
+
+  @Test(expected = ArgumentParsingException.class)
+  public void testMissingFile()
+    throws Exception {
+    new Parser<>(SourceSubject.class)
+      .withSources(OptionSources.propertiesFile(
+        Paths.get("does-not-exist.properties"),
+        ""))
+      .parse(new String[0], SourceSubject::new);
+  }
+
+  @Test
+  public void testMissingFileTryParse()
+    throws Exception {
+    ParseResult<SourceSubject> result = new Parser<>(SourceSubject.class)
+      .withSources(
+        OptionSources.propertiesFile(Paths.get("does-not-exist.properties"),
+                                     ""),
+        OptionSources.environment("X_",
+                                  Collections.singletonMap("X_SIZE", "3")))
+      .tryParse(new String[]{ "--name", "x" }, SourceSubject::new);
+
+    // The next source, and the defaults, are still used
+    assertEquals("x", result.getSubject().name);
+    assertEquals(3, result.getSubject().size);
+    assertEquals(1, result.getSubject().level);
+
+    // Only once, although every option that isn't given asks for it
+    List<Diagnostic> diagnostics = result.getDiagnostics();
+    assertEquals(1, diagnostics.size());
+    assertEquals(Diagnostic.Reason.SOURCE, diagnostics.get(0).getReason());
+    assertEquals(-1, diagnostics.get(0).getIndex());
+    assertTrue(diagnostics.get(0).getMessage()
+      .contains("does-not-exist.properties"));
+  }
+
+  @Test
+  public void testJArgP()
+    throws Exception {
+    SourceSubject subject = new SourceSubject();
+    JArgP jargp = new JArgP(subject);
+    jargp.setSources(OptionSources.environment(
+      "X_",
+      Collections.singletonMap("X_LEVEL", "7")));
+    jargp.parse(Arrays.asList("--size", "1"));
+
+    assertEquals(7, subject.level);
+    assertEquals(1, subject.size);
+  }
+
+  private static Path properties(String... lines)
+    throws Exception {
+    Path file = Files.createTempFile("jargp", ".properties");
+    Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    return file;
+  }
+
+  public static class SourceSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "name" })
+    public String name;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "level" }, defaultValue = "1")
+    public int level;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "size" })
+    public long size;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "count" }, defaultValue = "5")
+    public int count;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "verbose" })
+    public boolean verbose;
+
+  }
+
+}
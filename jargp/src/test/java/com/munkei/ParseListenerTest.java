@@ -0,0 +1,185 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class ParseListenerTest {
+
+  @Test
+  public void testEvents()
+    throws Exception {
+    List<String> events = new ArrayList<>();
+    ParseListener listener = new ParseListener() {
+
+      @Override
+      public void parseStarted(Class<?> type, List<Option> options) {
+        events.add("start " + type.getSimpleName() + " " + options.size());
+      }
+
+      @Override
+      public void parseFinished(Class<?> type, long nanos, boolean success) {
+        events.add("finish " + success);
+      }
+
+      @Override
+      public void optionMatched(Option option, String name) {
+        events.add("match " + option.getField().getName() + " " + name);
+      }
+
+      @Override
+      public void valueConverted(Option option,
+                                 String name,
+                                 long nanos) {
+        events.add("convert " + option.getField().getName());
+      }
+
+      @Override
+      public void conversionFailed(Option option,
+                                   String name,
+                                   String value,
+                                   Exception cause) {
+        events.add("fail " + option.getField().getName() + " " + value);
+      }
+
+      @Override
+      public void defaultApplied(Option option) {
+        events.add("default " + option.getField().getName());
+      }
+
+    };
+
+    new Parser<>(TestSubject.class)
+      .withListener(listener)
+      .tryParse(new String[]{ "-n", "x", "--name", "a" }, TestSubject::new);
+
+    assertEquals(Arrays.asList("start TestSubject 3",
+                               "match number n",
+                               "fail number x",
+                               "match name name",
+                               "convert name",
+                               "default level",
+                               "finish false"),
+                 events);
+  }
+
+  @Test
+  public void testMetrics()
+    throws Exception {
+    ParseMetrics metrics = new ParseMetrics();
+    Parser<TestSubject> parser = new Parser<>(TestSubject.class)
+      .withListener(metrics);
+
+    for (int i = 0; i < 10; ++i) {
+      parser.parse(new String[]{ "--name", "n", "-n", "" + i },
+                   TestSubject::new);
+    }
+    parser.tryParse(new String[]{ "-n", "x" }, TestSubject::new);
+
+    assertEquals(11, metrics.getParses());
+    assertEquals(1, metrics.getFailedParses());
+
+    ParseMetrics.OptionMetrics number = metrics.getOptionMetrics(
+      TestSubject.class.getField("number"));
+    assertEquals(11, number.getHits());
+    assertEquals(1, number.getFailures());
+    assertEquals(10, Arrays.stream(number.getConversionTimes()).sum());
+
+    // Never given, but still counted
+    ParseMetrics.OptionMetrics level = metrics.getOptionMetrics(
+      TestSubject.class.getField("level"));
+    assertEquals(0, level.getHits());
+    assertEquals(11, level.getDefaults());
+
+    String export = metrics.toString();
+    assertTrue(export.startsWith("option\thits\t"));
+    assertTrue(export.contains("\n*\t11\t1\t0\t"));
+    assertTrue(export.contains(
+      "\ncom.munkei.ParseListenerTest$TestSubject.level\t0\t0\t11\t0\t0\n"));
+  }
+
+  @Test
+  public void testOptionSetMetrics()
+    throws Exception {
+    OptionSet.Builder builder = OptionSet.builder();
+    builder.option(int.class).names("port").defaultValue("8080").add();
+    builder.option(String.class).names("host").add();
+    OptionSet options = builder.build();
+
+    ParseMetrics metrics = new ParseMetrics();
+    Parser<OptionValues> parser = options.parser().withListener(metrics);
+    parser.parse(new String[]{ "--host", "h" }, options::newValues);
+    parser.tryParse(new String[]{ "--port", "x" }, options::newValues);
+
+    List<ParseMetrics.OptionMetrics> list = metrics.getOptionMetrics();
+    assertEquals(2, list.size());
+    assertEquals("port", list.get(0).getName());
+    assertNull(list.get(0).getField());
+    assertEquals(1, list.get(0).getHits());
+    assertEquals(1, list.get(0).getFailures());
+    // Also when the value given was invalid
+    assertEquals(2, list.get(0).getDefaults());
+    assertEquals("host", list.get(1).getName());
+    assertEquals(1, list.get(1).getHits());
+
+    String export = metrics.toString();
+    assertTrue(export.contains("\nport\t1\t1\t2\t"));
+    assertTrue(export.contains("\nhost\t1\t0\t0\t"));
+  }
+
+  @Test
+  public void testPercentile() {
+    long[] histogram = new long[ParseMetrics.BUCKETS];
+    assertEquals(0L, ParseMetrics.percentile(histogram, 0.5));
+
+    histogram[3] = 98;
+    histogram[10] = 2;
+    assertEquals(16L, ParseMetrics.percentile(histogram, 0.5));
+    assertEquals(2048L, ParseMetrics.percentile(histogram, 0.99));
+  }
+
+  public static class TestSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "name" })
+    public String name;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "number", "n" })
+    public int number;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(defaultValue = "3")
+    public int level;
+
+  }
+
+}
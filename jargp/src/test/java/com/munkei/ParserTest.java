@@ -0,0 +1,233 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.NoSuchOptionException;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class ParserTest {
+
+  @SuppressWarnings("PublicField")
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testParse()
+    throws Exception {
+    Parser<TestSubject> parser = new Parser<>(TestSubject.class);
+
+    ParseResult<TestSubject> first = parser.parse(
+      new String[]{ "--name", "first", "remain" },
+      TestSubject::new);
+    ParseResult<TestSubject> second = parser.parse(
+      new String[]{ "-n", "2" },
+      TestSubject::new);
+
+    assertTrue(first.isSuccess());
+    assertNotSame(first.getSubject(), second.getSubject());
+    assertEquals("first", first.getSubject().name);
+    assertEquals(0, first.getSubject().number);
+    assertEquals(Arrays.asList("remain"), first.getRemaining());
+    assertNull(second.getSubject().name);
+    assertEquals(2, second.getSubject().number);
+  }
+
+  @Test
+  public void testParseAll()
+    throws Exception {
+    List<String[]> argsList = new ArrayList<>();
+    for (int i = 0; i < 1000; ++i) {
+      argsList.add(((i % 100) == 99)
+                   ? new String[]{ "--unknown" }
+                   : new String[]{ "--name", "n" + i, "-n", "" + i });
+    }
+
+    List<ParseResult<TestSubject>> results;
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      results = new Parser<>(TestSubject.class).parseAll(argsList,
+                                                         TestSubject::new,
+                                                         pool);
+    } finally {
+      pool.shutdown();
+    }
+
+    assertEquals(argsList.size(), results.size());
+    for (int i = 0; i < results.size(); ++i) {
+      ParseResult<TestSubject> result = results.get(i);
+      if ((i % 100) == 99) {
+        assertFalse(result.isSuccess());
+        assertTrue(result.getError() instanceof NoSuchOptionException);
+        assertNull(result.getSubject());
+      } else {
+        assertTrue(result.isSuccess());
+        assertEquals("n" + i, result.getSubject().name);
+        assertEquals(i, result.getSubject().number);
+      }
+    }
+  }
+
+  @Test(expected = NoSuchOptionException.class)
+  public void testParseError()
+    throws Exception {
+    new Parser<>(TestSubject.class).parse(new String[]{ "--unknown" },
+                                          TestSubject::new);
+  }
+
+  @Test
+  public void testTryParse()
+    throws Exception {
+    ParseResult<TestSubject> result = new Parser<>(TestSubject.class).tryParse(
+      new String[]{
+        "--unknown",
+        "-n", "x",
+        "remain",
+        "--name", "valid",
+        "--name=a=b",
+        "-zn"
+      },
+      TestSubject::new);
+
+    assertFalse(result.isSuccess());
+    assertNull(result.getError());
+    assertEquals("a=b", result.getSubject().name);
+    assertEquals(Arrays.asList("remain"), result.getRemaining());
+
+    List<Diagnostic> diagnostics = result.getDiagnostics();
+    assertEquals(4, diagnostics.size());
+
+    assertEquals(Diagnostic.Reason.UNKNOWN_OPTION,
+                 diagnostics.get(0).getReason());
+    assertEquals("unknown", diagnostics.get(0).getOption());
+    assertEquals(0, diagnostics.get(0).getIndex());
+
+    assertEquals(Diagnostic.Reason.INVALID_VALUE,
+                 diagnostics.get(1).getReason());
+    assertEquals("n", diagnostics.get(1).getOption());
+    assertEquals("x", diagnostics.get(1).getValue());
+    assertEquals(1, diagnostics.get(1).getIndex());
+    assertEquals(0, diagnostics.get(1).getCause().getStackTrace().length);
+    assertTrue(diagnostics.get(1).getMessage().contains("'x'"));
+
+    assertEquals(Diagnostic.Reason.UNKNOWN_OPTION,
+                 diagnostics.get(2).getReason());
+    assertEquals("z", diagnostics.get(2).getOption());
+    assertEquals(7, diagnostics.get(2).getIndex());
+
+    assertEquals(Diagnostic.Reason.MISSING_VALUE,
+                 diagnostics.get(3).getReason());
+    assertEquals("n", diagnostics.get(3).getOption());
+    assertEquals(7, diagnostics.get(3).getIndex());
+  }
+
+  @Test
+  public void testTryParseArgumentFiles()
+    throws Exception {
+    File broken = new File(folder.getRoot(), "broken.txt");
+    Files.write(broken.toPath(),
+                "--ids 2 'open".getBytes(StandardCharsets.UTF_8));
+
+    ParseResult<FileSubject> result = new Parser<>(FileSubject.class)
+      .withArgumentFilePrefix("@")
+      .tryParse(new String[]{
+        "--ids", "1",
+        "@" + new File(folder.getRoot(), "missing.txt"),
+        "@" + broken,
+        "--ids", "3"
+      }, FileSubject::new);
+
+    // The files are skipped (from where they broke), and the parse goes on
+    assertEquals("dflt", result.getSubject().name);
+    assertArrayEquals(new int[]{ 1, 2, 3 }, result.getSubject().ids);
+
+    List<Diagnostic> diagnostics = result.getDiagnostics();
+    assertEquals(2, diagnostics.size());
+    for (Diagnostic diagnostic : diagnostics) {
+      assertEquals(Diagnostic.Reason.ARGUMENT_FILE, diagnostic.getReason());
+      assertEquals(0, diagnostic.getCause().getStackTrace().length);
+    }
+    assertTrue(diagnostics.get(0).getMessage().contains("missing.txt"));
+    assertTrue(diagnostics.get(1).getMessage().contains("Unterminated quote"));
+  }
+
+  @Test
+  public void testStackTraces()
+    throws Exception {
+    Parser<TestSubject> parser = new Parser<>(TestSubject.class);
+
+    try {
+      parser.withStackTraces(false).parse(new String[]{ "--unknown" },
+                                          TestSubject::new);
+      fail();
+    } catch (NoSuchOptionException ex) {
+      assertEquals(0, ex.getStackTrace().length);
+      assertEquals("unknown", ex.getOption());
+    }
+
+    try {
+      parser.parse(new String[]{ "--unknown" }, TestSubject::new);
+      fail();
+    } catch (NoSuchOptionException ex) {
+      assertTrue(ex.getStackTrace().length > 0);
+    }
+  }
+
+  public static class TestSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "name" })
+    public String name;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "number", "n" })
+    public int number;
+
+  }
+
+  public static class FileSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "name" }, defaultValue = "dflt")
+    public String name;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "ids" })
+    public int[] ids;
+
+  }
+
+}
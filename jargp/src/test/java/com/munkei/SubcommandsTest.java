@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.NoSuchCommandException;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class SubcommandsTest {
+
+  private static final Subcommands<GlobalSubject> COMMANDS
+    = new Subcommands<>(new Parser<>(GlobalSubject.class))
+      .withCommand("build", BuildSubject.class)
+      .withCommand("test", TestSubject::new)
+      // Never invoked, so its invalid pattern is never compiled
+      .withCommand("broken", BrokenSubject.class);
+
+  @Test
+  public void testParse()
+    throws Exception {
+    CommandResult<GlobalSubject> result = COMMANDS.parse(
+      new String[]{ "-v", "build", "--target", "all", "-v", "file" },
+      GlobalSubject::new);
+
+    assertTrue(result.getGlobal().verbose);
+    assertEquals("build", result.getCommand());
+    BuildSubject build = result.getSubject(BuildSubject.class);
+    assertEquals("all", build.target);
+    assertTrue(build.verbose);
+    assertEquals(Arrays.asList("file"), result.getRemaining());
+  }
+
+  @Test
+  public void testSupplier()
+    throws Exception {
+    CommandResult<GlobalSubject> result = COMMANDS.parse(
+      new String[]{ "--", "test", "--count=3", "--", "--not-an-option" },
+      GlobalSubject::new);
+
+    assertFalse(result.getGlobal().verbose);
+    assertEquals(3, result.getSubject(TestSubject.class).count);
+    assertEquals(Arrays.asList("--not-an-option"), result.getRemaining());
+  }
+
+  @Test
+  public void testNoCommand()
+    throws Exception {
+    CommandResult<GlobalSubject> result = COMMANDS.parse(
+      new String[]{ "--verbose" },
+      GlobalSubject::new);
+
+    assertTrue(result.getGlobal().verbose);
+    assertNull(result.getCommand());
+    assertNull(result.getSubject());
+    assertTrue(result.getRemaining().isEmpty());
+  }
+
+  @Test
+  public void testNoSuchCommand()
+    throws Exception {
+    try {
+      COMMANDS.parse(new String[]{ "biuld" }, GlobalSubject::new);
+      fail();
+    } catch (NoSuchCommandException ex) {
+      assertEquals("biuld", ex.getCommand());
+      assertEquals(Arrays.asList("build"), ex.getSuggestions());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBrokenCommand()
+    throws Exception {
+    COMMANDS.parse(new String[]{ "broken" }, GlobalSubject::new);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateCommand()
+    throws Exception {
+    COMMANDS.withCommand("build", TestSubject::new);
+  }
+
+  @Test
+  public void testCommandNames()
+    throws Exception {
+    assertEquals(Arrays.asList("build", "test", "broken"),
+                 Arrays.asList(COMMANDS.getCommandNames().toArray()));
+  }
+
+  public static class GlobalSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "verbose", "v" })
+    public boolean verbose;
+
+  }
+
+  public static class BuildSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "target" })
+    public String target;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "verbose", "v" })
+    public boolean verbose;
+
+  }
+
+  public static class TestSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(names = { "count" })
+    public int count;
+
+  }
+
+  public static class BrokenSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(pattern = "[")
+    public String broken;
+
+  }
+
+}
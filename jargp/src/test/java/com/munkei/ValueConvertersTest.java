@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014 Theo Willows
+ *
+ * This file is part of JArgP.
+ *
+ * JArgP is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ *
+ * JArgP is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JArgP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.munkei;
+
+import com.munkei.exception.ArgumentParsingException;
+import java.io.File;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Theo 'Biffen' Willows <theo@willows.se>
+ *
+ * @since 0.0.1
+ */
+public class ValueConvertersTest {
+
+  @Test
+  public void testBuiltIns()
+    throws Exception {
+    assertEquals("string", ValueConverters.forClass(String.class)
+                 .convert("string"));
+    assertEquals(Character.valueOf('c'),
+                 ValueConverters.forClass(Character.class).convert("c"));
+    assertEquals(Integer.valueOf(42),
+                 ValueConverters.forClass(Integer.class).convert("42"));
+    assertEquals(Long.valueOf(42),
+                 ValueConverters.forClass(Long.class).convert("42"));
+    assertEquals(Double.valueOf(4.2),
+                 ValueConverters.forClass(Double.class).convert("4.2"));
+    assertEquals(new BigDecimal("4.20"),
+                 ValueConverters.forClass(BigDecimal.class).convert("4.20"));
+    assertEquals(new File("."),
+                 ValueConverters.forClass(File.class).convert("."));
+    assertEquals(Paths.get("a", "b"),
+                 ValueConverters.forClass(Path.class).convert("a/b"));
+    assertEquals(URI.create("http://munkei.com"),
+                 ValueConverters.forClass(URI.class)
+                 .convert("http://munkei.com"));
+    assertEquals(Duration.ofSeconds(90),
+                 ValueConverters.forClass(Duration.class).convert("PT1M30S"));
+  }
+
+  @Test(expected = ArgumentParsingException.class)
+  public void testCharacter()
+    throws Exception {
+    ValueConverters.forClass(Character.class).convert("cc");
+  }
+
+  @Test
+  public void testReflective()
+    throws Exception {
+    assertEquals(Mode.FAST, ValueConverters.forClass(Mode.class)
+                 .convert("FAST"));
+    assertEquals(new StringBuilder("sb").toString(),
+                 ValueConverters.forClass(StringBuilder.class).convert("sb")
+                 .toString());
+    assertSame(ValueConverters.forClass(Mode.class),
+               ValueConverters.forClass(Mode.class));
+    assertNull(ValueConverters.forClass(Object.class));
+  }
+
+  @Test
+  public void testRegistered()
+    throws Exception {
+    ValueConverters.register(Locale.class, Locale::forLanguageTag);
+
+    assertEquals(Locale.forLanguageTag("sv-SE"),
+                 ValueConverters.forClass(Locale.class).convert("sv-SE"));
+  }
+
+  @Test
+  public void testOptionConverter()
+    throws Exception {
+    TestSubject subject = new TestSubject();
+
+    new JArgP(subject).parse(new String[]{
+      "--mode", "SLOW",
+      "--upper", "shout"
+    });
+
+    assertEquals(Mode.SLOW, subject.mode);
+    assertEquals("SHOUT", subject.upper);
+  }
+
+  @Test(expected = ArgumentParsingException.class)
+  public void testInvalidValue()
+    throws Exception {
+    new JArgP(new TestSubject()).parse(new String[]{ "--number", "x" });
+  }
+
+  public enum Mode {
+
+    FAST,
+    SLOW
+
+  }
+
+  public static class UpperCase
+    implements ValueConverter<String> {
+
+    @Override
+    public String convert(String value) {
+      return value.toUpperCase(Locale.ROOT);
+    }
+
+  }
+
+  public class TestSubject {
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public Mode mode;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption(converter = UpperCase.class)
+    public String upper;
+
+    @SuppressWarnings("PublicField")
+    @CommandLineOption
+    public Integer number;
+
+  }
+
+}